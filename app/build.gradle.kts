@@ -32,6 +32,46 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    sourceSets {
+        getByName("main") {
+            assets.srcDir(layout.buildDirectory.dir("generated/dictionary/assets"))
+        }
+    }
+    testOptions {
+        // JVM tests run against the stubbed android.jar; TranslationCache logs dropped entries.
+        unitTests.isReturnDefaultValues = true
+    }
+    androidResources {
+        // The compiled dictionary is memory-mapped through openFd, which needs it uncompressed.
+        noCompress += "bin"
+    }
+}
+
+val dictionaryCompiler: Configuration by configurations.creating
+
+// Turns each text dictionary into the binary index its DictionaryProvider maps, e.g.
+// src/main/dictionary/rukiga_dictionary.txt into the rukiga_dictionary.bin asset.
+val compileDictionary by tasks.registering
+
+fileTree("src/main/dictionary") { include("*.txt") }.forEach { source ->
+    val name = source.nameWithoutExtension
+    val compile = tasks.register<JavaExec>(
+        "compile" + name.split('_').joinToString("") { part -> part.replaceFirstChar { it.uppercase() } }
+    ) {
+        val output = layout.buildDirectory.file("generated/dictionary/assets/$name.bin")
+        inputs.file(source)
+        outputs.file(output)
+        classpath = dictionaryCompiler
+        mainClass.set("com.trans.translator.dictionary.DictionaryCompiler")
+        argumentProviders.add(CommandLineArgumentProvider {
+            listOf(source.absolutePath, output.get().asFile.absolutePath)
+        })
+    }
+    compileDictionary { dependsOn(compile) }
+}
+
+tasks.named("preBuild") {
+    dependsOn(compileDictionary)
 }
 
 dependencies {
@@ -39,12 +79,16 @@ dependencies {
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
+    implementation(project(":dictionary"))
+    dictionaryCompiler(project(":dictionary-compiler"))
 //    implementation(libs.play.services.tasks)
 
 //    implementation(libs["play.services.tasks"]) // ADD THIS LINE INSTEAD
 
 
     testImplementation(libs.junit)
+    testImplementation(project(":dictionary-compiler"))
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 
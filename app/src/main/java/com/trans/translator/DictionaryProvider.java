@@ -0,0 +1,380 @@
+package com.trans.translator;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.trans.translator.dictionary.CompiledDictionary;
+import com.trans.translator.dictionary.DictionaryLoader;
+import com.trans.translator.dictionary.LatencyHistogram;
+import com.trans.translator.dictionary.Metrics;
+import com.trans.translator.dictionary.OverlayLog;
+import com.trans.translator.dictionary.RukigaDictionary;
+import com.trans.translator.dictionary.UserEntry;
+import com.trans.translator.dictionary.UserOverlay;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * A local-language dictionary the app translates with, such as Runyankore/Rukiga: the language
+ * code it is selected by, the compiled asset it is loaded from, the file its user entries are
+ * kept in, and the normalizer its queries go through. Providers are registered with the
+ * {@link DictionaryRegistry}.
+ *
+ * The asset is a binary index that the {@code compileDictionary} build task produces from the
+ * text dictionary of the same name in {@code src/main/dictionary}. It is stored uncompressed and
+ * memory-mapped, so loading it involves no parsing; the lookup indexes are then built in parallel
+ * on a pool bounded by the number of cores, which is shut down once loading completes. Nothing is
+ * loaded until the dictionary is first asked for, and it can be {@link #unload unloaded} again
+ * when it has not been used for a while.
+ *
+ * The loaded dictionary is an immutable snapshot held in a single atomic reference, so lookups
+ * never lock. A new version of the compiled dictionary ({@link #install}) or an entry the user
+ * adds or corrects ({@link #addUserEntry}) is prepared in the background and swapped in whole.
+ * User entries are kept in an append-only {@link OverlayLog} in the app's files directory and
+ * laid over the compiled dictionary without rebuilding it.
+ */
+public final class DictionaryProvider {
+
+    private static final String TAG = "DictionaryProvider";
+
+    private static volatile DictionaryLoader.ProgressListener progressListener;
+    private static volatile Runnable updateListener;
+    // Callers of whenReady that found a dictionary still loading, and how long they waited.
+    private static final LongAdder DICTIONARY_WAITS = Metrics.global().counter("dictionary.waits");
+    private static final LatencyHistogram DICTIONARY_WAIT = Metrics.global().histogram("dictionary.wait");
+    private static final LongAdder DICTIONARY_UNLOADS = Metrics.global().counter("dictionary.unloads");
+    // Applies user entries one at a time, in the order they were made, for every dictionary.
+    private static final ExecutorService updateExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dictionary-updates");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Spinner code of the language; negative, unlike the machine-translated ones. */
+    public final int languageCode;
+    /** Name of the language in the language spinners. */
+    public final String displayName;
+    private final String assetName;
+    private final String userEntriesFileName;
+    private final UnaryOperator<String> normalizer;
+
+    private volatile CompletableFuture<RukigaDictionary> loading;
+    private volatile OverlayLog overlayLog;
+    // A version installed over the asset, loaded again in its place after an unload.
+    private volatile File installed;
+    private volatile long lastUsedNanos = System.nanoTime();
+    // The snapshot lookups run against; null until the first load completes and after an unload.
+    private final AtomicReference<RukigaDictionary> current = new AtomicReference<>();
+
+    /**
+     * @param languageCode        negative code of the language, unique among the providers.
+     * @param displayName         name of the language in the language spinners.
+     * @param assetName           compiled dictionary asset, e.g. {@code rukiga_dictionary.bin}.
+     * @param userEntriesFileName log of the user entries in the app's files directory.
+     * @param normalizer          rewrites a query in the spelling the dictionary text uses, before
+     *                            the headword normalization all compiled dictionaries share.
+     */
+    public DictionaryProvider(int languageCode, @NonNull String displayName, @NonNull String assetName,
+                              @NonNull String userEntriesFileName, @NonNull UnaryOperator<String> normalizer) {
+        if (languageCode >= 0) {
+            throw new IllegalArgumentException("Dictionary language codes are negative: " + languageCode);
+        }
+        this.languageCode = languageCode;
+        this.displayName = displayName;
+        this.assetName = assetName;
+        this.userEntriesFileName = userEntriesFileName;
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * Rewrites a query in the spelling of the dictionary text.
+     */
+    @NonNull
+    public String normalize(@NonNull String query) {
+        return normalizer.apply(query);
+    }
+
+    /**
+     * Starts loading the dictionary in the background. Subsequent calls are ignored once loading
+     * has started.
+     */
+    public void preload(@NonNull Context context) {
+        startedLoading(context);
+    }
+
+    /**
+     * Returns a future completed with the current dictionary snapshot, starting the load if
+     * needed. The future completes on a loader thread; callers on the main thread must not block
+     * on it.
+     */
+    @NonNull
+    public CompletableFuture<RukigaDictionary> whenReady(@NonNull Context context) {
+        lastUsedNanos = System.nanoTime();
+        CompletableFuture<RukigaDictionary> future = startedLoading(context);
+        if (!future.isDone()) {
+            DICTIONARY_WAITS.increment();
+            long start = System.nanoTime();
+            future.whenComplete((loaded, error) -> DICTIONARY_WAIT.recordSince(start));
+        }
+        // A snapshot swapped in since the load completed supersedes the one it completed with.
+        return future.thenApply(loaded -> {
+            RukigaDictionary snapshot = current.get();
+            return snapshot != null ? snapshot : loaded;
+        });
+    }
+
+    /**
+     * Returns the load in progress or completed, starting it if needed.
+     */
+    private CompletableFuture<RukigaDictionary> startedLoading(Context context) {
+        CompletableFuture<RukigaDictionary> future = loading;
+        if (future == null) {
+            synchronized (this) {
+                future = loading;
+                if (future == null) {
+                    future = startLoading(context.getApplicationContext());
+                    loading = future;
+                }
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Returns the current dictionary snapshot, or {@code null} while it is not loaded.
+     */
+    @Nullable
+    public RukigaDictionary current() {
+        return current.get();
+    }
+
+    /**
+     * Records an entry the user added or corrected and swaps in a snapshot that includes it. The
+     * entry is synced to the log before the future completes.
+     */
+    @NonNull
+    public CompletableFuture<RukigaDictionary> addUserEntry(@NonNull Context context, @NonNull UserEntry entry) {
+        OverlayLog log = overlayLog(context);
+        return whenReady(context).thenApplyAsync(ready -> {
+            try {
+                log.append(entry);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            RukigaDictionary updated = current.updateAndGet(
+                    dictionary -> dictionary == null ? null : dictionary.withOverlay(dictionary.overlay().with(entry)));
+            if (updated == null) {
+                // Unloaded meanwhile; the next load reads the entry back from the log.
+                return ready.withOverlay(ready.overlay().with(entry));
+            }
+            notifyUpdated();
+            return updated;
+        }, updateExecutor);
+    }
+
+    /**
+     * Loads a new version of the compiled dictionary from {@code file} in the background and
+     * swaps it in, keeping the user entries. Lookups keep using the previous snapshot meanwhile.
+     */
+    @NonNull
+    public CompletableFuture<RukigaDictionary> install(@NonNull Context context, @NonNull File file) {
+        Context application = context.getApplicationContext();
+        return build(() -> CompiledDictionary.map(file.toPath()), overlayLog(application)).thenApply(built -> {
+            installed = file;
+            RukigaDictionary installedDictionary = current.updateAndGet(
+                    previous -> previous == null ? built : built.withOverlay(previous.overlay()));
+            Log.i(TAG, "Installed " + displayName + " dictionary " + file + ": "
+                    + installedDictionary.loadStats().summary());
+            notifyUpdated();
+            return installedDictionary;
+        });
+    }
+
+    /**
+     * Whether lookups can run without waiting for the dictionary to load.
+     */
+    public boolean isReady() {
+        CompletableFuture<RukigaDictionary> future = loading;
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Nanoseconds since the dictionary was last asked for through {@link #whenReady}.
+     */
+    long idleNanos() {
+        return System.nanoTime() - lastUsedNanos;
+    }
+
+    /**
+     * Drops the loaded dictionary so that its indexes and mapping can be collected once the
+     * lookups still holding a snapshot finish; the next {@link #whenReady} loads it again. A load
+     * in progress is left to complete.
+     *
+     * @return whether a loaded dictionary was dropped.
+     */
+    boolean unload() {
+        synchronized (this) {
+            CompletableFuture<RukigaDictionary> future = loading;
+            if (future == null || !future.isDone()) {
+                return false;
+            }
+            loading = null;
+            current.set(null);
+        }
+        DICTIONARY_UNLOADS.increment();
+        Log.i(TAG, "Unloaded " + displayName + " dictionary");
+        return true;
+    }
+
+    /**
+     * Receives the loading progress of every dictionary on a loader thread, or {@code null} to
+     * stop receiving it.
+     */
+    public static void setProgressListener(@Nullable DictionaryLoader.ProgressListener listener) {
+        progressListener = listener;
+    }
+
+    /**
+     * Runs on a background thread each time a new snapshot replaces the current one of any
+     * dictionary, or {@code null} to stop running.
+     */
+    public static void setUpdateListener(@Nullable Runnable listener) {
+        updateListener = listener;
+    }
+
+    private CompletableFuture<RukigaDictionary> startLoading(Context context) {
+        File file = installed;
+        CompiledSource source = file != null ? () -> CompiledDictionary.map(file.toPath()) : () -> mapAsset(context);
+        CompletableFuture<RukigaDictionary> future = build(source, overlayLog(context))
+                .thenApply(loaded -> {
+                    // A version installed while the asset was loading takes precedence.
+                    current.compareAndSet(null, loaded);
+                    return loaded;
+                });
+        future.whenComplete((loaded, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Failed to load " + displayName + " dictionary", error);
+                // Allow a later call to retry.
+                synchronized (this) {
+                    if (loading == future) {
+                        loading = null;
+                    }
+                }
+            } else {
+                Log.i(TAG, "Loaded " + displayName + " dictionary: " + loaded.loadStats().summary());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Maps a compiled dictionary and builds its indexes on a pool bounded by the number of cores,
+     * reading the user entries meanwhile, and lays them over the result.
+     */
+    private static CompletableFuture<RukigaDictionary> build(CompiledSource source, OverlayLog log) {
+        long start = System.nanoTime();
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "dictionary-loader-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        CompletableFuture<UserOverlay> overlay = CompletableFuture.supplyAsync(() -> {
+            long readStart = System.nanoTime();
+            try {
+                return UserOverlay.of(log.read());
+            } catch (IOException e) {
+                Log.w(TAG, "Ignoring unreadable user entries", e);
+                return UserOverlay.EMPTY;
+            } finally {
+                Metrics.global().recordPhase("load.user_entries", System.nanoTime() - readStart);
+            }
+        }, executor);
+        CompletableFuture<RukigaDictionary> future = CompletableFuture
+                .supplyAsync(() -> {
+                    long mapStart = System.nanoTime();
+                    try {
+                        return source.open();
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        Metrics.global().recordPhase("load.map", System.nanoTime() - mapStart);
+                    }
+                }, executor)
+                .thenCompose(compiled -> DictionaryLoader.load(compiled, executor, threads,
+                        (completed, total) -> {
+                            DictionaryLoader.ProgressListener listener = progressListener;
+                            if (listener != null) {
+                                listener.onProgress(completed, total);
+                            }
+                        }))
+                .thenCombine(overlay, RukigaDictionary::withOverlay);
+        future.whenComplete((built, error) -> {
+            executor.shutdown();
+            Metrics.global().recordPhase("load.total", System.nanoTime() - start);
+        });
+        return future;
+    }
+
+    private static void notifyUpdated() {
+        Runnable listener = updateListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private OverlayLog overlayLog(Context context) {
+        OverlayLog log = overlayLog;
+        if (log == null) {
+            synchronized (this) {
+                log = overlayLog;
+                if (log == null) {
+                    log = new OverlayLog(new File(context.getFilesDir(), userEntriesFileName));
+                    overlayLog = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    private CompiledDictionary mapAsset(Context context) throws IOException {
+        // The mapping stays valid after the descriptor and channel are closed.
+        try (AssetFileDescriptor descriptor = context.getAssets().openFd(assetName);
+             FileInputStream inputStream = new FileInputStream(descriptor.getFileDescriptor());
+             FileChannel channel = inputStream.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+            return CompiledDictionary.open(buffer);
+        }
+    }
+
+    /**
+     * Opens the compiled dictionary to build from.
+     */
+    private interface CompiledSource {
+        CompiledDictionary open() throws IOException;
+    }
+}
@@ -0,0 +1,153 @@
+package com.trans.translator;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The local-language dictionaries the app can translate with, by language code.
+ *
+ * A dictionary loads the first time it is asked for, typically when its language is selected.
+ * Under memory pressure the dictionaries of the languages not selected are unloaded: those idle
+ * for {@link #IDLE_UNLOAD_MS} while memory runs low or the app goes to the background, and all of
+ * them once memory is critical.
+ */
+public final class DictionaryRegistry {
+
+    /** How long a dictionary must go unused before it is unloaded when memory runs low. */
+    static final long IDLE_UNLOAD_MS = 60_000;
+
+    private static final List<DictionaryProvider> providers = new CopyOnWriteArrayList<>();
+    // Language codes selected in the spinners, whose dictionaries are kept loaded.
+    private static volatile int[] selected = new int[0];
+
+    static {
+        register(Rukiga_Runyakore_Translator.PROVIDER);
+    }
+
+    private DictionaryRegistry() {
+        // Utility class.
+    }
+
+    /**
+     * Adds a dictionary, offered in the language spinners after the ones registered before it.
+     *
+     * @throws IllegalArgumentException if a dictionary of the same language is registered.
+     */
+    public static synchronized void register(@NonNull DictionaryProvider provider) {
+        if (get(provider.languageCode) != null) {
+            throw new IllegalArgumentException("Dictionary already registered for " + provider.languageCode);
+        }
+        providers.add(provider);
+    }
+
+    /**
+     * Whether {@code languageCode} is served by a dictionary rather than machine translation.
+     */
+    public static boolean isDictionaryLanguage(int languageCode) {
+        return languageCode < 0;
+    }
+
+    /**
+     * Returns the dictionary of {@code languageCode}, or {@code null} if there is none.
+     */
+    @Nullable
+    public static DictionaryProvider get(int languageCode) {
+        for (DictionaryProvider provider : providers) {
+            if (provider.languageCode == languageCode) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the dictionary of {@code languageCode}, which must have one.
+     *
+     * @throws IllegalArgumentException if no dictionary is registered for it.
+     */
+    @NonNull
+    public static DictionaryProvider require(int languageCode) {
+        DictionaryProvider provider = get(languageCode);
+        if (provider == null) {
+            throw new IllegalArgumentException("No dictionary registered for language " + languageCode);
+        }
+        return provider;
+    }
+
+    /**
+     * Returns the dictionary shown as {@code displayName} in the spinners, or {@code null}.
+     */
+    @Nullable
+    public static DictionaryProvider byName(@NonNull String displayName) {
+        for (DictionaryProvider provider : providers) {
+            if (provider.displayName.equals(displayName)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns every dictionary, in registration order.
+     */
+    @NonNull
+    public static List<DictionaryProvider> all() {
+        return new ArrayList<>(providers);
+    }
+
+    /**
+     * Keeps the dictionaries of the selected languages loaded under memory pressure, and starts
+     * loading them. Codes of machine-translated languages are ignored.
+     */
+    public static void select(@NonNull Context context, int... languageCodes) {
+        selected = languageCodes.clone();
+        for (int languageCode : languageCodes) {
+            DictionaryProvider provider = get(languageCode);
+            if (provider != null) {
+                provider.preload(context);
+            }
+        }
+    }
+
+    /**
+     * Unloads dictionaries according to a level passed to
+     * {@link ComponentCallbacks2#onTrimMemory}.
+     */
+    public static void trimMemory(int level) {
+        long idleNanos;
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            idleNanos = 0;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            idleNanos = TimeUnit.MILLISECONDS.toNanos(IDLE_UNLOAD_MS);
+        } else {
+            return;
+        }
+        // At TRIM_MEMORY_COMPLETE the process is next to be killed, so even the selected
+        // dictionaries go; they load again when used.
+        boolean keepSelected = level < ComponentCallbacks2.TRIM_MEMORY_COMPLETE;
+        for (DictionaryProvider provider : providers) {
+            if ((keepSelected && isSelected(provider.languageCode)) || provider.idleNanos() < idleNanos) {
+                continue;
+            }
+            provider.unload();
+        }
+    }
+
+    private static boolean isSelected(int languageCode) {
+        for (int code : selected) {
+            if (code == languageCode) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
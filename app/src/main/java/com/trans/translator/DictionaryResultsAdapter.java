@@ -0,0 +1,88 @@
+package com.trans.translator;
+
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.style.BackgroundColorSpan;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.trans.translator.dictionary.DictionaryMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows dictionary results one row per entry. Rows are styled ahead of time by
+ * {@link #render(DictionaryMatch)}, which callers run off the main thread, so binding a row only
+ * sets its text.
+ */
+final class DictionaryResultsAdapter extends RecyclerView.Adapter<DictionaryResultsAdapter.RowHolder> {
+
+    private final List<CharSequence> rows = new ArrayList<>();
+
+    /**
+     * Styles a result: the headword in bold, then the definition with the query matches found by
+     * the dictionary highlighted.
+     */
+    @NonNull
+    static CharSequence render(@NonNull DictionaryMatch match) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        builder.append(match.displayHeadword);
+        builder.setSpan(new StyleSpan(Typeface.BOLD), 0, builder.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        builder.append(" — ");
+
+        int defStart = builder.length();
+        builder.append(match.definition);
+        for (int i = 0; i < match.highlightCount(); i++) {
+            builder.setSpan(new BackgroundColorSpan(Color.YELLOW), defStart + match.highlightStart(i),
+                    defStart + match.highlightEnd(i), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        return builder;
+    }
+
+    void clear() {
+        int count = rows.size();
+        rows.clear();
+        notifyItemRangeRemoved(0, count);
+    }
+
+    void append(@NonNull List<CharSequence> page) {
+        int start = rows.size();
+        rows.addAll(page);
+        notifyItemRangeInserted(start, page.size());
+    }
+
+    @NonNull
+    @Override
+    public RowHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        TextView view = (TextView) LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_dictionary_result, parent, false);
+        return new RowHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull RowHolder holder, int position) {
+        holder.text.setText(rows.get(position));
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    static final class RowHolder extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        RowHolder(@NonNull TextView text) {
+            super(text);
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.trans.translator;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.ml.common.modeldownload.FirebaseModelDownloadConditions;
+import com.google.firebase.ml.common.modeldownload.FirebaseModelManager;
+import com.google.firebase.ml.naturallanguage.FirebaseNaturalLanguage;
+import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslateLanguage;
+import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslateRemoteModel;
+import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslator;
+import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslatorOptions;
+import com.trans.translator.dictionary.LatencyHistogram;
+import com.trans.translator.dictionary.Metrics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TranslatorManager} backed by on-device Firebase ML Kit translators.
+ *
+ * One {@link FirebaseTranslator} is cached per language pair, most recently used last. A
+ * translator is closed once it has been idle for {@link #IDLE_TIMEOUT_MS}, or when more than
+ * {@link #MAX_TRANSLATORS} pairs are cached; a translator with a translation in flight is only
+ * closed when that translation completes.
+ */
+public final class FirebaseTranslatorManager implements TranslatorManager {
+
+    /** How long a translator may stay unused before it is closed. */
+    static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /** Translators kept open at most; each holds its models in native memory. */
+    static final int MAX_TRANSLATORS = 3;
+
+    // Time spent translating once the models are there, and waiting for them before that.
+    private static final LatencyHistogram ML_TRANSLATE = Metrics.global().histogram("ml.translate");
+    private static final LatencyHistogram ML_MODEL_WAIT = Metrics.global().histogram("ml.model_wait");
+
+    private final FirebaseModelDownloadConditions downloadConditions =
+            new FirebaseModelDownloadConditions.Builder().build();
+    private final FirebaseModelDownloadConditions prefetchConditions =
+            new FirebaseModelDownloadConditions.Builder()
+                    .requireWifi()
+                    .requireCharging()
+                    .build();
+
+    private final ModelDownloads prefetched = new ModelDownloads(language -> toFuture(
+            FirebaseModelManager.getInstance().download(
+                    new FirebaseTranslateRemoteModel.Builder(language).build(), prefetchConditions)));
+
+    // Access-ordered, so iteration starts at the least recently used pair. Guarded by this.
+    private final Map<Long, Slot> slots = new LinkedHashMap<>(8, 0.75f, true);
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "translator-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingSweep;
+
+    @NonNull
+    @Override
+    public CompletableFuture<String> translate(int sourceLanguage, int targetLanguage, @NonNull String text) {
+        Slot slot;
+        CompletableFuture<Void> ready;
+        synchronized (this) {
+            slot = acquire(sourceLanguage, targetLanguage);
+            slot.inFlight++;
+            if (slot.ready == null || slot.ready.isCompletedExceptionally()) {
+                // A failed download is retried by the next translation.
+                slot.ready = isPrefetched(sourceLanguage, targetLanguage)
+                        ? CompletableFuture.completedFuture(null)
+                        : toFuture(slot.translator.downloadModelIfNeeded(downloadConditions));
+            }
+            ready = slot.ready;
+        }
+        long start = System.nanoTime();
+        boolean waiting = !ready.isDone();
+        return ready
+                .thenCompose(ignored -> {
+                    long translateStart = System.nanoTime();
+                    if (waiting) {
+                        ML_MODEL_WAIT.record(translateStart - start);
+                    }
+                    return toFuture(slot.translator.translate(text))
+                            .whenComplete((translated, error) -> ML_TRANSLATE.recordSince(translateStart));
+                })
+                .whenComplete((translated, error) -> release(slot));
+    }
+
+    @Override
+    public synchronized boolean isReady(int sourceLanguage, int targetLanguage) {
+        Slot slot = slots.get(pairKey(sourceLanguage, targetLanguage));
+        return (slot != null && slot.ready != null && slot.ready.isDone()
+                && !slot.ready.isCompletedExceptionally())
+                || isPrefetched(sourceLanguage, targetLanguage);
+    }
+
+    private boolean isPrefetched(int sourceLanguage, int targetLanguage) {
+        return (sourceLanguage == FirebaseTranslateLanguage.EN || prefetched.isDownloaded(sourceLanguage))
+                && (targetLanguage == FirebaseTranslateLanguage.EN || prefetched.isDownloaded(targetLanguage));
+    }
+
+    /**
+     * The on-device models are identified by their languages; new versions only come with a new
+     * ML Kit library, i.e. a new install.
+     */
+    @NonNull
+    @Override
+    public String modelId(int sourceLanguage, int targetLanguage) {
+        return "firebase:" + sourceLanguage + ">" + targetLanguage;
+    }
+
+    /**
+     * Downloads the models through the model manager rather than a translator, so prefetching
+     * neither takes a translator slot from the pairs in use nor depends on one staying open.
+     */
+    @Override
+    public void prefetch(int sourceLanguage, int targetLanguage) {
+        for (int language : new int[]{sourceLanguage, targetLanguage}) {
+            if (language != FirebaseTranslateLanguage.EN) {
+                prefetched.fetch(language);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Slot slot : slots.values()) {
+            evict(slot);
+        }
+        slots.clear();
+        if (pendingSweep != null) {
+            pendingSweep.cancel(false);
+            pendingSweep = null;
+        }
+    }
+
+    private Slot acquire(int sourceLanguage, int targetLanguage) {
+        long key = pairKey(sourceLanguage, targetLanguage);
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            FirebaseTranslatorOptions options = new FirebaseTranslatorOptions.Builder()
+                    .setSourceLanguage(sourceLanguage)
+                    .setTargetLanguage(targetLanguage)
+                    .build();
+            slot = new Slot(FirebaseNaturalLanguage.getInstance().getTranslator(options));
+            slots.put(key, slot);
+            Iterator<Slot> eldest = slots.values().iterator();
+            while (slots.size() > MAX_TRANSLATORS) {
+                evict(eldest.next());
+                eldest.remove();
+            }
+        }
+        slot.lastUsed = SystemClock.elapsedRealtime();
+        scheduleSweep();
+        return slot;
+    }
+
+    private synchronized void release(Slot slot) {
+        slot.inFlight--;
+        slot.lastUsed = SystemClock.elapsedRealtime();
+        if (slot.evicted && slot.inFlight == 0) {
+            closeTranslator(slot);
+        }
+    }
+
+    private synchronized void sweep() {
+        pendingSweep = null;
+        long now = SystemClock.elapsedRealtime();
+        for (Iterator<Slot> it = slots.values().iterator(); it.hasNext(); ) {
+            Slot slot = it.next();
+            if (slot.inFlight == 0 && now - slot.lastUsed >= IDLE_TIMEOUT_MS) {
+                evict(slot);
+                it.remove();
+            }
+        }
+        scheduleSweep();
+    }
+
+    private void scheduleSweep() {
+        if (pendingSweep == null && !slots.isEmpty()) {
+            pendingSweep = sweeper.schedule(this::sweep, IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes the translator of a slot that is being dropped from the cache, or marks it to be
+     * closed by {@link #release} while a translation is still using it.
+     */
+    private void evict(Slot slot) {
+        slot.evicted = true;
+        if (slot.inFlight == 0) {
+            closeTranslator(slot);
+        }
+    }
+
+    private static void closeTranslator(Slot slot) {
+        if (!slot.closed) {
+            slot.closed = true;
+            slot.translator.close();
+        }
+    }
+
+    private static long pairKey(int sourceLanguage, int targetLanguage) {
+        return ((long) sourceLanguage << 32) | (targetLanguage & 0xffffffffL);
+    }
+
+    private static <T> CompletableFuture<T> toFuture(Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        task.addOnSuccessListener(future::complete).addOnFailureListener(future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * A cached translator and its state, guarded by the manager.
+     */
+    private static final class Slot {
+        final FirebaseTranslator translator;
+        CompletableFuture<Void> ready;
+        int inFlight;
+        long lastUsed;
+        boolean evicted;
+        boolean closed;
+
+        Slot(FirebaseTranslator translator) {
+            this.translator = translator;
+        }
+    }
+}
@@ -2,73 +2,233 @@ package com.trans.translator;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
+import android.Manifest;
 import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Typeface;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.speech.RecognitionListener;
 import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.ImageView;
+import android.widget.ScrollView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.google.android.gms.tasks.OnFailureListener;
-import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
-import com.google.firebase.ml.common.modeldownload.FirebaseModelDownloadConditions;
-import com.google.firebase.ml.naturallanguage.FirebaseNaturalLanguage;
 import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslateLanguage;
-import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslator;
-import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslatorOptions;
+import com.trans.translator.dictionary.DictionaryMatch;
+import com.trans.translator.dictionary.IncrementalLookup;
+import com.trans.translator.dictionary.LatencyHistogram;
+import com.trans.translator.dictionary.LiveSearch;
+import com.trans.translator.dictionary.Metrics;
+import com.trans.translator.dictionary.RukigaDictionary;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import android.text.Spannable;
-import android.text.SpannableStringBuilder;
-import android.text.style.BackgroundColorSpan;
-import android.text.style.StyleSpan;
-import android.graphics.Color;
-import android.graphics.Typeface;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final String TAG = "MainActivity";
+
     private Spinner fromSpinner, toSpinner;
     private TextInputEditText sourceEdt;
     private ImageView micIV;
     private MaterialButton translateBtn;
     private TextView translatedTV;
+    private ScrollView translatedSV;
+    private RecyclerView resultsRV;
+    private DictionaryResultsAdapter resultsAdapter;
+
+    private boolean awaitingDictionary;
+
+    // Search as you type: lookups run on searchExecutor once typing pauses for
+    // SEARCH_DEBOUNCE_MS, and every keystroke bumps searchGeneration, which cancels the lookup
+    // in flight and discards its results. liveSearch is only touched on searchExecutor.
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    private ExecutorService searchExecutor;
+    private LiveSearch liveSearch;
+
+    /**
+     * Loads a page of dictionary results on the search thread.
+     */
+    private interface PageLoader {
+        List<DictionaryMatch> load(int offset, int limit, BooleanSupplier cancelled);
+    }
 
-    private static final int LANGUAGE_CODE_RUKIGA = -1;
+    // Results list paging, set on the main thread. Pages are fetched and styled on searchExecutor
+    // and the next one is requested when the list scrolls within PAGE_PREFETCH_ROWS of its end;
+    // a page is dropped if pageLoader was replaced while it loaded.
+    private static final int PAGE_SIZE = 20;
+    private static final int PAGE_PREFETCH_ROWS = 5;
+    private volatile PageLoader pageLoader;
+    private boolean pageLoading;
+    private boolean pagesExhausted;
 
-    String[] fromLanguages = {"From", "English", "French", "Arabic", "Swahili", "Korean", "Runyakole/Rukiga"};
-    String[] toLanguages = {"To", "English", "French", "Arabic", "Swahili", "Korean", "Runyakole/Rukiga"};
+    // Speech input: the recognizer streams its partial results into speechLookup, which looks
+    // each one up as it arrives and drops the stale ones, so the answer is shown about when the
+    // speaker stops. Pivot translations only look up the final result. All of it is only touched
+    // on the main thread; showingSpokenText keeps the spoken text from starting a live search too.
+    private SpeechRecognizer speechRecognizer;
+    private IncrementalLookup<?> speechLookup;
+    private boolean speechStreamsPartials;
+    private boolean listening;
+    private boolean showingSpokenText;
+    private long endOfSpeechNanos;
+
+    // Shared by every activity instance so that prepared translators survive configuration changes.
+    private static TranslatorManager translatorManager;
+    private static TranslationCache translationCache;
+    // Chains the machine translators with the dictionary through English; its dictionary stage
+    // runs on searchExecutor.
+    private PivotTranslator pivotTranslator;
+
+    // Time from asking for a machine or pivot translation to showing it, cached or not.
+    private static final LatencyHistogram TRANSLATE_TEXT = Metrics.global().histogram("ui.translate_text");
+    private static final LatencyHistogram TRANSLATE_PIVOT = Metrics.global().histogram("ui.translate_pivot");
+    // Time from the end of speech to showing the answer to the final result.
+    private static final LatencyHistogram SPEECH_RESULT = Metrics.global().histogram("ui.speech_result");
+    private static final String METRICS_FILE_NAME = "metrics.json";
+    // Logcat truncates longer lines.
+    private static final int LOG_CHUNK_LENGTH = 3000;
+
+    private static final int CACHE_MEMORY_ENTRIES = 200;
+    private static final long CACHE_DISK_BYTES = 2L * 1024 * 1024;
+    // Separators of the cached English to Rukiga results; none occurs in dictionary text.
+    private static final char ENTRY_SEPARATOR = '\u001e';
+    private static final char FIELD_SEPARATOR = '\u001f';
+    private static final char OFFSET_SEPARATOR = ',';
+
+    // The dictionary languages registered with DictionaryRegistry follow these in the spinners.
+    private static final String[] MACHINE_LANGUAGES = {"English", "French", "Arabic", "Swahili", "Korean"};
+    String[] fromLanguages = languages("From");
+    String[] toLanguages = languages("To");
 
     private static final int REQUEST_PERMISSION_CODE = 1;
     int languageCode, fromLanguageCode, toLanguageCode = 0;
 
+    /**
+     * Replaces the machine translator shared by the activities created from now on, closing the
+     * one it replaces. Tests substitute an in-memory manager here; by default the first activity
+     * creates a {@link FirebaseTranslatorManager}. Call on the main thread.
+     */
+    public static void setTranslatorManager(@NonNull TranslatorManager manager) {
+        if (translatorManager != null && translatorManager != manager) {
+            translatorManager.close();
+        }
+        translatorManager = manager;
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        Rukiga_Runyakore_Translator.preload(getApplicationContext());
+        // Dictionaries load once their language is selected, in prefetchSelectedPair.
+        DictionaryProvider.setProgressListener((completed, total) -> runOnUiThread(() -> {
+            if (awaitingDictionary) {
+                showText("Loading dictionary (" + completed + "/" + total + ")...");
+            }
+        }));
+        if (translatorManager == null) {
+            translatorManager = new FirebaseTranslatorManager();
+        }
+        if (translationCache == null) {
+            translationCache = new TranslationCache(new File(getCacheDir(), "translations"),
+                    installStamp(), CACHE_MEMORY_ENTRIES, CACHE_DISK_BYTES);
+            TranslationCache cache = translationCache;
+            Metrics.global().gauge("cache.memory_hits", cache::memoryHitCount);
+            Metrics.global().gauge("cache.disk_hits", cache::diskHitCount);
+            Metrics.global().gauge("cache.misses", cache::missCount);
+            Metrics.global().gauge("cache.evictions", cache::evictionCount);
+        }
         fromSpinner = findViewById(R.id.idFromSpinner);
         toSpinner = findViewById(R.id.idToSpinner);
         sourceEdt = findViewById(R.id.idEdtSource);
         micIV = findViewById(R.id.idIVMic);
         translateBtn = findViewById(R.id.idBtnTranslate);
         translatedTV = findViewById(R.id.idTVTranslatedTV);
+        translatedSV = findViewById(R.id.idSVTranslated);
+        resultsRV = findViewById(R.id.idRVResults);
+        LinearLayoutManager resultsLayout = new LinearLayoutManager(this);
+        resultsAdapter = new DictionaryResultsAdapter();
+        resultsRV.setLayoutManager(resultsLayout);
+        resultsRV.setAdapter(resultsAdapter);
+        resultsRV.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (resultsLayout.findLastVisibleItemPosition() >= resultsAdapter.getItemCount() - PAGE_PREFETCH_ROWS) {
+                    loadNextPage();
+                }
+            }
+        });
+        searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Hidden debug screen.
+        findViewById(R.id.idTVTitle).setOnLongClickListener(view -> {
+            showMetrics();
+            return true;
+        });
+        pivotTranslator = new PivotTranslator(translatorManager, translationCache,
+                languageCode -> DictionaryRegistry.require(languageCode).whenReady(getApplicationContext()),
+                searchExecutor);
+        sourceEdt.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (!showingSpokenText) {
+                    scheduleLiveSearch();
+                }
+            }
+        });
 // From spinner
         fromSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> adapterView, View view, int position, long l) {
                 fromLanguageCode = getLanguageCode(fromLanguages[position]);
-
+                prefetchSelectedPair();
+                scheduleLiveSearch();
             }
 
             @Override
@@ -86,6 +246,8 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onItemSelected(AdapterView<?> adapterView, View view, int position, long l) {
                 toLanguageCode = getLanguageCode(toLanguages[position]);
+                prefetchSelectedPair();
+                scheduleLiveSearch();
             }
 
             @Override
@@ -102,7 +264,8 @@ public class MainActivity extends AppCompatActivity {
         translateBtn.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                translatedTV.setText(" ");
+                cancelLiveSearch();
+                showText(" ");
                 if (sourceEdt.getText().toString().isEmpty()) {
                     Toast.makeText(MainActivity.this, "Enter Text to translate", Toast.LENGTH_SHORT).show();
                 } else if (fromLanguageCode == 0) {
@@ -111,49 +274,30 @@ public class MainActivity extends AppCompatActivity {
                     Toast.makeText(MainActivity.this, "Please select language to translate to", Toast.LENGTH_SHORT).show();
                 }
                 else {
-                    if (fromLanguageCode == FirebaseTranslateLanguage.EN && toLanguageCode == LANGUAGE_CODE_RUKIGA) {
-                        List<Rukiga_Runyakore_Translator.DictionaryEntry> results = Rukiga_Runyakore_Translator.translateEnglishToRukiga(getApplicationContext(), sourceEdt.getText().toString());
-                        if (results.isEmpty()) {
-                            translatedTV.setText("Translation not found");
-                        } else {
-                            SpannableStringBuilder builder = new SpannableStringBuilder();
-                            String query = sourceEdt.getText().toString().trim().toLowerCase(Locale.ROOT);
-
-                            for (int i = 0; i < results.size(); i++) {
-                                Rukiga_Runyakore_Translator.DictionaryEntry entry = results.get(i);
-
-                                // Append Headword (Bold)
-                                int start = builder.length();
-                                builder.append(entry.displayHeadword);
-                                builder.setSpan(new StyleSpan(Typeface.BOLD), start, builder.length(), Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                                builder.append(" — ");
-
-                                // Append Definition with Highlighting
-                                String definition = entry.definition;
-                                int defStart = builder.length();
-                                builder.append(definition);
-
-                                // Highlight matches in definition
-                                String lowerDef = definition.toLowerCase(Locale.ROOT);
-                                int searchIndex = lowerDef.indexOf(query);
-                                while (searchIndex != -1) {
-                                    int matchStart = defStart + searchIndex;
-                                    int matchEnd = matchStart + query.length();
-                                    builder.setSpan(new BackgroundColorSpan(Color.YELLOW), matchStart, matchEnd, Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
-                                    searchIndex = lowerDef.indexOf(query, searchIndex + 1);
-                                }
-
-                                if (i < results.size() - 1) {
-                                    builder.append("\n\n");
-                                }
-                            }
-                            translatedTV.setText(builder);
-                        }
-                    } else if (fromLanguageCode == LANGUAGE_CODE_RUKIGA && toLanguageCode == FirebaseTranslateLanguage.EN) {
-                        String result = Rukiga_Runyakore_Translator.translateRukigaToEnglish(getApplicationContext(), sourceEdt.getText().toString());
-                        translatedTV.setText(result);
-                    } else if (fromLanguageCode == LANGUAGE_CODE_RUKIGA || toLanguageCode == LANGUAGE_CODE_RUKIGA) {
-                        Toast.makeText(MainActivity.this, "Only English ↔ Runyakole/Rukiga translations are currently supported.", Toast.LENGTH_LONG).show();
+                    boolean fromDictionary = DictionaryRegistry.isDictionaryLanguage(fromLanguageCode);
+                    boolean toDictionary = DictionaryRegistry.isDictionaryLanguage(toLanguageCode);
+                    if (fromLanguageCode == FirebaseTranslateLanguage.EN && toDictionary) {
+                        DictionaryProvider provider = DictionaryRegistry.require(toLanguageCode);
+                        String query = sourceEdt.getText().toString();
+                        translateCached(fromLanguageCode, toLanguageCode, query.toLowerCase(Locale.ROOT),
+                                cached -> showPagedResults(englishPages(provider, query, decodeMatches(cached), null)),
+                                store -> runWhenDictionaryReady(provider, dictionary ->
+                                        showPagedResults(englishPages(provider, query, null,
+                                                firstPage -> store.accept(encodeMatches(firstPage))))));
+                    } else if (fromDictionary && toLanguageCode == FirebaseTranslateLanguage.EN) {
+                        DictionaryProvider provider = DictionaryRegistry.require(fromLanguageCode);
+                        String query = provider.normalize(sourceEdt.getText().toString());
+                        translateCached(fromLanguageCode, toLanguageCode, query.toLowerCase(Locale.ROOT),
+                                this::showText,
+                                store -> runWhenDictionaryReady(provider, dictionary -> {
+                                    String result = dictionary.translateRukigaToEnglish(query);
+                                    store.accept(result);
+                                    showText(result);
+                                }));
+                    } else if (fromDictionary && fromLanguageCode == toLanguageCode) {
+                        showText(sourceEdt.getText().toString());
+                    } else if (fromDictionary || toDictionary) {
+                        translatePivot(fromLanguageCode, toLanguageCode, sourceEdt.getText().toString());
                     } else {
                         translateText(fromLanguageCode, toLanguageCode, sourceEdt.getText().toString());
                     }
@@ -165,19 +309,540 @@ public class MainActivity extends AppCompatActivity {
         micIV.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                Intent i = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-                i.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
-                i.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, Locale.getDefault());
-                i.putExtra(RecognizerIntent.EXTRA_PROMPT, "Speak to convert into text");
-                try {
-                    startActivityForResult(i, REQUEST_PERMISSION_CODE);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    Toast.makeText(MainActivity.this, e.getMessage(), Toast.LENGTH_SHORT).show();
+                toggleListening();
+            }
+        });
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_PERMISSION_CODE) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                startListening();
+            } else {
+                // The recognizer activity records on its own behalf.
+                recognizeWithActivity();
+            }
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        DictionaryRegistry.trimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW && !searchExecutor.isShutdown()) {
+            // Its snapshot may be one just unloaded; the next search starts a fresh one.
+            searchExecutor.execute(() -> liveSearch = null);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        DictionaryProvider.setProgressListener(null);
+        cancelLiveSearch();
+        if (speechRecognizer != null) {
+            speechRecognizer.destroy();
+        }
+        searchExecutor.shutdownNow();
+        super.onDestroy();
+    }
+
+    /**
+     * Restarts the debounce countdown of the live dictionary search after an edit, for the
+     * pairs of English and a dictionary language, which the dictionary serves.
+     */
+    private void scheduleLiveSearch() {
+        cancelLiveSearch();
+        boolean englishToDictionary = fromLanguageCode == FirebaseTranslateLanguage.EN
+                && DictionaryRegistry.isDictionaryLanguage(toLanguageCode);
+        boolean dictionaryToEnglish = DictionaryRegistry.isDictionaryLanguage(fromLanguageCode)
+                && toLanguageCode == FirebaseTranslateLanguage.EN;
+        if ((!englishToDictionary && !dictionaryToEnglish) || sourceEdt == null) {
+            return;
+        }
+        DictionaryProvider provider = DictionaryRegistry.require(englishToDictionary ? toLanguageCode : fromLanguageCode);
+        String text = sourceEdt.getText() != null ? sourceEdt.getText().toString() : "";
+        if (text.trim().isEmpty()) {
+            showText("");
+            return;
+        }
+        String query = englishToDictionary ? text : provider.normalize(text);
+        int generation = searchGeneration.get();
+        searchHandler.postDelayed(() -> runLiveSearch(provider, query, englishToDictionary, generation),
+                SEARCH_DEBOUNCE_MS);
+    }
+
+    /**
+     * Drops the pending live search and cancels the one in flight, as well as the lookups of the
+     * speech being recognized; the rest of it only fills in the source text.
+     */
+    private void cancelLiveSearch() {
+        searchGeneration.incrementAndGet();
+        searchHandler.removeCallbacksAndMessages(null);
+        if (speechLookup != null) {
+            speechLookup.cancel();
+            speechLookup = null;
+        }
+    }
+
+    private void runLiveSearch(DictionaryProvider provider, String query, boolean englishToDictionary, int generation) {
+        // Waiting for the dictionary here would hold up the single search thread.
+        provider.whenReady(getApplicationContext()).thenRun(() -> runOnUiThread(() -> {
+            if (searchGeneration.get() != generation) {
+                return;
+            }
+            showPagedResults(livePages(provider, query, englishToDictionary, null));
+        }));
+    }
+
+    /**
+     * Pages of the live search results for the query, the first one being {@code firstPage} when
+     * it was already looked up. Runs on the search thread, which owns {@link #liveSearch}.
+     */
+    private PageLoader livePages(DictionaryProvider provider, String query, boolean englishToDictionary,
+                                 @Nullable List<DictionaryMatch> firstPage) {
+        return (offset, limit, cancelled) -> {
+            if (offset == 0 && firstPage != null) {
+                return firstPage;
+            }
+            RukigaDictionary dictionary = provider.whenReady(getApplicationContext()).join();
+            if (liveSearch == null || liveSearch.dictionary() != dictionary) {
+                liveSearch = new LiveSearch(dictionary);
+            }
+            return englishToDictionary
+                    ? liveSearch.englishToRukiga(query, offset, limit, cancelled)
+                    : liveSearch.rukigaToEnglish(query, offset, limit, cancelled);
+        };
+    }
+
+    /**
+     * Starts or stops listening with the in-activity recognizer, asking for the microphone first.
+     * Without a recognizer service the recognizer activity is used instead.
+     */
+    private void toggleListening() {
+        if (listening) {
+            speechRecognizer.stopListening();
+            return;
+        }
+        if (!SpeechRecognizer.isRecognitionAvailable(this)) {
+            recognizeWithActivity();
+        } else if (checkSelfPermission(Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.RECORD_AUDIO}, REQUEST_PERMISSION_CODE);
+        } else {
+            startListening();
+        }
+    }
+
+    private void startListening() {
+        if (speechRecognizer == null) {
+            speechRecognizer = SpeechRecognizer.createSpeechRecognizer(this);
+            speechRecognizer.setRecognitionListener(new SpeechListener());
+        }
+        cancelLiveSearch();
+        speechLookup = createSpeechLookup();
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, speechLanguageTag());
+        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
+        intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE, getPackageName());
+        listening = true;
+        endOfSpeechNanos = 0;
+        showText("Listening...");
+        speechRecognizer.startListening(intent);
+    }
+
+    /**
+     * Falls back to the recognizer activity, which answers in {@link #onActivityResult} with the
+     * final result only.
+     */
+    private void recognizeWithActivity() {
+        Intent i = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        i.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL, RecognizerIntent.LANGUAGE_MODEL_FREE_FORM);
+        i.putExtra(RecognizerIntent.EXTRA_LANGUAGE, speechLanguageTag());
+        i.putExtra(RecognizerIntent.EXTRA_PROMPT, "Speak to convert into text");
+        try {
+            startActivityForResult(i, REQUEST_PERMISSION_CODE);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Toast.makeText(MainActivity.this, e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * The language the recognizer listens for: the source language when it is machine translated,
+     * and otherwise the device's, as recognizers do not know the dictionary languages.
+     */
+    private String speechLanguageTag() {
+        if (fromLanguageCode != 0 && !DictionaryRegistry.isDictionaryLanguage(fromLanguageCode)) {
+            return FirebaseTranslateLanguage.languageCodeForLanguage(fromLanguageCode);
+        }
+        return Locale.getDefault().toLanguageTag();
+    }
+
+    /**
+     * Returns what the speech of the selected pair is looked up with, or {@code null} when the
+     * speech only fills in the source text.
+     */
+    @Nullable
+    private IncrementalLookup<?> createSpeechLookup() {
+        int from = fromLanguageCode;
+        int to = toLanguageCode;
+        if (from == 0 || to == 0 || from == to) {
+            return null;
+        }
+        boolean englishToDictionary = from == FirebaseTranslateLanguage.EN && DictionaryRegistry.isDictionaryLanguage(to);
+        boolean dictionaryToEnglish = DictionaryRegistry.isDictionaryLanguage(from) && to == FirebaseTranslateLanguage.EN;
+        if (englishToDictionary || dictionaryToEnglish) {
+            DictionaryProvider provider = DictionaryRegistry.require(englishToDictionary ? to : from);
+            speechStreamsPartials = true;
+            return new IncrementalLookup<List<DictionaryMatch>>(
+                    (query, cancelled) -> provider.whenReady(getApplicationContext()).thenApplyAsync(
+                            dictionary -> livePages(provider, speechQuery(provider, query, englishToDictionary),
+                                    englishToDictionary, null).load(0, PAGE_SIZE, cancelled),
+                            searchExecutor),
+                    new IncrementalLookup.Listener<List<DictionaryMatch>>() {
+                        @Override
+                        public void onResult(@NonNull String query, List<DictionaryMatch> firstPage, boolean isFinal) {
+                            showPagedResults(livePages(provider, speechQuery(provider, query, englishToDictionary),
+                                    englishToDictionary, firstPage));
+                            if (isFinal) {
+                                recordSpeechResult();
+                            }
+                        }
+
+                        @Override
+                        public void onError(@NonNull String query, @NonNull Throwable error) {
+                            showText("Dictionary not available");
+                        }
+                    },
+                    this::runOnUiThread);
+        }
+        boolean throughEnglish = DictionaryRegistry.isDictionaryLanguage(from) || DictionaryRegistry.isDictionaryLanguage(to);
+        // Machine translating every partial result is only worth it once the model is there.
+        speechStreamsPartials = !throughEnglish && translatorManager.isReady(from, to);
+        return new IncrementalLookup<String>(
+                (query, cancelled) -> throughEnglish ? pivot(from, to, query) : translatorManager.translate(from, to, query),
+                new IncrementalLookup.Listener<String>() {
+                    @Override
+                    public void onResult(@NonNull String query, String translated, boolean isFinal) {
+                        showText(translated);
+                        if (isFinal) {
+                            recordSpeechResult();
+                            translationStamp(from, to).thenAccept(
+                                    stamp -> translationCache.put(stamp, from, to, query, translated));
+                        }
+                    }
+
+                    @Override
+                    public void onError(@NonNull String query, @NonNull Throwable error) {
+                        Toast.makeText(MainActivity.this, "Failed to Translate" + error.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                },
+                this::runOnUiThread);
+    }
+
+    private static String speechQuery(DictionaryProvider provider, String spoken, boolean englishToDictionary) {
+        return englishToDictionary ? spoken : provider.normalize(spoken);
+    }
+
+    private void recordSpeechResult() {
+        if (endOfSpeechNanos != 0) {
+            SPEECH_RESULT.recordSince(endOfSpeechNanos);
+            endOfSpeechNanos = 0;
+        }
+    }
+
+    /**
+     * Copies what was heard into the source text without starting a live search.
+     */
+    private void showSpokenText(String text) {
+        showingSpokenText = true;
+        sourceEdt.setText(text);
+        sourceEdt.setSelection(text.length());
+        showingSpokenText = false;
+    }
+
+    @Nullable
+    private static String firstResult(@Nullable Bundle results) {
+        List<String> texts = results != null ? results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION) : null;
+        return texts == null || texts.isEmpty() ? null : texts.get(0);
+    }
+
+    /**
+     * Feeds what the recognizer hears to the speech lookup, on the main thread.
+     */
+    private final class SpeechListener implements RecognitionListener {
+        @Override
+        public void onReadyForSpeech(Bundle params) {
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+        }
+
+        @Override
+        public void onRmsChanged(float rmsdB) {
+        }
+
+        @Override
+        public void onBufferReceived(byte[] buffer) {
+        }
+
+        @Override
+        public void onEndOfSpeech() {
+            endOfSpeechNanos = System.nanoTime();
+        }
+
+        @Override
+        public void onError(int error) {
+            listening = false;
+            if (speechLookup != null) {
+                speechLookup.cancel();
+            }
+            boolean nothingHeard = error == SpeechRecognizer.ERROR_NO_MATCH || error == SpeechRecognizer.ERROR_SPEECH_TIMEOUT;
+            Toast.makeText(MainActivity.this, nothingHeard ? "Nothing heard, try again"
+                    : "Speech recognition failed (" + error + ")", Toast.LENGTH_SHORT).show();
+        }
+
+        @Override
+        public void onPartialResults(Bundle partialResults) {
+            String text = firstResult(partialResults);
+            if (text == null || text.trim().isEmpty()) {
+                return;
+            }
+            showSpokenText(text);
+            if (speechLookup != null && speechStreamsPartials) {
+                speechLookup.onPartial(text);
+            }
+        }
+
+        @Override
+        public void onResults(Bundle results) {
+            listening = false;
+            String text = firstResult(results);
+            if (text == null) {
+                return;
+            }
+            showSpokenText(text);
+            if (speechLookup != null) {
+                speechLookup.onFinal(text);
+            }
+        }
+
+        @Override
+        public void onEvent(int eventType, Bundle params) {
+        }
+    }
+
+    /**
+     * Pages of the ranked English to dictionary language results for the query. The first page
+     * is {@code firstPage} when it came from the cache, and is otherwise passed to
+     * {@code onFirstPage} once looked up.
+     */
+    private PageLoader englishPages(DictionaryProvider provider, String query,
+                                    @Nullable List<DictionaryMatch> firstPage,
+                                    @Nullable Consumer<List<DictionaryMatch>> onFirstPage) {
+        return (offset, limit, cancelled) -> {
+            if (offset == 0 && firstPage != null) {
+                return firstPage;
+            }
+            RukigaDictionary dictionary = provider.whenReady(getApplicationContext()).join();
+            List<DictionaryMatch> page = dictionary.searchEnglish(query, offset, limit);
+            if (offset == 0 && onFirstPage != null) {
+                onFirstPage.accept(page);
+            }
+            return page;
+        };
+    }
+
+    /**
+     * Replaces what is shown with a list of dictionary results fetched page by page.
+     */
+    private void showPagedResults(PageLoader loader) {
+        pageLoader = loader;
+        pageLoading = false;
+        pagesExhausted = false;
+        resultsAdapter.clear();
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        PageLoader loader = pageLoader;
+        if (loader == null || pageLoading || pagesExhausted) {
+            return;
+        }
+        pageLoading = true;
+        int offset = resultsAdapter.getItemCount();
+        int generation = searchGeneration.get();
+        BooleanSupplier cancelled = () -> searchGeneration.get() != generation || pageLoader != loader;
+        searchExecutor.execute(() -> {
+            List<CharSequence> rows = new ArrayList<>();
+            boolean failed = false;
+            boolean more = false;
+            try {
+                List<DictionaryMatch> page = loader.load(offset, PAGE_SIZE, cancelled);
+                for (DictionaryMatch match : page) {
+                    rows.add(DictionaryResultsAdapter.render(match));
                 }
+                more = page.size() == PAGE_SIZE;
+            } catch (CancellationException e) {
+                return;
+            } catch (CompletionException e) {
+                failed = true;
             }
+            boolean dictionaryFailed = failed;
+            boolean hasMore = more;
+            runOnUiThread(() -> {
+                if (cancelled.getAsBoolean()) {
+                    return;
+                }
+                pageLoading = false;
+                pagesExhausted = !hasMore;
+                if (dictionaryFailed) {
+                    showText("Dictionary not available");
+                } else if (offset == 0 && rows.isEmpty()) {
+                    showText("Translation not found");
+                } else {
+                    translatedSV.setVisibility(View.GONE);
+                    resultsRV.setVisibility(View.VISIBLE);
+                    resultsAdapter.append(rows);
+                }
+            });
         });
     }
+
+    /**
+     * Shows a plain message or translation in place of the results list.
+     */
+    private void showText(CharSequence text) {
+        pageLoader = null;
+        resultsRV.setVisibility(View.GONE);
+        translatedSV.setVisibility(View.VISIBLE);
+        translatedTV.setText(text);
+    }
+
+    /**
+     * Runs a dictionary lookup on the main thread once the dictionary has loaded, showing the
+     * loading progress meanwhile instead of blocking.
+     */
+    private void runWhenDictionaryReady(DictionaryProvider provider, Consumer<RukigaDictionary> lookup) {
+        if (!provider.isReady()) {
+            awaitingDictionary = true;
+            showText("Loading dictionary...");
+        }
+        provider.whenReady(getApplicationContext())
+                .whenComplete((dictionary, error) -> runOnUiThread(() -> {
+                    awaitingDictionary = false;
+                    if (error != null) {
+                        showText("Dictionary not available");
+                    } else {
+                        lookup.accept(dictionary);
+                    }
+                }));
+    }
+
+    /**
+     * Shows the cached result of a query if there is one. Otherwise runs {@code compute}, which
+     * shows the result itself and passes it to the given callback to be cached. The dictionaries
+     * of the languages are loaded first, since results are cached under their stamps.
+     */
+    private void translateCached(int fromLanguageCode, int toLanguageCode, String query,
+                                 Consumer<String> show, Consumer<Consumer<String>> compute) {
+        CompletableFuture<String> stamp = translationStamp(fromLanguageCode, toLanguageCode);
+        if (!stamp.isDone()) {
+            awaitingDictionary = true;
+            showText("Loading dictionary...");
+        }
+        stamp.whenComplete((loaded, loadError) -> runOnUiThread(() -> {
+            awaitingDictionary = false;
+            if (loadError != null) {
+                showText("Dictionary not available");
+                return;
+            }
+            translationCache.get(loaded, fromLanguageCode, toLanguageCode, query)
+                    .whenComplete((cached, error) -> runOnUiThread(() -> {
+                        if (cached != null) {
+                            show.accept(cached);
+                        } else {
+                            compute.accept(result -> translationCache.put(loaded, fromLanguageCode, toLanguageCode,
+                                    query, result));
+                        }
+                    }));
+        }));
+    }
+
+    /**
+     * Completes with the stamp the translations between two languages are cached under: the
+     * model of their machine-translated leg, if any, and the dictionary stamp of each dictionary
+     * language once it is loaded. A user entry thus only changes the stamp of the translations
+     * going through its dictionary.
+     */
+    private CompletableFuture<String> translationStamp(int fromLanguageCode, int toLanguageCode) {
+        int machineFrom = DictionaryRegistry.isDictionaryLanguage(fromLanguageCode) ? FirebaseTranslateLanguage.EN : fromLanguageCode;
+        int machineTo = DictionaryRegistry.isDictionaryLanguage(toLanguageCode) ? FirebaseTranslateLanguage.EN : toLanguageCode;
+        CompletableFuture<String> stamp = CompletableFuture.completedFuture(
+                machineFrom != machineTo ? translatorManager.modelId(machineFrom, machineTo) : "");
+        int[] languages = fromLanguageCode == toLanguageCode
+                ? new int[]{fromLanguageCode} : new int[]{fromLanguageCode, toLanguageCode};
+        for (int language : languages) {
+            if (DictionaryRegistry.isDictionaryLanguage(language)) {
+                stamp = stamp.thenCombine(DictionaryRegistry.require(language).whenReady(getApplicationContext()),
+                        (models, dictionary) -> models + "|" + TranslationCache.dictionaryStamp(dictionary));
+            }
+        }
+        return stamp;
+    }
+
+    private static String encodeMatches(List<DictionaryMatch> matches) {
+        StringBuilder encoded = new StringBuilder();
+        for (DictionaryMatch match : matches) {
+            if (encoded.length() > 0) {
+                encoded.append(ENTRY_SEPARATOR);
+            }
+            encoded.append(match.entryId).append(FIELD_SEPARATOR)
+                    .append(match.displayHeadword).append(FIELD_SEPARATOR)
+                    .append(match.definition).append(FIELD_SEPARATOR);
+            for (int i = 0; i < match.highlightCount(); i++) {
+                if (i > 0) {
+                    encoded.append(OFFSET_SEPARATOR);
+                }
+                encoded.append(match.highlightStart(i)).append(OFFSET_SEPARATOR).append(match.highlightEnd(i));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static List<DictionaryMatch> decodeMatches(String encoded) {
+        List<DictionaryMatch> matches = new ArrayList<>();
+        if (encoded.isEmpty()) {
+            return matches;
+        }
+        for (String record : encoded.split(String.valueOf(ENTRY_SEPARATOR))) {
+            String[] fields = record.split(String.valueOf(FIELD_SEPARATOR), -1);
+            String[] offsets = fields[3].isEmpty() ? new String[0] : fields[3].split(String.valueOf(OFFSET_SEPARATOR));
+            int[] highlights = new int[offsets.length];
+            for (int i = 0; i < offsets.length; i++) {
+                highlights[i] = Integer.parseInt(offsets[i]);
+            }
+            matches.add(new DictionaryMatch(Integer.parseInt(fields[0]), fields[1], fields[2], highlights));
+        }
+        return matches;
+    }
+
+    /**
+     * Identifies this install; the bundled dictionary and translation models only change with it.
+     */
+    private String installStamp() {
+        try {
+            PackageInfo info = getPackageManager().getPackageInfo(getPackageName(), 0);
+            return info.getLongVersionCode() + "-" + info.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            throw new IllegalStateException("Own package not found", e);
+        }
+    }
+
+
 //@Override
 //public void onActivityResult(int requestCode, int resultCode, @Nullable @org.jetbrains.annotations.Nullable)
 
@@ -194,40 +859,137 @@ public class MainActivity extends AppCompatActivity {
     }
 
     public void translateText(int fromLanguageCode, int toLanguageCode, String source){
-        translatedTV.setText("Downloading Model..");
-        FirebaseTranslatorOptions options =  new FirebaseTranslatorOptions.Builder()
-                .setSourceLanguage(fromLanguageCode)
-                .setTargetLanguage(toLanguageCode)
-                .build();
-        FirebaseTranslator translator = FirebaseNaturalLanguage.getInstance().getTranslator(options);
+        Consumer<String> show = timedShow(TRANSLATE_TEXT);
+        translateCached(fromLanguageCode, toLanguageCode, source, show, store -> {
+            if (translatorManager.isReady(fromLanguageCode, toLanguageCode)) {
+                showText("Translating ...");
+            } else {
+                showText("Downloading Model..");
+            }
+            translatorManager.translate(fromLanguageCode, toLanguageCode, source)
+                    .whenComplete((translated, error) -> runOnUiThread(() -> {
+                        if (error == null) {
+                            store.accept(translated);
+                            show.accept(translated);
+                        } else {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                    ? error.getCause() : error;
+                            Toast.makeText(MainActivity.this, "Failed to Translate" + cause.getMessage(), Toast.LENGTH_SHORT).show();
+                        }
+                    }));
+        });
+    }
+
+    /**
+     * Translates through English between a dictionary language and a machine-translated language,
+     * or between two dictionary languages.
+     */
+    private void translatePivot(int fromLanguageCode, int toLanguageCode, String source) {
+        Consumer<String> show = timedShow(TRANSLATE_PIVOT);
+        translateCached(fromLanguageCode, toLanguageCode, source, show, store -> {
+            showText("Translating through English ...");
+            pivot(fromLanguageCode, toLanguageCode, source).whenComplete((translated, error) -> runOnUiThread(() -> {
+                if (error == null) {
+                    store.accept(translated);
+                    show.accept(translated);
+                } else {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    Toast.makeText(MainActivity.this, "Failed to Translate" + cause.getMessage(), Toast.LENGTH_SHORT).show();
+                }
+            }));
+        });
+    }
 
-        FirebaseModelDownloadConditions conditions = new FirebaseModelDownloadConditions.Builder().build();
+    private CompletableFuture<String> pivot(int fromLanguageCode, int toLanguageCode, String source) {
+        if (!DictionaryRegistry.isDictionaryLanguage(fromLanguageCode)) {
+            return pivotTranslator.toDictionaryLanguage(fromLanguageCode, toLanguageCode, source);
+        }
+        String normalized = DictionaryRegistry.require(fromLanguageCode).normalize(source);
+        if (!DictionaryRegistry.isDictionaryLanguage(toLanguageCode)) {
+            return pivotTranslator.fromDictionaryLanguage(fromLanguageCode, toLanguageCode, normalized);
+        }
+        return pivotTranslator.fromDictionaryLanguage(fromLanguageCode, FirebaseTranslateLanguage.EN, normalized)
+                .thenCompose(english -> pivotTranslator.toDictionaryLanguage(
+                        FirebaseTranslateLanguage.EN, toLanguageCode, english));
+    }
 
-        translator.downloadModelIfNeeded(conditions).addOnSuccessListener(new OnSuccessListener<Void>() {
-            @Override
-            public void onSuccess(Void unused) {
-                translatedTV.setText("Translating ...");
-                translator.translate(source).addOnSuccessListener(new OnSuccessListener<String>() {
-                    @Override
-                    public void onSuccess(String s) {
-                        translatedTV.setText(s);
-                    }
-                }).addOnFailureListener(new OnFailureListener() {
-                    @Override
-                    public void onFailure(@NonNull Exception e) {
-                        Toast.makeText(MainActivity.this, "Failed to Translate" + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    }
-                });
+    /**
+     * Shows a translation, recording the time since this was called in {@code latency}.
+     */
+    private Consumer<String> timedShow(LatencyHistogram latency) {
+        long start = System.nanoTime();
+        return text -> {
+            latency.recordSince(start);
+            showText(text);
+        };
+    }
 
+    /**
+     * Shows the timings and counts of {@link Metrics}, with ways to dump them as JSON to logcat
+     * or to a file in the app's external files directory.
+     */
+    private void showMetrics() {
+        TextView report = new TextView(this);
+        report.setTypeface(Typeface.MONOSPACE);
+        report.setTextSize(11);
+        report.setTextIsSelectable(true);
+        int padding = Math.round(16 * getResources().getDisplayMetrics().density);
+        report.setPadding(padding, padding, padding, padding);
+        report.setText(Metrics.global().report());
+        ScrollView scroll = new ScrollView(this);
+        scroll.addView(report);
+        new AlertDialog.Builder(this)
+                .setTitle("Metrics")
+                .setView(scroll)
+                .setPositiveButton("Save JSON", (dialog, which) -> saveMetrics())
+                .setNeutralButton("Log JSON", (dialog, which) -> logMetrics())
+                .setNegativeButton("Reset", (dialog, which) -> Metrics.global().reset())
+                .show();
+    }
+
+    private static void logMetrics() {
+        String json = Metrics.global().toJson();
+        for (int start = 0; start < json.length(); start += LOG_CHUNK_LENGTH) {
+            Log.i(TAG, json.substring(start, Math.min(json.length(), start + LOG_CHUNK_LENGTH)));
+        }
+    }
+
+    private void saveMetrics() {
+        File directory = getExternalFilesDir(null);
+        File file = new File(directory != null ? directory : getFilesDir(), METRICS_FILE_NAME);
+        String json = Metrics.global().toJson();
+        searchExecutor.execute(() -> {
+            String message;
+            try {
+                Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
+                message = "Saved " + file;
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to save metrics", e);
+                message = "Failed to save metrics: " + e.getMessage();
             }
-        }).addOnFailureListener(new OnFailureListener() {
-            @Override
-            public void onFailure(@NonNull Exception e) {
-                Toast.makeText(MainActivity.this, "Failed to download language model" + e.getMessage(), Toast.LENGTH_SHORT).show();
-            }
+            String shown = message;
+            runOnUiThread(() -> Toast.makeText(MainActivity.this, shown, Toast.LENGTH_LONG).show());
         });
     }
 
+    /**
+     * Starts loading the dictionaries of the selected languages, and fetching the model of the
+     * selected machine-translated pair, in the background, so the first translation does not have
+     * to wait for either. A pair with a dictionary language fetches the model of its English leg.
+     */
+    private void prefetchSelectedPair() {
+        DictionaryRegistry.select(getApplicationContext(), fromLanguageCode, toLanguageCode);
+        if (fromLanguageCode == 0 || toLanguageCode == 0 || fromLanguageCode == toLanguageCode) {
+            return;
+        }
+        int from = DictionaryRegistry.isDictionaryLanguage(fromLanguageCode) ? FirebaseTranslateLanguage.EN : fromLanguageCode;
+        int to = DictionaryRegistry.isDictionaryLanguage(toLanguageCode) ? FirebaseTranslateLanguage.EN : toLanguageCode;
+        if (from != to) {
+            translatorManager.prefetch(from, to);
+        }
+    }
+
     public int getLanguageCode (String language){
         int languagecode = 0;
         switch (language){
@@ -246,16 +1008,26 @@ public class MainActivity extends AppCompatActivity {
             case "Korean":
                 languagecode = FirebaseTranslateLanguage.KO;
                 break;
-            case "Runyakole/Rukiga":
-                languagecode = LANGUAGE_CODE_RUKIGA; // Our special code for our custom translator
-                break;
             default:
-                languagecode = 0;
+                // Our special codes for the dictionary languages, or 0 for the prompt
+                DictionaryProvider provider = DictionaryRegistry.byName(language);
+                languagecode = provider != null ? provider.languageCode : 0;
         }
         return languagecode;
 
     }
 
+    private static String[] languages(String prompt) {
+        List<DictionaryProvider> dictionaries = DictionaryRegistry.all();
+        String[] languages = new String[1 + MACHINE_LANGUAGES.length + dictionaries.size()];
+        languages[0] = prompt;
+        System.arraycopy(MACHINE_LANGUAGES, 0, languages, 1, MACHINE_LANGUAGES.length);
+        for (int i = 0; i < dictionaries.size(); i++) {
+            languages[1 + MACHINE_LANGUAGES.length + i] = dictionaries.get(i).displayName;
+        }
+        return languages;
+    }
+
 
 
 }
@@ -0,0 +1,51 @@
+package com.trans.translator;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+/**
+ * The model downloads started by a {@link TranslatorManager}, one per language, so that asking
+ * for a model that is already on its way joins that download instead of starting another.
+ *
+ * A completed download is remembered for the life of the manager. A failed one is started again
+ * by the next request for its language.
+ */
+final class ModelDownloads {
+
+    private final IntFunction<CompletableFuture<Void>> download;
+    // Guarded by this.
+    private final Map<Integer, CompletableFuture<Void>> downloads = new HashMap<>();
+
+    /**
+     * @param download starts downloading the model of a language.
+     */
+    ModelDownloads(@NonNull IntFunction<CompletableFuture<Void>> download) {
+        this.download = download;
+    }
+
+    /**
+     * Returns the download of the model of {@code language}, starting it unless it is in flight
+     * or done.
+     */
+    @NonNull
+    synchronized CompletableFuture<Void> fetch(int language) {
+        CompletableFuture<Void> future = downloads.get(language);
+        if (future == null || future.isCompletedExceptionally()) {
+            future = download.apply(language);
+            downloads.put(language, future);
+        }
+        return future;
+    }
+
+    /**
+     * Whether the model of {@code language} has been downloaded.
+     */
+    synchronized boolean isDownloaded(int language) {
+        CompletableFuture<Void> future = downloads.get(language);
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+}
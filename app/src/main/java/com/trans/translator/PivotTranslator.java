@@ -0,0 +1,184 @@
+package com.trans.translator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslateLanguage;
+import com.trans.translator.dictionary.DictionaryEntry;
+import com.trans.translator.dictionary.GlossedText;
+import com.trans.translator.dictionary.RukigaDictionary;
+import com.trans.translator.dictionary.WordGloss;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+
+/**
+ * Translates between a machine-translated language and a dictionary language such as
+ * Runyankore/Rukiga through English: the {@link TranslatorManager} translates to or from English
+ * and the dictionary of the language covers the other side.
+ *
+ * The text is split into sentences, and each sentence goes through the two stages on its own, so
+ * the dictionary stage starts on the first sentence as soon as its English arrives while the
+ * machine translation of the next ones is still running, and the dictionary loads meanwhile.
+ * The pivot then takes about as long as the slower stage rather than both in turn. Every machine
+ * translation of a sentence, including the intermediate English, is kept in the
+ * {@link TranslationCache}, which it shares with direct translations between the same languages.
+ */
+final class PivotTranslator {
+
+    private static final int ENGLISH = FirebaseTranslateLanguage.EN;
+
+    private final TranslatorManager translatorManager;
+    @Nullable
+    private final TranslationCache cache;
+    private final IntFunction<CompletableFuture<RukigaDictionary>> dictionaries;
+    private final Executor dictionaryExecutor;
+
+    /**
+     * @param translatorManager  machine translation to and from English; an in-memory manager
+     *                           lets the pivot run offline.
+     * @param cache              cache of the machine translations, or {@code null} for none.
+     * @param dictionaries       starts or joins loading the dictionary of a language code.
+     * @param dictionaryExecutor runs the dictionary stage.
+     */
+    PivotTranslator(@NonNull TranslatorManager translatorManager, @Nullable TranslationCache cache,
+                    @NonNull IntFunction<CompletableFuture<RukigaDictionary>> dictionaries,
+                    @NonNull Executor dictionaryExecutor) {
+        this.translatorManager = translatorManager;
+        this.cache = cache;
+        this.dictionaries = dictionaries;
+        this.dictionaryExecutor = dictionaryExecutor;
+    }
+
+    /**
+     * Translates {@code text} from {@code sourceLanguage} to the dictionary language
+     * {@code targetLanguage}. Each sentence is answered with its English translation followed by
+     * the dictionary's example sentences close to it or, failing those, by the entries for its
+     * words, as {@link RukigaDictionary#translateEnglishSentence} finds them.
+     */
+    @NonNull
+    CompletableFuture<String> toDictionaryLanguage(int sourceLanguage, int targetLanguage, @NonNull String text) {
+        CompletableFuture<RukigaDictionary> loaded = dictionaries.apply(targetLanguage);
+        List<CompletableFuture<String>> sentences = new ArrayList<>();
+        for (String sentence : splitSentences(text)) {
+            sentences.add(machineTranslate(sourceLanguage, ENGLISH, sentence)
+                    .thenCombineAsync(loaded, PivotTranslator::lookUpEnglish, dictionaryExecutor));
+        }
+        return joinInOrder(sentences, "\n\n");
+    }
+
+    /**
+     * Translates {@code text} from the dictionary language {@code sourceLanguage} to
+     * {@code targetLanguage} by reading each sentence word by word in English, then machine
+     * translating that reading. The text is expected in the spelling of the dictionary.
+     */
+    @NonNull
+    CompletableFuture<String> fromDictionaryLanguage(int sourceLanguage, int targetLanguage, @NonNull String text) {
+        CompletableFuture<RukigaDictionary> loaded = dictionaries.apply(sourceLanguage);
+        List<CompletableFuture<String>> sentences = new ArrayList<>();
+        for (String sentence : splitSentences(text)) {
+            sentences.add(loaded
+                    .thenApplyAsync(d -> readInEnglish(d.glossSentence(sentence)), dictionaryExecutor)
+                    .thenCompose(english -> machineTranslate(ENGLISH, targetLanguage, english)));
+        }
+        return joinInOrder(sentences, " ");
+    }
+
+    /**
+     * Machine translates one sentence, answering from the cache when it holds the sentence.
+     */
+    private CompletableFuture<String> machineTranslate(int sourceLanguage, int targetLanguage, String sentence) {
+        if (sentence.isEmpty() || sourceLanguage == targetLanguage) {
+            return CompletableFuture.completedFuture(sentence);
+        }
+        if (cache == null) {
+            return translatorManager.translate(sourceLanguage, targetLanguage, sentence);
+        }
+        String modelId = translatorManager.modelId(sourceLanguage, targetLanguage);
+        return cache.get(modelId, sourceLanguage, targetLanguage, sentence).thenCompose(cached -> {
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            return translatorManager.translate(sourceLanguage, targetLanguage, sentence)
+                    .thenApply(translated -> {
+                        cache.put(modelId, sourceLanguage, targetLanguage, sentence, translated);
+                        return translated;
+                    });
+        });
+    }
+
+    private static String lookUpEnglish(String english, RukigaDictionary dictionary) {
+        StringBuilder builder = new StringBuilder(english);
+        List<DictionaryEntry> entries = dictionary.translateEnglishSentence(english);
+        for (DictionaryEntry entry : entries) {
+            builder.append("\n• ").append(entry.displayHeadword).append(" — ").append(entry.definition);
+        }
+        if (entries.isEmpty()) {
+            builder.append("\n• No dictionary match found");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Rebuilds a sentence from the first gloss of each word, keeping the words the dictionary
+     * cannot read as they are.
+     */
+    static String readInEnglish(GlossedText glossed) {
+        StringBuilder english = new StringBuilder();
+        for (WordGloss reading : glossed.readings()) {
+            if (english.length() > 0) {
+                english.append(' ');
+            }
+            if (reading.gloss.isEmpty()) {
+                english.append(glossed.text, reading.start, reading.end);
+            } else {
+                int alternative = reading.gloss.indexOf(';');
+                english.append(alternative < 0 ? reading.gloss : reading.gloss.substring(0, alternative));
+            }
+        }
+        return english.toString();
+    }
+
+    /**
+     * Splits text after each sentence-ending mark followed by whitespace, and at line breaks.
+     */
+    static List<String> splitSentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean end = c == '\n'
+                    || ((c == '.' || c == '?' || c == '!') && i + 1 < text.length()
+                    && Character.isWhitespace(text.charAt(i + 1)));
+            if (end) {
+                addSentence(sentences, text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        addSentence(sentences, text.substring(start));
+        return sentences;
+    }
+
+    private static void addSentence(List<String> sentences, String sentence) {
+        String trimmed = sentence.trim();
+        if (!trimmed.isEmpty()) {
+            sentences.add(trimmed);
+        }
+    }
+
+    private static CompletableFuture<String> joinInOrder(List<CompletableFuture<String>> parts, String separator) {
+        return CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            StringBuilder joined = new StringBuilder();
+            for (CompletableFuture<String> part : parts) {
+                if (joined.length() > 0) {
+                    joined.append(separator);
+                }
+                joined.append(part.join());
+            }
+            return joined.toString();
+        });
+    }
+}
@@ -0,0 +1,317 @@
+package com.trans.translator;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.trans.translator.dictionary.RukigaDictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of translation results keyed by what they were computed with, language pair and
+ * normalized source text.
+ *
+ * What a result was computed with is given as a stamp: the {@link TranslatorManager#modelId} of a
+ * machine translation, the {@link #dictionaryStamp} of a dictionary lookup, or both for a pivot.
+ * A new dictionary snapshot or user entry changes the stamp of the lookups only, so they miss
+ * without machine translations being dropped; the stale results age out of both tiers.
+ *
+ * Recent results are kept in a bounded in-memory LRU; every result is also written to a directory
+ * under the app's cache dir, capped in bytes and trimmed oldest first. The directory is wiped
+ * when the version stamp it was written under differs from the current one, i.e. on a new
+ * install. Disk access happens on a single background thread.
+ */
+public final class TranslationCache {
+
+    private static final String TAG = "TranslationCache";
+    private static final String VERSION_FILE_NAME = "version";
+    private static final String ENTRY_SUFFIX = ".entry";
+
+    private final File directory;
+    private final String version;
+    private final long maxDiskBytes;
+    private final Map<String, String> memory;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "translation-cache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Only touched on the disk thread.
+    private boolean diskOpened;
+    private long diskBytes;
+
+    /**
+     * @param version      stamp of the install the results on disk were written by.
+     * @param maxMemoryEntries results kept in memory.
+     * @param maxDiskBytes bytes of result files kept on disk.
+     */
+    public TranslationCache(@NonNull File directory, @NonNull String version, int maxMemoryEntries,
+                            long maxDiskBytes) {
+        this.directory = directory;
+        this.version = version;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                if (size() > maxMemoryEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a future completed with the cached result, or with {@code null} on a miss. Memory
+     * hits complete immediately; otherwise the disk is checked on the cache thread.
+     */
+    @NonNull
+    public CompletableFuture<String> get(@NonNull String stamp, int sourceLanguage, int targetLanguage,
+                                         @NonNull String text) {
+        String key = key(stamp, sourceLanguage, targetLanguage, text);
+        String cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            String stored = readEntry(key);
+            if (stored == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            diskHits.incrementAndGet();
+            synchronized (memory) {
+                memory.put(key, stored);
+            }
+            return stored;
+        }, diskExecutor);
+    }
+
+    /**
+     * Stores a result in memory right away and on disk in the background.
+     */
+    public void put(@NonNull String stamp, int sourceLanguage, int targetLanguage, @NonNull String text,
+                    @NonNull String result) {
+        String key = key(stamp, sourceLanguage, targetLanguage, text);
+        synchronized (memory) {
+            memory.put(key, result);
+        }
+        diskExecutor.execute(() -> writeEntry(key, result));
+    }
+
+    public long memoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long diskHitCount() {
+        return diskHits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * Results dropped from either tier to stay within its bounds.
+     */
+    public long evictionCount() {
+        return evictions.get();
+    }
+
+    @NonNull
+    public String summary() {
+        return memoryHits.get() + " memory hits, " + diskHits.get() + " disk hits, "
+                + misses.get() + " misses, " + evictions.get() + " evictions";
+    }
+
+    /**
+     * Trims and collapses whitespace, so that queries differing only in spacing share a result.
+     */
+    @NonNull
+    static String normalize(@NonNull String text) {
+        return text.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Identifies the compiled dictionary and the user entries laid over it, which is what a
+     * dictionary lookup depends on. User entries are only ever added, so their count tells the
+     * overlays of one dictionary apart.
+     */
+    @NonNull
+    public static String dictionaryStamp(@NonNull RukigaDictionary dictionary) {
+        return Long.toHexString(dictionary.compiled().sourceStamp()) + "+" + dictionary.overlay().entryCount();
+    }
+
+    private static String key(String stamp, int sourceLanguage, int targetLanguage, String text) {
+        return stamp + ":" + sourceLanguage + ":" + targetLanguage + ":" + normalize(text);
+    }
+
+    @Nullable
+    private String readEntry(String key) {
+        openDisk();
+        File file = entryFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (!key.equals(readString(in, file.length()))) {
+                return null;
+            }
+            String result = readString(in, file.length());
+            // Keeps the trimming order least recently used first.
+            file.setLastModified(System.currentTimeMillis());
+            return result;
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cache entry " + file.getName(), e);
+            deleteEntry(file);
+            return null;
+        }
+    }
+
+    private void writeEntry(String key, String result) {
+        openDisk();
+        File file = entryFile(key);
+        long previous = file.length();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            writeString(out, key);
+            writeString(out, result);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cache entry " + file.getName(), e);
+            file.delete();
+        }
+        diskBytes += file.length() - previous;
+        if (diskBytes > maxDiskBytes) {
+            trimDisk();
+        }
+    }
+
+    /**
+     * Creates the directory, wipes it if it was written under another version, and sums the size
+     * of what is left. Runs once, on the first disk access.
+     */
+    private void openDisk() {
+        if (diskOpened) {
+            return;
+        }
+        diskOpened = true;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create cache directory " + directory);
+            return;
+        }
+        File versionFile = new File(directory, VERSION_FILE_NAME);
+        if (!version.equals(readVersion(versionFile))) {
+            for (File file : entryFiles()) {
+                file.delete();
+            }
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(versionFile))) {
+                writeString(out, version);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to write cache version", e);
+            }
+        }
+        for (File file : entryFiles()) {
+            diskBytes += file.length();
+        }
+    }
+
+    private void trimDisk() {
+        File[] files = entryFiles();
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (diskBytes <= maxDiskBytes) {
+                break;
+            }
+            deleteEntry(file);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void deleteEntry(File file) {
+        long length = file.length();
+        if (file.delete()) {
+            diskBytes -= length;
+        }
+    }
+
+    private File[] entryFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+        return files != null ? files : new File[0];
+    }
+
+    private File entryFile(String key) {
+        return new File(directory, hash(key) + ENTRY_SUFFIX);
+    }
+
+    @Nullable
+    private static String readVersion(File versionFile) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(versionFile))) {
+            return readString(in, versionFile.length());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString} from a file of {@code fileLength} bytes, so
+     * that a corrupt length fails instead of allocating a huge buffer.
+     */
+    private static String readString(DataInputStream in, long fileLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > fileLength) {
+            throw new IOException("Corrupt string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+}
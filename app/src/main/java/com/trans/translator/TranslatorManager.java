@@ -0,0 +1,46 @@
+package com.trans.translator;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Machine translation between the languages offered by the spinners, identified by the codes
+ * returned from {@link MainActivity#getLanguageCode(String)}.
+ *
+ * Implementations keep the translator of a language pair around between requests, so only the
+ * first translation of a pair pays for model setup. {@link FirebaseTranslatorManager} is the
+ * on-device implementation; tests can substitute an in-memory one.
+ */
+public interface TranslatorManager {
+
+    /**
+     * Translates {@code text}, preparing the model of the pair first if needed. The future
+     * completes exceptionally when the model cannot be prepared or the translation fails.
+     */
+    @NonNull
+    CompletableFuture<String> translate(int sourceLanguage, int targetLanguage, @NonNull String text);
+
+    /**
+     * Whether the model of the pair is prepared, so that {@link #translate} skips model setup.
+     */
+    boolean isReady(int sourceLanguage, int targetLanguage);
+
+    /**
+     * Identifies the models translating the pair, so that a cached translation is only reused
+     * with the models it was made with.
+     */
+    @NonNull
+    String modelId(int sourceLanguage, int targetLanguage);
+
+    /**
+     * Asks for the model of the pair to be downloaded in the background, once the device is on an
+     * unmetered network and charging. Does nothing if it is already available.
+     */
+    void prefetch(int sourceLanguage, int targetLanguage);
+
+    /**
+     * Releases every cached translator. The manager may still be used afterwards.
+     */
+    void close();
+}
@@ -0,0 +1,127 @@
+package com.trans.translator;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory {@link TranslatorManager} for JVM tests. It translates from a table of known texts
+ * and answers any other text with that text tagged with its language pair, such as
+ * {@code "[17>11] bonjour"}. Every request is recorded.
+ *
+ * While {@link #hold() holding}, translations are not answered until {@link #release(int)}, so a
+ * test can complete them in any order.
+ */
+final class FakeTranslatorManager implements TranslatorManager {
+
+    // Guarded by this.
+    private final Map<String, String> translations = new HashMap<>();
+    private final List<String> requests = new ArrayList<>();
+    private final Set<Long> prepared = new HashSet<>();
+    private final List<Integer> prefetched = new ArrayList<>();
+    private final List<Runnable> held = new ArrayList<>();
+    private boolean holding;
+    private int closeCount;
+
+    /**
+     * Makes {@code translation} the answer for {@code text} between the two languages.
+     */
+    synchronized FakeTranslatorManager add(int sourceLanguage, int targetLanguage, String text, String translation) {
+        translations.put(request(sourceLanguage, targetLanguage, text), translation);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public synchronized CompletableFuture<String> translate(int sourceLanguage, int targetLanguage, @NonNull String text) {
+        String request = request(sourceLanguage, targetLanguage, text);
+        requests.add(request);
+        prepared.add(pairKey(sourceLanguage, targetLanguage));
+        String translation = translations.get(request);
+        String answer = translation != null ? translation : "[" + sourceLanguage + ">" + targetLanguage + "] " + text;
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (holding) {
+            held.add(() -> future.complete(answer));
+        } else {
+            future.complete(answer);
+        }
+        return future;
+    }
+
+    @Override
+    public synchronized boolean isReady(int sourceLanguage, int targetLanguage) {
+        return prepared.contains(pairKey(sourceLanguage, targetLanguage));
+    }
+
+    @NonNull
+    @Override
+    public String modelId(int sourceLanguage, int targetLanguage) {
+        return "fake:" + sourceLanguage + ">" + targetLanguage;
+    }
+
+    @Override
+    public synchronized void prefetch(int sourceLanguage, int targetLanguage) {
+        prefetched.add(sourceLanguage);
+        prefetched.add(targetLanguage);
+        prepared.add(pairKey(sourceLanguage, targetLanguage));
+    }
+
+    @Override
+    public synchronized void close() {
+        closeCount++;
+        prepared.clear();
+    }
+
+    /**
+     * Holds back the answers of the translations asked for from now on.
+     */
+    synchronized void hold() {
+        holding = true;
+    }
+
+    /**
+     * Answers the held translation asked for {@code index}-th since {@link #hold()}.
+     */
+    void release(int index) {
+        Runnable answer;
+        synchronized (this) {
+            answer = held.get(index);
+        }
+        answer.run();
+    }
+
+    synchronized int heldCount() {
+        return held.size();
+    }
+
+    /**
+     * The translations asked for, oldest first, each as its request key
+     * {@code "<source>><target> <text>"}.
+     */
+    synchronized List<String> requests() {
+        return Collections.unmodifiableList(new ArrayList<>(requests));
+    }
+
+    synchronized List<Integer> prefetched() {
+        return Collections.unmodifiableList(new ArrayList<>(prefetched));
+    }
+
+    synchronized int closeCount() {
+        return closeCount;
+    }
+
+    static String request(int sourceLanguage, int targetLanguage, String text) {
+        return sourceLanguage + ">" + targetLanguage + " " + text;
+    }
+
+    private static long pairKey(int sourceLanguage, int targetLanguage) {
+        return ((long) sourceLanguage << 32) | (targetLanguage & 0xffffffffL);
+    }
+}
@@ -0,0 +1,64 @@
+package com.trans.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class ModelDownloadsTest {
+
+    private static final int FRENCH = 17;
+    private static final int SWAHILI = 49;
+
+    private final List<Integer> started = new ArrayList<>();
+    private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+    private ModelDownloads downloads;
+
+    @Before
+    public void create() {
+        downloads = new ModelDownloads(language -> {
+            started.add(language);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            futures.add(future);
+            return future;
+        });
+    }
+
+    @Test
+    public void repeatedFetchJoinsDownloadInFlight() {
+        CompletableFuture<Void> first = downloads.fetch(FRENCH);
+        assertSame(first, downloads.fetch(FRENCH));
+        downloads.fetch(SWAHILI);
+        assertEquals(List.of(FRENCH, SWAHILI), started);
+        assertFalse(downloads.isDownloaded(FRENCH));
+    }
+
+    @Test
+    public void completedDownloadIsNotStartedAgain() {
+        CompletableFuture<Void> first = downloads.fetch(FRENCH);
+        futures.get(0).complete(null);
+        assertTrue(downloads.isDownloaded(FRENCH));
+        assertSame(first, downloads.fetch(FRENCH));
+        assertEquals(List.of(FRENCH), started);
+    }
+
+    @Test
+    public void failedDownloadIsStartedAgain() {
+        CompletableFuture<Void> first = downloads.fetch(FRENCH);
+        futures.get(0).completeExceptionally(new IllegalStateException("offline"));
+        assertFalse(downloads.isDownloaded(FRENCH));
+        CompletableFuture<Void> retry = downloads.fetch(FRENCH);
+        assertNotSame(first, retry);
+        assertEquals(List.of(FRENCH, FRENCH), started);
+        futures.get(1).complete(null);
+        assertTrue(downloads.isDownloaded(FRENCH));
+    }
+}
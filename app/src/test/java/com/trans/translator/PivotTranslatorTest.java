@@ -0,0 +1,126 @@
+package com.trans.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.firebase.ml.naturallanguage.translate.FirebaseTranslateLanguage;
+import com.trans.translator.dictionary.DictionaryCompiler;
+import com.trans.translator.dictionary.RukigaDictionary;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PivotTranslatorTest {
+
+    private static final int ENGLISH = FirebaseTranslateLanguage.EN;
+    private static final int FRENCH = FirebaseTranslateLanguage.FR;
+    private static final int RUKIGA = -1;
+
+    private static RukigaDictionary dictionary;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final FakeTranslatorManager translator = new FakeTranslatorManager()
+            .add(FRENCH, ENGLISH, "L'enfant dort.", "The child sleeps.")
+            .add(FRENCH, ENGLISH, "La personne mange.", "The person eats.")
+            .add(ENGLISH, FRENCH, "child person", "enfant personne");
+    // Dictionary stages run so far; the stage runs on the thread completing its inputs.
+    private final AtomicInteger dictionaryStages = new AtomicInteger();
+
+    @BeforeClass
+    public static void compile() throws IOException {
+        dictionary = RukigaDictionary.open(ByteBuffer.wrap(DictionaryCompiler.compileText((
+                "omwana n. child: a young person\n"
+                        + "omuntu n. person: a human being\n"
+                        + "okubyama v. to sleep\n"
+                        + "okutunatuna v. to become fat. Ente aziriisize gye\n"
+                        + "zitandikire kutunatuna. The cows have been fed\n"
+                        + "well and they have started to become fat.\n").getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void textIsSplitAtSentenceEndsAndLineBreaks() {
+        assertEquals(List.of("Bonjour.", "Ça va?", "Oui!", "Merci"),
+                PivotTranslator.splitSentences("Bonjour. Ça va? Oui!\nMerci"));
+        assertEquals(List.of("Il pèse 3.5 kg.", "Fin"), PivotTranslator.splitSentences("  Il pèse 3.5 kg.  Fin \n\n"));
+        assertEquals(List.of(), PivotTranslator.splitSentences(" \n "));
+    }
+
+    @Test
+    public void sentencesJoinInOrderWhateverOrderTheyArriveIn() {
+        translator.hold();
+        CompletableFuture<String> pivot = newPivot(null)
+                .toDictionaryLanguage(FRENCH, RUKIGA, "L'enfant dort. La personne mange.");
+        assertEquals(2, translator.heldCount());
+        translator.release(1);
+        assertEquals(1, dictionaryStages.get());
+        assertFalse(pivot.isDone());
+        translator.release(0);
+
+        String[] sentences = pivot.join().split("\n\n");
+        assertEquals(2, sentences.length);
+        assertTrue(sentences[0], sentences[0].startsWith("The child sleeps.\n• omwana — "));
+        assertTrue(sentences[1], sentences[1].startsWith("The person eats.\n• omuntu — "));
+    }
+
+    @Test
+    public void sentenceIsAnsweredByTheExampleItTranslates() {
+        translator.add(FRENCH, ENGLISH, "Les vaches sont bien nourries et grossissent.",
+                "The cows have been fed well and they have started to become fat.");
+        assertEquals("The cows have been fed well and they have started to become fat.\n"
+                        + "• Ente aziriisize gye zitandikire kutunatuna — "
+                        + "The cows have been fed well and they have started to become fat",
+                newPivot(null).toDictionaryLanguage(FRENCH, RUKIGA, "Les vaches sont bien nourries et grossissent.")
+                        .join());
+    }
+
+    @Test
+    public void sentenceWithoutExampleIsLookedUpWordByWord() {
+        translator.add(FRENCH, ENGLISH, "L'enfant et la personne dorment.", "The child and the person sleep.");
+        String[] lines = newPivot(null).toDictionaryLanguage(FRENCH, RUKIGA, "L'enfant et la personne dorment.")
+                .join().split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[1], lines[1].startsWith("• omwana — "));
+        assertTrue(lines[2], lines[2].startsWith("• omuntu — "));
+        assertTrue(lines[3], lines[3].startsWith("• okubyama — "));
+    }
+
+    @Test
+    public void dictionaryLanguageIsReadInEnglishBeforeMachineTranslation() {
+        String translated = newPivot(null).fromDictionaryLanguage(RUKIGA, FRENCH, "omwana omuntu").join();
+        assertEquals("enfant personne", translated);
+        assertEquals(List.of(FakeTranslatorManager.request(ENGLISH, FRENCH, "child person")), translator.requests());
+    }
+
+    @Test
+    public void intermediateEnglishIsCached() {
+        TranslationCache cache = new TranslationCache(folder.getRoot(), "1-0", 10, 1024 * 1024);
+        PivotTranslator pivot = newPivot(cache);
+        String first = pivot.toDictionaryLanguage(FRENCH, RUKIGA, "L'enfant dort.").join();
+        assertEquals("The child sleeps.",
+                cache.get(translator.modelId(FRENCH, ENGLISH), FRENCH, ENGLISH, "L'enfant dort.").join());
+
+        assertEquals(first, pivot.toDictionaryLanguage(FRENCH, RUKIGA, "L'enfant dort.").join());
+        assertEquals(List.of(FakeTranslatorManager.request(FRENCH, ENGLISH, "L'enfant dort.")), translator.requests());
+        assertEquals(2, cache.memoryHitCount());
+    }
+
+    private PivotTranslator newPivot(TranslationCache cache) {
+        return new PivotTranslator(translator, cache, language -> CompletableFuture.completedFuture(dictionary),
+                command -> {
+                    dictionaryStages.incrementAndGet();
+                    command.run();
+                });
+    }
+}
@@ -0,0 +1,94 @@
+package com.trans.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import com.trans.translator.dictionary.DictionaryCompiler;
+import com.trans.translator.dictionary.RukigaDictionary;
+import com.trans.translator.dictionary.UserEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class TranslationCacheTest {
+
+    private static final int ENGLISH = 11;
+    private static final int FRENCH = 17;
+    private static final int RUKIGA = -1;
+    private static final String VERSION = "1-0";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resultsAreKeyedByStamp() {
+        TranslationCache cache = newCache(10);
+        cache.put("fake:17>11", FRENCH, ENGLISH, "bonjour", "hello");
+        assertEquals("hello", cache.get("fake:17>11", FRENCH, ENGLISH, "  bonjour ").join());
+        assertNull(cache.get("firebase:17>11", FRENCH, ENGLISH, "bonjour").join());
+        assertNull(cache.get("fake:17>11", ENGLISH, FRENCH, "bonjour").join());
+    }
+
+    @Test
+    public void newUserEntryOnlyMissesDictionaryResults() throws IOException {
+        RukigaDictionary dictionary = RukigaDictionary.open(ByteBuffer.wrap(DictionaryCompiler.compileText(
+                "omuntu n. person\nomwana n. child\n".getBytes(StandardCharsets.UTF_8))));
+        RukigaDictionary corrected = dictionary.withOverlay(dictionary.overlay().with(
+                new UserEntry(UserEntry.CORRECT, "omwana", "n. baby", 0)));
+        String before = TranslationCache.dictionaryStamp(dictionary);
+        String after = TranslationCache.dictionaryStamp(corrected);
+        assertNotEquals(before, after);
+
+        TranslationCache cache = newCache(10);
+        cache.put(before, RUKIGA, ENGLISH, "omwana", "n. child");
+        cache.put("fake:17>11", FRENCH, ENGLISH, "enfant", "child");
+        assertNull(cache.get(after, RUKIGA, ENGLISH, "omwana").join());
+        assertEquals("n. child", cache.get(before, RUKIGA, ENGLISH, "omwana").join());
+        assertEquals("child", cache.get("fake:17>11", FRENCH, ENGLISH, "enfant").join());
+    }
+
+    @Test
+    public void diskKeepsResultsEvictedFromMemory() {
+        TranslationCache cache = newCache(1);
+        cache.put("fake:17>11", FRENCH, ENGLISH, "bonjour", "hello");
+        cache.put("fake:17>11", FRENCH, ENGLISH, "merci", "thanks");
+        assertEquals(1, cache.evictionCount());
+        assertEquals("hello", cache.get("fake:17>11", FRENCH, ENGLISH, "bonjour").join());
+        assertEquals(1, cache.diskHitCount());
+
+        TranslationCache reopened = newCache(1);
+        assertEquals("thanks", reopened.get("fake:17>11", FRENCH, ENGLISH, "merci").join());
+    }
+
+    @Test
+    public void corruptEntryIsDroppedWithoutReadingItsLength() throws IOException {
+        TranslationCache cache = newCache(10);
+        cache.put("fake:17>11", FRENCH, ENGLISH, "bonjour", "hello");
+        // Runs after the write on the disk thread.
+        cache.get("fake:17>11", FRENCH, ENGLISH, "merci").join();
+        File[] entries = folder.getRoot().listFiles((dir, name) -> name.endsWith(".entry"));
+        assertEquals(1, entries.length);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(entries[0]))) {
+            out.writeInt(Integer.MAX_VALUE);
+        }
+
+        TranslationCache reopened = newCache(10);
+        assertNull(reopened.get("fake:17>11", FRENCH, ENGLISH, "bonjour").join());
+        assertEquals(1, reopened.missCount());
+        assertFalse(entries[0].exists());
+    }
+
+    private TranslationCache newCache(int maxMemoryEntries) {
+        return new TranslationCache(folder.getRoot(), VERSION, maxMemoryEntries, 1024 * 1024);
+    }
+}
@@ -0,0 +1,62 @@
+plugins {
+    java
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(project(":dictionary"))
+    implementation(project(":dictionary-compiler"))
+    implementation(libs.jmh.core)
+    annotationProcessor(libs.jmh.generator)
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+// Runs the benchmarks against the app's text dictionary, with the allocation profiler:
+// ./gradlew :benchmark:jmh, or -Pjmh.include=<regex> to run some of them.
+val jmh by tasks.registering(JavaExec::class) {
+    val dictionary = rootProject.layout.projectDirectory.file("app/src/main/dictionary/rukiga_dictionary.txt")
+    val results = layout.buildDirectory.file("reports/jmh/results.json")
+    inputs.file(dictionary)
+    outputs.file(results)
+    outputs.upToDateWhen { false }
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    argumentProviders.add(CommandLineArgumentProvider {
+        val file = results.get().asFile
+        file.parentFile.mkdirs()
+        listOfNotNull(
+            providers.gradleProperty("jmh.include").orNull,
+            "-prof", "gc",
+            "-rf", "json",
+            "-rff", file.absolutePath,
+            "-jvmArgsAppend", "-Ddictionary.text=" + dictionary.asFile.absolutePath,
+        )
+    })
+}
+
+// Replays replay/queries.tsv from several threads and checks the results against
+// replay/golden.tsv: ./gradlew :benchmark:replay [-Preplay.threads=N] [-Preplay.writeGolden].
+val replay by tasks.registering(JavaExec::class) {
+    val dictionary = rootProject.layout.projectDirectory.file("app/src/main/dictionary/rukiga_dictionary.txt")
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("com.trans.translator.benchmark.ReplayHarness")
+    systemProperty("dictionary.text", dictionary.asFile.absolutePath)
+    argumentProviders.add(CommandLineArgumentProvider {
+        val arguments = mutableListOf(
+            "--queries", layout.projectDirectory.file("replay/queries.tsv").asFile.absolutePath,
+            "--golden", layout.projectDirectory.file("replay/golden.tsv").asFile.absolutePath,
+        )
+        providers.gradleProperty("replay.threads").orNull?.let { arguments += listOf("--threads", it) }
+        if (providers.gradleProperty("replay.writeGolden").isPresent) {
+            arguments += "--write-golden"
+        }
+        arguments
+    })
+}
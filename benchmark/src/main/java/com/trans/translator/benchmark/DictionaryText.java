@@ -0,0 +1,38 @@
+package com.trans.translator.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The text dictionary the benchmarks run against, named by the {@code dictionary.text} system
+ * property that the {@code jmh} task passes to each fork.
+ */
+final class DictionaryText {
+
+    static final String PROPERTY = "dictionary.text";
+
+    private DictionaryText() {
+        // Utility class.
+    }
+
+    static byte[] read() throws IOException {
+        String path = System.getProperty(PROPERTY);
+        if (path == null) {
+            throw new IOException("Set -D" + PROPERTY + " to the path of rukiga_dictionary.txt");
+        }
+        return Files.readAllBytes(Paths.get(path));
+    }
+
+    /**
+     * Writes a compiled dictionary to a temporary file deleted on exit, for it to be mapped the
+     * way the app maps its asset.
+     */
+    static Path writeTemporary(byte[] compiled) throws IOException {
+        Path file = Files.createTempFile("rukiga_dictionary", ".bin");
+        file.toFile().deleteOnExit();
+        Files.write(file, compiled);
+        return file;
+    }
+}
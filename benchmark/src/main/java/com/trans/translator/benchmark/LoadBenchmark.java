@@ -0,0 +1,92 @@
+package com.trans.translator.benchmark;
+
+import com.trans.translator.dictionary.CompiledDictionary;
+import com.trans.translator.dictionary.DictionaryCompiler;
+import com.trans.translator.dictionary.DictionaryEntry;
+import com.trans.translator.dictionary.DictionaryLoader;
+import com.trans.translator.dictionary.DictionaryParser;
+import com.trans.translator.dictionary.RukigaDictionary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold load: each call does the whole of one step, from the text or the mapped file, so that
+ * the time and the allocations reported by the gc profiler are those of a start of the app.
+ * Startup runs the loads once per process, so the early iterations matter as much as the later
+ * ones; compare the first iterations of each fork as well as the averages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(3)
+public class LoadBenchmark {
+
+    private byte[] text;
+    private Path compiledFile;
+    private int threads;
+    private ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        text = DictionaryText.read();
+        compiledFile = DictionaryText.writeTemporary(DictionaryCompiler.compileText(text));
+        // As Rukiga_Runyakore_Translator sizes its loading pool.
+        threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        pool = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /** Parsing the text dictionary, as the compiler does at build time. */
+    @Benchmark
+    public List<DictionaryEntry> parseText() throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.UTF_8)) {
+            return DictionaryParser.parse(reader);
+        }
+    }
+
+    /** Parsing and compiling the text dictionary into the binary index. */
+    @Benchmark
+    public byte[] compileText() throws IOException {
+        return DictionaryCompiler.compileText(text);
+    }
+
+    /** Mapping the compiled dictionary and building its indexes on the calling thread. */
+    @Benchmark
+    public RukigaDictionary loadSequential() throws IOException {
+        return new RukigaDictionary(CompiledDictionary.map(compiledFile));
+    }
+
+    /** Mapping the compiled dictionary and building its indexes on the loading pool, as the app does. */
+    @Benchmark
+    public RukigaDictionary loadParallel() throws IOException {
+        return DictionaryLoader.load(CompiledDictionary.map(compiledFile), pool, threads, null).join();
+    }
+}
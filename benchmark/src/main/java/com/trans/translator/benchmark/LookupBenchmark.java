@@ -0,0 +1,124 @@
+package com.trans.translator.benchmark;
+
+import com.trans.translator.dictionary.CompiledDictionary;
+import com.trans.translator.dictionary.DictionaryCompiler;
+import com.trans.translator.dictionary.DictionaryEntry;
+import com.trans.translator.dictionary.DictionaryMatch;
+import com.trans.translator.dictionary.GlossedText;
+import com.trans.translator.dictionary.RukigaDictionary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-query latency of the lookups behind the translate button, one benchmark per path a query
+ * can take. Each call takes the next query of a fixed set, so that a path is not measured on a
+ * single, perfectly cached input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class LookupBenchmark {
+
+    /** Headwords found as typed. */
+    private static final String[] RUKIGA_HITS = {"omwana", "ente", "okurya", "embwa", "ekitabo", "ebihungu"};
+    /** Words only reached through the headword they refer to. */
+    private static final String[] RUKIGA_REFERENCES = {"abaana"};
+    /** Misspellings, answered by the fuzzy matcher. */
+    private static final String[] RUKIGA_MISSES = {"omwanna", "okuryaa", "ekitabbo", "embwaa"};
+    /** Unfinished words, answered by the headwords they start. */
+    private static final String[] RUKIGA_PREFIXES = {"omuk", "okugy", "ekita", "aba"};
+    /** Words nothing is close to, which run the fuzzy search to its end. */
+    private static final String[] RUKIGA_UNKNOWN = {"xqzt", "bbbbbbbb"};
+    private static final String[] RUKIGA_SENTENCES = {
+            "Omwana wangye naarwara ebihungu",
+            "Omukazi ayebembera abaana",
+            "ab'eitaka n'embwa zirikuboigora",
+    };
+
+    /** Words glossed by entries. */
+    private static final String[] ENGLISH_EXACT = {"child", "cow", "water", "book", "dog"};
+    /** Phrases whose words are found in different parts of the definitions. */
+    private static final String[] ENGLISH_KEYWORDS = {"to eat food", "beat a drum loudly", "a young person"};
+    /** Short and common words, with the longest posting lists. */
+    private static final String[] ENGLISH_SHORT = {"go", "a", "be"};
+
+    private RukigaDictionary dictionary;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] compiled = DictionaryCompiler.compileText(DictionaryText.read());
+        dictionary = new RukigaDictionary(CompiledDictionary.map(DictionaryText.writeTemporary(compiled)));
+    }
+
+    private String next(String[] queries) {
+        next = next + 1 == Integer.MAX_VALUE ? 0 : next + 1;
+        return queries[next % queries.length];
+    }
+
+    @Benchmark
+    public String rukigaHit() {
+        return dictionary.translateRukigaToEnglish(next(RUKIGA_HITS));
+    }
+
+    @Benchmark
+    public String rukigaReference() {
+        return dictionary.translateRukigaToEnglish(next(RUKIGA_REFERENCES));
+    }
+
+    @Benchmark
+    public String rukigaMiss() {
+        return dictionary.translateRukigaToEnglish(next(RUKIGA_MISSES));
+    }
+
+    @Benchmark
+    public String rukigaPrefix() {
+        return dictionary.translateRukigaToEnglish(next(RUKIGA_PREFIXES));
+    }
+
+    @Benchmark
+    public String rukigaUnknown() {
+        return dictionary.translateRukigaToEnglish(next(RUKIGA_UNKNOWN));
+    }
+
+    @Benchmark
+    public GlossedText rukigaSentence() {
+        return dictionary.glossSentence(next(RUKIGA_SENTENCES));
+    }
+
+    @Benchmark
+    public List<DictionaryEntry> englishExact() {
+        return dictionary.translateEnglishToRukiga(next(ENGLISH_EXACT));
+    }
+
+    @Benchmark
+    public List<DictionaryEntry> englishKeywords() {
+        return dictionary.translateEnglishToRukiga(next(ENGLISH_KEYWORDS));
+    }
+
+    @Benchmark
+    public List<DictionaryEntry> englishShort() {
+        return dictionary.translateEnglishToRukiga(next(ENGLISH_SHORT));
+    }
+
+    @Benchmark
+    public List<DictionaryMatch> englishSearchPage() {
+        return dictionary.searchEnglish(next(ENGLISH_EXACT), 0, RukigaDictionary.REVERSE_RESULT_LIMIT);
+    }
+}
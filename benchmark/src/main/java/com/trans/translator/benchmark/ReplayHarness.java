@@ -0,0 +1,350 @@
+package com.trans.translator.benchmark;
+
+import com.trans.translator.dictionary.CompiledDictionary;
+import com.trans.translator.dictionary.DictionaryCompiler;
+import com.trans.translator.dictionary.DictionaryEntry;
+import com.trans.translator.dictionary.DictionaryLoader;
+import com.trans.translator.dictionary.LatencyHistogram;
+import com.trans.translator.dictionary.Metrics;
+import com.trans.translator.dictionary.RukigaDictionary;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a query log against the dictionary from several threads at once and reports throughput,
+ * latency percentiles and allocation per query, for the mix of queries and the contention that the
+ * microbenchmarks leave out.
+ *
+ * The log is a tab-separated file of {@code direction kind query} lines, where the direction is
+ * {@code rukiga}, {@code english} or {@code sentence}, an English sentence looked up as a
+ * translation through English does, and the kind groups the latencies, e.g. {@code hit},
+ * {@code miss}, {@code prefix}, {@code short} or {@code phrase}; blank lines and lines starting
+ * with {@code #} are skipped. Every query is first run once on its own and its result checked
+ * against a golden file of {@code direction query digest preview} lines, and every concurrent
+ * result is then checked against that first one, so that performance work cannot silently change
+ * a translation. The run exits with status 1 on any difference.
+ *
+ * {@code ReplayHarness --queries <log> --golden <file> [--threads N] [--warmup R] [--rounds R]
+ * [--write-golden]}, with the text dictionary named by the {@code dictionary.text} system
+ * property; {@code --write-golden} records the current results instead of checking them.
+ */
+public final class ReplayHarness {
+
+    private static final String RUKIGA = "rukiga";
+    private static final String ENGLISH = "english";
+    private static final String SENTENCE = "sentence";
+    // Hex digits of the SHA-256 of a result kept in the golden file.
+    private static final int DIGEST_LENGTH = 16;
+    private static final int PREVIEW_LENGTH = 60;
+    // Differences spelled out before the rest are only counted.
+    private static final int MISMATCH_SAMPLE_SIZE = 10;
+
+    private final RukigaDictionary dictionary;
+    private final List<Query> queries;
+
+    private ReplayHarness(RukigaDictionary dictionary, List<Query> queries) {
+        this.dictionary = dictionary;
+        this.queries = queries;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Path queryLog = Paths.get(required(options, "queries"));
+        Path golden = Paths.get(required(options, "golden"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int warmupRounds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int rounds = Integer.parseInt(options.getOrDefault("rounds", "20"));
+
+        ReplayHarness harness = new ReplayHarness(load(threads), readQueries(queryLog));
+        String[] expected = harness.runOnce();
+        if (options.containsKey("write-golden")) {
+            harness.writeGolden(golden, expected);
+            System.out.println("Wrote " + expected.length + " results to " + golden);
+            return;
+        }
+        int mismatches = harness.checkGolden(golden, expected);
+
+        harness.replay(threads, warmupRounds, expected, false);
+        Metrics.global().reset();
+        long concurrentMismatches = harness.replay(threads, rounds, expected, true);
+        System.out.println();
+        System.out.print(Metrics.global().report());
+
+        if (concurrentMismatches > 0) {
+            System.out.println(concurrentMismatches + " concurrent results differed from the same query run alone");
+        }
+        if (mismatches > 0 || concurrentMismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds the dictionary from the text the way the app loads its compiled asset.
+     */
+    private static RukigaDictionary load(int threads) throws IOException {
+        byte[] compiled = DictionaryCompiler.compileText(DictionaryText.read());
+        CompiledDictionary mapped = CompiledDictionary.map(DictionaryText.writeTemporary(compiled));
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            return DictionaryLoader.load(mapped, pool, Math.max(1, threads), null).join();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs every query once on the calling thread and returns the results in log order.
+     */
+    private String[] runOnce() {
+        String[] results = new String[queries.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = run(queries.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * Replays the log {@code rounds} times on each of {@code threads} threads, each starting at a
+     * different query, and returns how many results differed from {@code expected}. Latencies go
+     * to {@code replay.*} histograms of {@link Metrics}; a measured replay also prints a summary.
+     */
+    private long replay(int threads, int rounds, String[] expected, boolean measured) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        LatencyHistogram all = Metrics.global().histogram("replay.all");
+        Map<String, LatencyHistogram> byKind = new HashMap<>();
+        LatencyHistogram[] histograms = new LatencyHistogram[queries.size()];
+        for (int i = 0; i < histograms.length; i++) {
+            Query query = queries.get(i);
+            histograms[i] = byKind.computeIfAbsent(query.direction + "." + query.kind,
+                    name -> Metrics.global().histogram("replay." + name));
+        }
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        boolean allocationSupported = threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported();
+        AtomicLong allocated = new AtomicLong();
+        AtomicLong mismatches = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = (int) ((long) queries.size() * t / threads);
+            workers.add(pool.submit(() -> {
+                long allocatedBefore = allocatedBytes(threadBean, allocationSupported);
+                start.await();
+                for (int round = 0; round < rounds; round++) {
+                    for (int n = 0; n < queries.size(); n++) {
+                        int i = (offset + n) % queries.size();
+                        long begin = System.nanoTime();
+                        String result = run(queries.get(i));
+                        long elapsed = System.nanoTime() - begin;
+                        all.record(elapsed);
+                        histograms[i].record(elapsed);
+                        if (!result.equals(expected[i])) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+                allocated.addAndGet(allocatedBytes(threadBean, allocationSupported) - allocatedBefore);
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+
+        if (measured) {
+            long total = (long) threads * rounds * queries.size();
+            System.out.printf(Locale.ROOT, "Replayed %d queries %d times on %d threads: %d queries in %.2f s, %.0f queries/s%n",
+                    queries.size(), rounds, threads, total, elapsed / 1e9, total / (elapsed / 1e9));
+            if (allocationSupported) {
+                System.out.printf(Locale.ROOT, "Allocated %.1f KiB per query%n", allocated.get() / 1024.0 / total);
+            } else {
+                System.out.println("Allocation per query not measured: no thread allocation counter on this JVM");
+            }
+            System.out.printf(Locale.ROOT, "%n  %-24s %8s %9s %9s %9s %9s  (ms)%n", "", "count", "p50", "p99", "p999", "max");
+            List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+            snapshots.add(all.snapshot());
+            for (LatencyHistogram histogram : new TreeMap<>(byKind).values()) {
+                snapshots.add(histogram.snapshot());
+            }
+            for (LatencyHistogram.Snapshot snapshot : snapshots) {
+                System.out.printf(Locale.ROOT, "  %-24s %8d %9.3f %9.3f %9.3f %9.3f%n", snapshot.name, snapshot.count,
+                        snapshot.percentileNanos(0.50) / 1e6, snapshot.percentileNanos(0.99) / 1e6,
+                        snapshot.percentileNanos(0.999) / 1e6, snapshot.maxNanos / 1e6);
+            }
+        }
+        return mismatches.get();
+    }
+
+    private static long allocatedBytes(ThreadMXBean threadBean, boolean supported) {
+        return supported
+                ? ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId())
+                : 0;
+    }
+
+    /**
+     * Runs a query the way the app's translate button does, and a sentence the way a translation
+     * through English does, rendering an English to Rukiga result as its headword and definition
+     * lines.
+     */
+    private String run(Query query) {
+        if (query.direction.equals(RUKIGA)) {
+            return dictionary.translateRukigaToEnglish(query.text);
+        }
+        StringBuilder result = new StringBuilder();
+        List<DictionaryEntry> entries = query.direction.equals(SENTENCE)
+                ? dictionary.translateEnglishSentence(query.text)
+                : dictionary.translateEnglishToRukiga(query.text);
+        for (DictionaryEntry entry : entries) {
+            result.append(entry.displayHeadword).append('\t').append(entry.definition).append('\n');
+        }
+        return result.toString();
+    }
+
+    /**
+     * Compares the results with the golden file, printing the differences, and returns how many
+     * queries differ or are missing from it.
+     */
+    private int checkGolden(Path golden, String[] results) throws IOException {
+        Map<String, String[]> recorded = new HashMap<>();
+        for (String line : Files.readAllLines(golden, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 4) {
+                throw new IOException("Malformed golden line: " + line);
+            }
+            recorded.put(fields[0] + '\t' + fields[1], fields);
+        }
+        int mismatches = 0;
+        for (int i = 0; i < results.length; i++) {
+            Query query = queries.get(i);
+            String[] fields = recorded.get(query.direction + '\t' + query.text);
+            if (fields != null && fields[2].equals(digest(results[i]))) {
+                continue;
+            }
+            if (++mismatches <= MISMATCH_SAMPLE_SIZE) {
+                System.out.println(fields == null
+                        ? "Not in the golden file: " + query.direction + " \"" + query.text + '"'
+                        : "Changed: " + query.direction + " \"" + query.text + "\"\n  was: " + fields[3]
+                        + "\n  now: " + preview(results[i]));
+            }
+        }
+        System.out.println(mismatches == 0
+                ? "All " + results.length + " results match " + golden
+                : mismatches + " of " + results.length + " results differ from " + golden);
+        return mismatches;
+    }
+
+    private void writeGolden(Path golden, String[] results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("# direction\tquery\tSHA-256 prefix of the result\tstart of the result");
+        lines.add("# Rewrite with ReplayHarness --write-golden after a deliberate change of results.");
+        for (int i = 0; i < results.length; i++) {
+            Query query = queries.get(i);
+            lines.add(query.direction + '\t' + query.text + '\t' + digest(results[i]) + '\t' + preview(results[i]));
+        }
+        Files.write(golden, lines, StandardCharsets.UTF_8);
+    }
+
+    private static String digest(String result) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(result.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < DIGEST_LENGTH / 2; i++) {
+                hex.append(String.format(Locale.ROOT, "%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String preview(String result) {
+        String flat = result.replaceAll("\\s+", " ").trim();
+        return flat.length() <= PREVIEW_LENGTH ? flat : flat.substring(0, PREVIEW_LENGTH) + "...";
+    }
+
+    private static List<Query> readQueries(Path log) throws IOException {
+        List<Query> queries = new ArrayList<>();
+        for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t", 3);
+            if (fields.length != 3
+                    || !(fields[0].equals(RUKIGA) || fields[0].equals(ENGLISH) || fields[0].equals(SENTENCE))) {
+                throw new IOException("Malformed query line: " + line);
+            }
+            queries.add(new Query(fields[0], fields[1], fields[2]));
+        }
+        if (queries.isEmpty()) {
+            throw new IOException("No queries in " + log);
+        }
+        return queries;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (name.equals("write-golden")) {
+                options.put(name, "");
+            } else if (i + 1 < args.length) {
+                options.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+        }
+        return options;
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing --" + name);
+        }
+        return value;
+    }
+
+    private static final class Query {
+        final String direction;
+        final String kind;
+        final String text;
+
+        Query(String direction, String kind, String text) {
+            this.direction = direction;
+            this.kind = kind;
+            this.text = text;
+        }
+    }
+}
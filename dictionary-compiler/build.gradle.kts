@@ -0,0 +1,19 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// Build-time tooling only: the app runs it to compile its text dictionaries, and the JVM tools
+// and tests use it to compile them in process. It is never packaged into the app.
+dependencies {
+    api(project(":dictionary"))
+    implementation(libs.annotation)
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
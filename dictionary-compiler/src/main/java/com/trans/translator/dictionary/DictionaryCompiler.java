@@ -0,0 +1,227 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Compiles the text dictionary into the binary index read by {@link CompiledDictionary}.
+ *
+ * Runs at build time through the {@code compileDictionary} task of the {@code app} module:
+ * {@code DictionaryCompiler <rukiga_dictionary.txt> <rukiga_dictionary.bin>}. Every compiled index
+ * is read back and checked against {@link DictionaryParser} before it is written, so a format or
+ * parser change that alters lookups fails the build.
+ *
+ * It lives in its own module, next to the runtime classes it shares a package with, so that it is
+ * on the classpath of the build and the JVM tools but never packaged into the app.
+ */
+public final class DictionaryCompiler {
+
+    private DictionaryCompiler() {
+        // Utility class.
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: DictionaryCompiler <dictionary.txt> <dictionary.bin>");
+            System.exit(2);
+        }
+        Path source = Paths.get(args[0]);
+        Path target = Paths.get(args[1]);
+
+        byte[] text = Files.readAllBytes(source);
+        List<DictionaryEntry> entries;
+        try (Reader reader = new InputStreamReader(
+                new ByteArrayInputStream(text), StandardCharsets.UTF_8)) {
+            entries = DictionaryParser.parse(reader);
+        }
+
+        byte[] compiled = compile(entries, stamp(text));
+        List<String> mismatches = verify(entries, CompiledDictionary.open(ByteBuffer.wrap(compiled)));
+        if (!mismatches.isEmpty()) {
+            throw new IOException("Compiled dictionary disagrees with the text parser: "
+                    + mismatches.subList(0, Math.min(10, mismatches.size())));
+        }
+
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(target, compiled);
+        System.out.println("Compiled " + entries.size() + " entries into " + target
+                + " (" + compiled.length + " bytes)");
+    }
+
+    /**
+     * Checksum identifying a version of the text dictionary.
+     */
+    public static long stamp(@NonNull byte[] text) {
+        CRC32 crc = new CRC32();
+        crc.update(text, 0, text.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Parses the text dictionary and serializes its entries into the binary index format, for
+     * callers compiling it in process, such as tools and benchmarks running on a plain JVM.
+     */
+    @NonNull
+    public static byte[] compileText(@NonNull byte[] text) throws IOException {
+        List<DictionaryEntry> entries;
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.UTF_8)) {
+            entries = DictionaryParser.parse(reader);
+        }
+        return compile(entries, stamp(text));
+    }
+
+    /**
+     * Serializes the parsed entries into the binary index format.
+     */
+    @NonNull
+    public static byte[] compile(@NonNull List<DictionaryEntry> entries, long sourceStamp) throws IOException {
+        // Headword -> entry ids, mirroring DictionaryParser.groupByHeadword.
+        Map<String, List<Integer>> grouped = new LinkedHashMap<>();
+        Set<String> seenDefinitions = new HashSet<>();
+        for (int id = 0; id < entries.size(); id++) {
+            String normalizedHeadword = DictionaryParser.normalizeHeadword(entries.get(id).displayHeadword);
+            addPosting(grouped, seenDefinitions, entries, normalizedHeadword, id);
+
+            String baseHeadword = DictionaryParser.baseHeadword(normalizedHeadword);
+            if (!baseHeadword.equals(normalizedHeadword)) {
+                addPosting(grouped, seenDefinitions, entries, baseHeadword, id);
+            }
+        }
+        TreeMap<String, List<Integer>> sorted = new TreeMap<>(grouped);
+
+        Blob blob = new Blob();
+        ByteArrayOutputStream tables = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(tables);
+
+        for (DictionaryEntry entry : entries) {
+            blob.write(out, entry.displayHeadword);
+            blob.write(out, entry.definition);
+        }
+
+        int postingCount = 0;
+        for (Map.Entry<String, List<Integer>> headword : sorted.entrySet()) {
+            blob.write(out, headword.getKey());
+            out.writeInt(postingCount);
+            out.writeInt(headword.getValue().size());
+            postingCount += headword.getValue().size();
+        }
+
+        for (List<Integer> postings : sorted.values()) {
+            for (int id : postings) {
+                out.writeInt(id);
+            }
+        }
+        out.flush();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(
+                CompiledDictionary.HEADER_SIZE + tables.size() + blob.bytes.size());
+        DataOutputStream header = new DataOutputStream(result);
+        header.writeInt(CompiledDictionary.MAGIC);
+        header.writeInt(CompiledDictionary.FORMAT_VERSION);
+        header.writeLong(sourceStamp);
+        header.writeInt(entries.size());
+        header.writeInt(sorted.size());
+        header.writeInt(postingCount);
+        header.writeInt(blob.bytes.size());
+        header.flush();
+        tables.writeTo(result);
+        blob.bytes.writeTo(result);
+        return result.toByteArray();
+    }
+
+    /**
+     * Compares every entry and headword lookup of a compiled index with the text parser output.
+     *
+     * @return a description of each mismatch; empty when the index is faithful.
+     */
+    @NonNull
+    public static List<String> verify(@NonNull List<DictionaryEntry> entries, @NonNull CompiledDictionary compiled) {
+        List<String> mismatches = new ArrayList<>();
+        if (compiled.entryCount() != entries.size()) {
+            mismatches.add("entry count " + compiled.entryCount() + " != " + entries.size());
+            return mismatches;
+        }
+        for (int id = 0; id < entries.size(); id++) {
+            DictionaryEntry expected = entries.get(id);
+            if (!expected.displayHeadword.equals(compiled.displayHeadword(id))
+                    || !expected.definition.equals(compiled.definition(id))) {
+                mismatches.add("entry " + id + " (" + expected.displayHeadword + ")");
+            }
+        }
+
+        Map<String, List<String>> grouped = DictionaryParser.groupByHeadword(entries);
+        if (compiled.headwordCount() != grouped.size()) {
+            mismatches.add("headword count " + compiled.headwordCount() + " != " + grouped.size());
+        }
+        for (Map.Entry<String, List<String>> headword : grouped.entrySet()) {
+            int index = compiled.findHeadword(headword.getKey());
+            if (index < 0) {
+                mismatches.add("missing headword " + headword.getKey());
+                continue;
+            }
+            List<String> definitions = new ArrayList<>();
+            for (int i = 0; i < compiled.postingCount(index); i++) {
+                definitions.add(compiled.definition(compiled.posting(index, i)));
+            }
+            if (!definitions.equals(headword.getValue())) {
+                mismatches.add("definitions of " + headword.getKey());
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Adds an entry under a headword unless the headword already lists the same definition.
+     * {@code seenDefinitions} holds "headword NUL definition" pairs so the check is a single hash
+     * probe rather than a scan of the headword's postings.
+     */
+    private static void addPosting(Map<String, List<Integer>> grouped, Set<String> seenDefinitions,
+                                   List<DictionaryEntry> entries, String headword, int id) {
+        if (seenDefinitions.add(headword + '\0' + entries.get(id).definition)) {
+            grouped.computeIfAbsent(headword, key -> new ArrayList<>()).add(id);
+        }
+    }
+
+    /**
+     * UTF-8 string pool that stores each distinct string once.
+     */
+    private static final class Blob {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Map<String, int[]> offsets = new HashMap<>();
+
+        void write(DataOutputStream table, String value) throws IOException {
+            int[] location = offsets.get(value);
+            if (location == null) {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                location = new int[]{bytes.size(), encoded.length};
+                bytes.write(encoded, 0, encoded.length);
+                offsets.put(value, location);
+            }
+            table.writeInt(location[0]);
+            table.writeInt(location[1]);
+        }
+    }
+}
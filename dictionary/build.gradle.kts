@@ -0,0 +1,25 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(libs.annotation)
+    testImplementation(libs.junit)
+    testImplementation(project(":dictionary-compiler"))
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+// The tests run against the app's text dictionary.
+tasks.test {
+    val dictionary = rootProject.layout.projectDirectory.file("app/src/main/dictionary/rukiga_dictionary.txt")
+    inputs.file(dictionary)
+    systemProperty("dictionary.text", dictionary.asFile.absolutePath)
+}
@@ -0,0 +1,263 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view over the binary dictionary index produced by {@code DictionaryCompiler}, in the
+ * build-time {@code dictionary-compiler} module.
+ *
+ * The index is designed to be memory-mapped straight out of the APK, so opening it does no
+ * parsing: every accessor reads from the buffer on demand. The layout (all integers big-endian) is
+ *
+ * <pre>
+ *   header     magic, format version, source stamp, entry/headword/posting counts, blob length
+ *   entries    entryCount    x (headword offset, headword length, definition offset, definition length)
+ *   headwords  headwordCount x (key offset, key length, first posting, posting count), sorted by key
+ *   postings   postingCount  x entry id
+ *   blob       UTF-8 bytes referenced by the tables above
+ * </pre>
+ *
+ * Instances are immutable and safe to share between threads.
+ */
+public final class CompiledDictionary {
+
+    static final int MAGIC = 0x524B4458; // "RKDX"
+    public static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 32;
+    static final int ENTRY_RECORD_SIZE = 16;
+    static final int HEADWORD_RECORD_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final long sourceStamp;
+    private final int entryCount;
+    private final int headwordCount;
+    private final int entriesOffset;
+    private final int headwordsOffset;
+    private final int postingsOffset;
+    private final int blobOffset;
+
+    private CompiledDictionary(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled dictionary");
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported dictionary format version " + version);
+        }
+        sourceStamp = buffer.getLong(8);
+        entryCount = buffer.getInt(16);
+        headwordCount = buffer.getInt(20);
+        int postingCount = buffer.getInt(24);
+        int blobLength = buffer.getInt(28);
+
+        entriesOffset = HEADER_SIZE;
+        headwordsOffset = entriesOffset + entryCount * ENTRY_RECORD_SIZE;
+        postingsOffset = headwordsOffset + headwordCount * HEADWORD_RECORD_SIZE;
+        blobOffset = postingsOffset + postingCount * 4;
+        if (blobOffset + blobLength > buffer.capacity()) {
+            throw new IOException("Truncated dictionary index");
+        }
+    }
+
+    /**
+     * Wraps a buffer holding a compiled dictionary, typically a memory-mapped asset.
+     *
+     * @throws IOException if the buffer is not a compiled dictionary of the supported version.
+     */
+    @NonNull
+    public static CompiledDictionary open(@NonNull ByteBuffer buffer) throws IOException {
+        ByteBuffer view = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        return new CompiledDictionary(view.slice().order(ByteOrder.BIG_ENDIAN));
+    }
+
+    /**
+     * Memory-maps a compiled dictionary file read-only. The mapping stays valid after the file is
+     * closed.
+     *
+     * @throws IOException if the file cannot be read or is not a compiled dictionary of the
+     *                     supported version.
+     */
+    @NonNull
+    public static CompiledDictionary map(@NonNull Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return open(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Checksum of the text dictionary this index was compiled from.
+     */
+    public long sourceStamp() {
+        return sourceStamp;
+    }
+
+    public int entryCount() {
+        return entryCount;
+    }
+
+    public int headwordCount() {
+        return headwordCount;
+    }
+
+    @NonNull
+    public String displayHeadword(int entryId) {
+        int record = entriesOffset + entryId * ENTRY_RECORD_SIZE;
+        return decode(buffer.getInt(record), buffer.getInt(record + 4));
+    }
+
+    @NonNull
+    public String definition(int entryId) {
+        int record = entriesOffset + entryId * ENTRY_RECORD_SIZE;
+        return decode(buffer.getInt(record + 8), buffer.getInt(record + 12));
+    }
+
+    @NonNull
+    public DictionaryEntry entry(int entryId) {
+        return new DictionaryEntry(displayHeadword(entryId), definition(entryId));
+    }
+
+    /**
+     * Returns the normalized headword stored at the given position of the sorted headword table.
+     */
+    @NonNull
+    public String headword(int index) {
+        int record = headwordsOffset + index * HEADWORD_RECORD_SIZE;
+        return decode(buffer.getInt(record), buffer.getInt(record + 4));
+    }
+
+    /**
+     * Binary searches the headword table for a normalized headword.
+     *
+     * @return the headword index, or {@code -(insertionPoint + 1)} when it is absent.
+     */
+    public int findHeadword(@NonNull CharSequence normalized) {
+        int low = 0;
+        int high = headwordCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareHeadword(mid, normalized);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Finds the run of headwords starting with a normalized prefix with two binary searches.
+     *
+     * @return the first headword index of the run; the run ends before
+     * {@link #prefixEnd(CharSequence, int)}.
+     */
+    public int prefixStart(@NonNull CharSequence prefix) {
+        return prefixStart(prefix, 0, headwordCount);
+    }
+
+    /**
+     * Returns the index just past the last headword starting with {@code prefix}, searching from
+     * {@code start} as returned by {@link #prefixStart(CharSequence)}.
+     */
+    public int prefixEnd(@NonNull CharSequence prefix, int start) {
+        return prefixEnd(prefix, start, headwordCount);
+    }
+
+    /**
+     * Like {@link #prefixStart(CharSequence)}, searching only {@code [low, high)}, e.g. the run of a
+     * shorter prefix of {@code prefix}.
+     */
+    public int prefixStart(@NonNull CharSequence prefix, int low, int high) {
+        return boundary(prefix, low, high, false);
+    }
+
+    /**
+     * Like {@link #prefixEnd(CharSequence, int)}, searching only up to {@code high}.
+     */
+    public int prefixEnd(@NonNull CharSequence prefix, int start, int high) {
+        return boundary(prefix, start, high, true);
+    }
+
+    public int postingCount(int headwordIndex) {
+        return buffer.getInt(headwordsOffset + headwordIndex * HEADWORD_RECORD_SIZE + 12);
+    }
+
+    /**
+     * Returns the {@code i}-th entry id listed under a headword. Entry ids are in file order.
+     */
+    public int posting(int headwordIndex, int i) {
+        int first = buffer.getInt(headwordsOffset + headwordIndex * HEADWORD_RECORD_SIZE + 8);
+        return buffer.getInt(postingsOffset + (first + i) * 4);
+    }
+
+    /**
+     * Compares the stored headword at {@code index} with {@code key}. Both are normalized, so
+     * they only contain ASCII characters and byte order equals character order.
+     */
+    int compareHeadword(int index, CharSequence key) {
+        int record = headwordsOffset + index * HEADWORD_RECORD_SIZE;
+        int offset = blobOffset + buffer.getInt(record);
+        int length = buffer.getInt(record + 4);
+        int shared = Math.min(length, key.length());
+        for (int i = 0; i < shared; i++) {
+            int diff = (buffer.get(offset + i) & 0xFF) - key.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length();
+    }
+
+    /**
+     * Returns the first index in {@code [low, high)} whose headword compares greater than or equal
+     * to {@code prefix} or, when {@code upper} is set, strictly greater than it, where every
+     * headword starting with the prefix compares equal; {@code high} if there is none.
+     */
+    private int boundary(CharSequence prefix, int low, int high, boolean upper) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = comparePrefix(mid, prefix);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int comparePrefix(int index, CharSequence prefix) {
+        int record = headwordsOffset + index * HEADWORD_RECORD_SIZE;
+        int offset = blobOffset + buffer.getInt(record);
+        int length = buffer.getInt(record + 4);
+        int shared = Math.min(length, prefix.length());
+        for (int i = 0; i < shared; i++) {
+            int diff = (buffer.get(offset + i) & 0xFF) - prefix.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length < prefix.length() ? -1 : 0;
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        int start = blobOffset + offset;
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,279 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graph of the {@code See:}, {@code Var:}, {@code Sing:} and {@code Pl:} references between
+ * entries, resolved to headword indexes once when the dictionary is loaded.
+ *
+ * Many entries are only pointers such as {@code ebitobo n. See: ENTOBO.}; with the graph a lookup
+ * can show the target definition directly instead of sending the user on another search.
+ * References whose target is not a headword are counted as dangling.
+ */
+public final class CrossReferences {
+
+    public static final int SEE = 0;
+    public static final int VARIANT = 1;
+    public static final int SINGULAR = 2;
+    public static final int PLURAL = 3;
+
+    private static final String[] LABELS = {"See:", "Var:", "Sing:", "Pl:"};
+
+    /** Longest reference target, in words, that is still read as a headword. */
+    private static final int MAX_TARGET_WORDS = 3;
+
+    private final int[] start;
+    private final int[] targets;
+    private final byte[] kinds;
+    private final boolean[] pointers;
+    private final int referenceCount;
+    private final List<String> dangling;
+
+    private CrossReferences(int[] start, int[] targets, byte[] kinds, boolean[] pointers,
+                            int referenceCount, List<String> dangling) {
+        this.start = start;
+        this.targets = targets;
+        this.kinds = kinds;
+        this.pointers = pointers;
+        this.referenceCount = referenceCount;
+        this.dangling = dangling;
+    }
+
+    /**
+     * Parses the references out of every definition and resolves them against the headword
+     * table, including numbered homographs such as {@code AMATOJO2} or {@code KAFUBA 2}.
+     */
+    @NonNull
+    public static CrossReferences build(@NonNull CompiledDictionary compiled) {
+        Map<String, Integer> compacted = compactedHeadwords(compiled);
+        return merge(Collections.singletonList(scan(compiled, compacted, 0, compiled.entryCount())));
+    }
+
+    /**
+     * Maps every headword with its apostrophes, hyphens and spaces removed to its index, because
+     * targets are often written that way, e.g. AHABWOKUBA for ahabw'okuba.
+     */
+    static Map<String, Integer> compactedHeadwords(CompiledDictionary compiled) {
+        Map<String, Integer> compacted = new HashMap<>();
+        for (int i = 0; i < compiled.headwordCount(); i++) {
+            compacted.putIfAbsent(compact(compiled.headword(i)), i);
+        }
+        return compacted;
+    }
+
+    /**
+     * Resolves the references of the entries in {@code [from, to)}. Chunks can be scanned in
+     * parallel and then combined with {@link #merge}.
+     */
+    static Chunk scan(CompiledDictionary compiled, Map<String, Integer> compacted, int from, int to) {
+        Chunk chunk = new Chunk(from, to);
+        for (int id = from; id < to; id++) {
+            String definition = compiled.definition(id);
+            StringBuilder remainder = new StringBuilder();
+            int resolved = chunk.targets.size();
+            int position = 0;
+            while (position < definition.length()) {
+                int label = nextLabel(definition, position);
+                if (label < 0) {
+                    remainder.append(definition, position, definition.length());
+                    break;
+                }
+                int kind = labelKind(definition, label);
+                remainder.append(definition, position, label);
+
+                int clauseStart = label + LABELS[kind].length();
+                int clauseEnd = definition.indexOf('.', clauseStart);
+                if (clauseEnd < 0) {
+                    clauseEnd = definition.length();
+                }
+                for (String part : definition.substring(clauseStart, clauseEnd).split(",")) {
+                    String target = DictionaryParser.normalizeHeadword(part);
+                    if (target.isEmpty() || target.split(" ").length > MAX_TARGET_WORDS) {
+                        continue;
+                    }
+                    chunk.referenceCount++;
+                    int headword = resolve(compiled, compacted, target);
+                    if (headword < 0) {
+                        chunk.dangling.add(compiled.displayHeadword(id) + " -> " + part.trim());
+                        continue;
+                    }
+                    chunk.targets.add(headword);
+                    chunk.kinds.add(kind);
+                }
+                position = Math.min(clauseEnd + 1, definition.length());
+            }
+            chunk.counts[id - from] = chunk.targets.size() - resolved;
+            chunk.pointers[id - from] = chunk.targets.size() > resolved && isPartOfSpeechOnly(remainder);
+        }
+        return chunk;
+    }
+
+    /**
+     * Concatenates chunks covering consecutive entry ranges, given in ascending order.
+     */
+    static CrossReferences merge(List<Chunk> chunks) {
+        int entryCount = chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).to;
+        int[] start = new int[entryCount + 1];
+        boolean[] pointers = new boolean[entryCount];
+        IntList targets = new IntList(entryCount);
+        IntList kinds = new IntList(entryCount);
+        int referenceCount = 0;
+        List<String> dangling = new ArrayList<>();
+
+        for (Chunk chunk : chunks) {
+            for (int id = chunk.from; id < chunk.to; id++) {
+                start[id + 1] = start[id] + chunk.counts[id - chunk.from];
+            }
+            System.arraycopy(chunk.pointers, 0, pointers, chunk.from, chunk.to - chunk.from);
+            targets.addAll(chunk.targets);
+            kinds.addAll(chunk.kinds);
+            referenceCount += chunk.referenceCount;
+            dangling.addAll(chunk.dangling);
+        }
+
+        byte[] kindBytes = new byte[kinds.size()];
+        for (int i = 0; i < kindBytes.length; i++) {
+            kindBytes[i] = (byte) kinds.get(i);
+        }
+        return new CrossReferences(start, targets.toArray(), kindBytes, pointers, referenceCount, dangling);
+    }
+
+    /**
+     * Number of resolved references made by an entry.
+     */
+    public int count(int entryId) {
+        return start[entryId + 1] - start[entryId];
+    }
+
+    /**
+     * Headword index targeted by the {@code i}-th resolved reference of an entry.
+     */
+    public int target(int entryId, int i) {
+        return targets[start[entryId] + i];
+    }
+
+    /**
+     * Kind of the {@code i}-th resolved reference of an entry, one of {@link #SEE},
+     * {@link #VARIANT}, {@link #SINGULAR} or {@link #PLURAL}.
+     */
+    public int kind(int entryId, int i) {
+        return kinds[start[entryId] + i];
+    }
+
+    /**
+     * Whether the entry has no content of its own beyond a part of speech and references.
+     */
+    public boolean isPointer(int entryId) {
+        return pointers[entryId];
+    }
+
+    /**
+     * Bytes held by the graph arrays.
+     */
+    public long sizeInBytes() {
+        return (start.length + targets.length) * 4L + kinds.length + pointers.length;
+    }
+
+    /**
+     * Total number of references found, resolved or not.
+     */
+    public int referenceCount() {
+        return referenceCount;
+    }
+
+    /**
+     * The references that did not resolve, as {@code "headword -> target"} descriptions.
+     */
+    @NonNull
+    public List<String> dangling() {
+        return dangling;
+    }
+
+    private static int resolve(CompiledDictionary compiled, Map<String, Integer> compacted, String target) {
+        int index = compiled.findHeadword(target);
+        if (index >= 0) {
+            return index;
+        }
+        Integer match = compacted.get(compact(target));
+        return match != null ? match : -1;
+    }
+
+    /**
+     * References resolved for a range of entries.
+     */
+    static final class Chunk {
+        final int from;
+        final int to;
+        final int[] counts;
+        final boolean[] pointers;
+        final IntList targets = new IntList();
+        final IntList kinds = new IntList();
+        final List<String> dangling = new ArrayList<>();
+        int referenceCount;
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+            this.counts = new int[to - from];
+            this.pointers = new boolean[to - from];
+        }
+    }
+
+    /**
+     * Drops everything but letters and digits so that {@code kafuba 2} meets {@code kafuba2} and
+     * {@code ahabwokuba} meets {@code ahabw'okuba}.
+     */
+    private static String compact(String normalized) {
+        StringBuilder compacted = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                compacted.append(c);
+            }
+        }
+        return compacted.toString();
+    }
+
+    private static int nextLabel(String definition, int from) {
+        int next = -1;
+        for (String label : LABELS) {
+            int found = definition.indexOf(label, from);
+            if (found >= 0 && (next < 0 || found < next)) {
+                next = found;
+            }
+        }
+        return next;
+    }
+
+    private static int labelKind(String definition, int at) {
+        for (int kind = 0; kind < LABELS.length; kind++) {
+            if (definition.startsWith(LABELS[kind], at)) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("No reference label at " + at);
+    }
+
+    /**
+     * True when what is left of a definition once its references are removed is at most a part
+     * of speech such as {@code n.} or {@code adv.}.
+     */
+    private static boolean isPartOfSpeechOnly(CharSequence remainder) {
+        String rest = remainder.toString().trim();
+        if (rest.endsWith(".")) {
+            rest = rest.substring(0, rest.length() - 1);
+        }
+        for (int i = 0; i < rest.length(); i++) {
+            if (!Character.isLowerCase(rest.charAt(i))) {
+                return false;
+            }
+        }
+        return rest.length() <= 5;
+    }
+}
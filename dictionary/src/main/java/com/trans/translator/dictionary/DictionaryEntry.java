@@ -0,0 +1,14 @@
+package com.trans.translator.dictionary;
+
+/**
+ * A single Runyankore/Rukiga headword together with its cleaned English definition.
+ */
+public final class DictionaryEntry {
+    public final String displayHeadword;
+    public final String definition;
+
+    public DictionaryEntry(String displayHeadword, String definition) {
+        this.displayHeadword = displayHeadword;
+        this.definition = definition;
+    }
+}
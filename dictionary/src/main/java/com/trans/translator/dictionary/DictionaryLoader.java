@@ -0,0 +1,150 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the in-memory indexes of a {@link RukigaDictionary} in parallel.
+ *
+ * The compiled dictionary is split into chunks of consecutive entries, i.e. at headword
+ * boundaries. The entry fields, then the English word index over them, and the cross-references
+ * are scanned chunk by chunk on the given executor and merged in entry order, so the result is
+ * identical to a sequential build; the example sentence index, the stem index and the fuzzy
+ * matcher are built alongside them.
+ */
+public final class DictionaryLoader {
+
+    /**
+     * Receives loading progress, on whichever executor thread finished a step.
+     */
+    public interface ProgressListener {
+        void onProgress(int completedSteps, int totalSteps);
+    }
+
+    /** Entry fields, English index, sentence index, stem index, fuzzy matcher and cross-references. */
+    public static final int STEP_COUNT = 6;
+
+    private DictionaryLoader() {
+        // Utility class.
+    }
+
+    /**
+     * Starts building the indexes and returns a future completed with the ready dictionary.
+     *
+     * @param chunkCount number of entry ranges scanned concurrently, typically the number of
+     *                   threads of {@code executor}.
+     */
+    @NonNull
+    public static CompletableFuture<RukigaDictionary> load(@NonNull CompiledDictionary compiled,
+                                                           @NonNull Executor executor,
+                                                           int chunkCount,
+                                                           @Nullable ProgressListener listener) {
+        long start = System.nanoTime();
+        AtomicInteger completed = new AtomicInteger();
+        int[] bounds = chunkBounds(compiled.entryCount(), Math.max(1, chunkCount));
+
+        List<CompletableFuture<EntryFields.Chunk>> fieldChunks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int from = bounds[i];
+            int to = bounds[i + 1];
+            fieldChunks.add(CompletableFuture.supplyAsync(
+                    () -> EntryFields.scan(compiled, from, to), executor));
+        }
+        CompletableFuture<EntryFields> fields = allOf(fieldChunks)
+                .thenApplyAsync(EntryFields::merge, executor)
+                .whenComplete((index, error) -> report(listener, completed, "entry_fields", start));
+
+        CompletableFuture<EnglishIndex> english = fields
+                .thenCompose(entryFields -> {
+                    List<CompletableFuture<EnglishIndex.Chunk>> chunks = new ArrayList<>();
+                    for (int i = 0; i + 1 < bounds.length; i++) {
+                        int from = bounds[i];
+                        int to = bounds[i + 1];
+                        chunks.add(CompletableFuture.supplyAsync(
+                                () -> EnglishIndex.scan(compiled, entryFields, from, to), executor));
+                    }
+                    return allOf(chunks);
+                })
+                .thenApplyAsync(EnglishIndex::merge, executor)
+                .whenComplete((index, error) -> report(listener, completed, "english_index", start));
+
+        CompletableFuture<SentenceIndex> sentences = fields
+                .thenApplyAsync(entryFields -> SentenceIndex.build(compiled, entryFields), executor)
+                .whenComplete((index, error) -> report(listener, completed, "sentence_index", start));
+
+        CompletableFuture<CrossReferences> references = CompletableFuture
+                .supplyAsync(() -> CrossReferences.compactedHeadwords(compiled), executor)
+                .thenCompose(compacted -> {
+                    List<CompletableFuture<CrossReferences.Chunk>> chunks = new ArrayList<>();
+                    for (int i = 0; i + 1 < bounds.length; i++) {
+                        int from = bounds[i];
+                        int to = bounds[i + 1];
+                        chunks.add(CompletableFuture.supplyAsync(
+                                () -> CrossReferences.scan(compiled, compacted, from, to), executor));
+                    }
+                    return allOf(chunks);
+                })
+                .thenApplyAsync(CrossReferences::merge, executor)
+                .whenComplete((index, error) -> report(listener, completed, "cross_references", start));
+
+        CompletableFuture<StemIndex> stems = CompletableFuture
+                .supplyAsync(() -> StemIndex.build(compiled), executor)
+                .whenComplete((index, error) -> report(listener, completed, "stem_index", start));
+
+        CompletableFuture<FuzzyMatcher> fuzzy = CompletableFuture
+                .supplyAsync(() -> FuzzyMatcher.build(compiled), executor)
+                .whenComplete((index, error) -> report(listener, completed, "fuzzy_matcher", start));
+
+        return CompletableFuture.allOf(english, sentences, references, stems, fuzzy)
+                .thenApply(ignored -> new RukigaDictionary(compiled, fields.join(), english.join(),
+                        sentences.join(), stems.join(), fuzzy.join(), references.join()))
+                .whenComplete((dictionary, error) ->
+                        Metrics.global().recordPhase("load.indexes", System.nanoTime() - start));
+    }
+
+    /**
+     * Splits {@code [0, entryCount)} into {@code chunkCount} near-equal consecutive ranges and
+     * returns their boundaries.
+     */
+    static int[] chunkBounds(int entryCount, int chunkCount) {
+        int chunks = Math.max(1, Math.min(chunkCount, entryCount));
+        int[] bounds = new int[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            bounds[i] = (int) ((long) entryCount * i / chunks);
+        }
+        return bounds;
+    }
+
+    /**
+     * Completes with the chunk results in submission order once every chunk is done.
+     */
+    private static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> chunks) {
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    List<T> results = new ArrayList<>(chunks.size());
+                    for (CompletableFuture<T> chunk : chunks) {
+                        results.add(chunk.join());
+                    }
+                    return results;
+                });
+    }
+
+    /**
+     * Counts a finished step and records, as the {@code load.<step>} phase, the time from the start
+     * of the load until it finished; the steps overlap, so these are not durations of their own.
+     */
+    private static void report(@Nullable ProgressListener listener, AtomicInteger completed, String step,
+                               long start) {
+        Metrics.global().recordPhase("load." + step, System.nanoTime() - start);
+        int done = completed.incrementAndGet();
+        if (listener != null) {
+            listener.onProgress(done, STEP_COUNT);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A lookup result: an entry together with where the query matched its definition, so callers
+ * can highlight the matches without searching the definition again.
+ */
+public final class DictionaryMatch {
+
+    private static final int[] NO_HIGHLIGHTS = new int[0];
+
+    public final int entryId;
+    public final String displayHeadword;
+    public final String definition;
+
+    private final int[] highlights;
+
+    public DictionaryMatch(int entryId, @NonNull String displayHeadword, @NonNull String definition,
+                           @NonNull int[] highlights) {
+        this.entryId = entryId;
+        this.displayHeadword = displayHeadword;
+        this.definition = definition;
+        this.highlights = highlights;
+    }
+
+    static DictionaryMatch of(int entryId, String displayHeadword, String definition) {
+        return new DictionaryMatch(entryId, displayHeadword, definition, NO_HIGHLIGHTS);
+    }
+
+    /**
+     * Number of highlighted ranges in the definition.
+     */
+    public int highlightCount() {
+        return highlights.length / 2;
+    }
+
+    /**
+     * Start, inclusive, of the {@code i}-th highlighted range in {@link #definition}.
+     */
+    public int highlightStart(int i) {
+        return highlights[2 * i];
+    }
+
+    /**
+     * End, exclusive, of the {@code i}-th highlighted range in {@link #definition}.
+     */
+    public int highlightEnd(int i) {
+        return highlights[2 * i + 1];
+    }
+
+    @NonNull
+    public DictionaryEntry toEntry() {
+        return new DictionaryEntry(displayHeadword, definition);
+    }
+}
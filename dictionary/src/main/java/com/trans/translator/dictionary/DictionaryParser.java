@@ -0,0 +1,130 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the text version of the UNESCO Runyankore/Rukiga-English dictionary into entries.
+ *
+ * This is the reference parser: the build compiles its output into the binary index read by
+ * {@link CompiledDictionary}, and {@code DictionaryCompiler.verify} checks the two agree.
+ */
+public final class DictionaryParser {
+
+    private static final ThreadLocal<HeadwordLexer> LEXERS = ThreadLocal.withInitial(HeadwordLexer::new);
+
+    private DictionaryParser() {
+        // Utility class.
+    }
+
+    /**
+     * Reads the dictionary text and returns its entries in file order. Entries whose headword or
+     * definition is empty after cleaning are dropped.
+     */
+    @NonNull
+    public static List<DictionaryEntry> parse(@NonNull Reader source) throws IOException {
+        List<DictionaryEntry> entries = new ArrayList<>();
+        HeadwordLexer lexer = new HeadwordLexer();
+        BufferedReader reader = source instanceof BufferedReader
+                ? (BufferedReader) source : new BufferedReader(source);
+
+        String line;
+        String currentHeadword = null;
+        StringBuilder definitionBuilder = new StringBuilder();
+
+        while ((line = reader.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+
+            if (HeadwordLexer.looksLikeHeadword(trimmed)) {
+                // Save the previous entry.
+                if (currentHeadword != null && definitionBuilder.length() > 0) {
+                    storeEntry(entries, lexer, currentHeadword, definitionBuilder.toString());
+                }
+
+                HeadwordLexer.HeadwordLine parts = lexer.splitHeadwordLine(trimmed);
+                currentHeadword = parts.headword;
+                definitionBuilder.setLength(0);
+                definitionBuilder.append(parts.definition);
+            } else if (currentHeadword != null) {
+                if (definitionBuilder.length() > 0) {
+                    definitionBuilder.append(' ');
+                }
+                definitionBuilder.append(trimmed);
+            }
+        }
+
+        if (currentHeadword != null && definitionBuilder.length() > 0) {
+            storeEntry(entries, lexer, currentHeadword, definitionBuilder.toString());
+        }
+        return entries;
+    }
+
+    /**
+     * Groups the entries by normalized headword the way lookups see them: every entry is listed
+     * under its own headword and, for numbered homographs such as {@code aba2}, under the base
+     * headword as well. Duplicate definitions under one headword are kept once.
+     */
+    @NonNull
+    public static Map<String, List<String>> groupByHeadword(@NonNull List<DictionaryEntry> entries) {
+        Map<String, List<String>> grouped = new LinkedHashMap<>();
+        for (DictionaryEntry entry : entries) {
+            String normalizedHeadword = normalizeHeadword(entry.displayHeadword);
+            addDefinition(grouped, normalizedHeadword, entry.definition);
+
+            String baseHeadword = baseHeadword(normalizedHeadword);
+            if (!baseHeadword.equals(normalizedHeadword)) {
+                addDefinition(grouped, baseHeadword, entry.definition);
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * Normalizes user input or a raw headword into the lookup key used by the index.
+     */
+    @NonNull
+    public static String normalizeHeadword(@NonNull String input) {
+        return LEXERS.get().normalize(input);
+    }
+
+    /**
+     * Strips the homograph number from a normalized headword, e.g. {@code aba2} becomes
+     * {@code aba}.
+     */
+    @NonNull
+    static String baseHeadword(@NonNull String normalizedHeadword) {
+        return HeadwordLexer.baseHeadword(normalizedHeadword);
+    }
+
+    private static void addDefinition(Map<String, List<String>> grouped, String headword, String definition) {
+        List<String> definitions = grouped.computeIfAbsent(headword, key -> new ArrayList<>());
+        if (!definitions.contains(definition)) {
+            definitions.add(definition);
+        }
+    }
+
+    private static void storeEntry(List<DictionaryEntry> entries, HeadwordLexer lexer, String rawHeadword,
+                                   String rawDefinition) {
+        String normalizedHeadword = lexer.normalize(rawHeadword);
+        if (normalizedHeadword.isEmpty()) {
+            return;
+        }
+
+        String cleanedDefinition = lexer.cleanDefinition(rawDefinition);
+        if (cleanedDefinition.isEmpty()) {
+            return;
+        }
+
+        entries.add(new DictionaryEntry(rawHeadword.trim(), cleanedDefinition));
+    }
+}
@@ -0,0 +1,547 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Inverted index from the English words used in the definitions to the entries that mention
+ * them. Built once when the dictionary is loaded so reverse lookups only touch the posting lists
+ * of the query words instead of scanning every definition.
+ *
+ * Every posting also records how often the word occurs in the entry overall, in its glosses as
+ * split by {@link EntryFields}, and in their leading words, i.e. those before the first {@code :}
+ * or {@code .} as in {@code amaizi n. 1) water: the clear liquid...}. Lookups can be limited to
+ * the entries using a word in a gloss, which leaves out those that merely use it in an example.
+ * Together with the length of every entry the counts feed a BM25 score in which leading-gloss
+ * occurrences count {@link #LEAD_GLOSS_WEIGHT} times, so the entries that translate a word rank
+ * above the others. An entry with a gloss that is the word itself, such as
+ * {@code okwereera v. to water.}, gets the largest contribution the word can make on top.
+ */
+public final class EnglishIndex {
+
+    /** How many plain occurrences a leading-gloss occurrence is worth. */
+    static final int LEAD_GLOSS_WEIGHT = 3;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    /** Postings visited between two checks for cancellation; a power of two. */
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    // Packing of the per-posting frequencies.
+    private static final int COUNT_MASK = 0x3ff;
+    private static final int GLOSS_SHIFT = 10;
+    private static final int LEAD_SHIFT = 20;
+    private static final int SOLE_GLOSS_FLAG = 1 << 30;
+
+    /** Words ignored when deciding whether a leading gloss is a single word. */
+    private static final Set<String> GLOSS_FILLERS = new HashSet<>(Arrays.asList("a", "an", "the", "to"));
+
+    private final TermTable postings;
+    private final short[] lengths;
+    private final double averageLength;
+
+    private EnglishIndex(TermTable postings, short[] lengths) {
+        this.postings = postings;
+        this.lengths = lengths;
+        long total = 0;
+        for (short length : lengths) {
+            total += length;
+        }
+        this.averageLength = lengths.length == 0 ? 1 : Math.max(1, (double) total / lengths.length);
+    }
+
+    /**
+     * Tokenizes every definition of the compiled dictionary, split into {@code fields}.
+     */
+    @NonNull
+    public static EnglishIndex build(@NonNull CompiledDictionary compiled, @NonNull EntryFields fields) {
+        return merge(Collections.singletonList(scan(compiled, fields, 0, compiled.entryCount())));
+    }
+
+    /**
+     * Collects the postings of the entries in {@code [from, to)}. Chunks can be scanned in
+     * parallel and then combined with {@link #merge}.
+     */
+    static Chunk scan(CompiledDictionary compiled, EntryFields fields, int from, int to) {
+        Chunk chunk = new Chunk(from, to);
+        StringBuilder token = new StringBuilder();
+        for (int id = from; id < to; id++) {
+            String definition = compiled.definition(id);
+            int length = definition.length();
+            int fieldCount = fields.count(id);
+            // Field at or after the current word, and the end of its leading words if a gloss.
+            int field = 0;
+            int leadEnd = -1;
+            int tokenCount = 0;
+            int leadWords = 0;
+            IntList leadFrequencies = null;
+            for (int i = 0; i <= length; i++) {
+                char c = i < length ? definition.charAt(i) : ' ';
+                if (Character.isLetter(c)) {
+                    token.append(Character.toLowerCase(c));
+                } else if (token.length() > 0) {
+                    int tokenStart = i - token.length();
+                    while (field < fieldCount && fields.fieldEnd(id, field) <= tokenStart) {
+                        markSoleGloss(leadWords, leadFrequencies);
+                        leadWords = 0;
+                        leadEnd = -1;
+                        field++;
+                    }
+                    boolean gloss = field < fieldCount && fields.kind(id, field) == EntryFields.GLOSS
+                            && fields.fieldStart(id, field) <= tokenStart;
+                    if (gloss && leadEnd < 0) {
+                        leadEnd = leadGlossEnd(definition, fields.fieldStart(id, field), fields.fieldEnd(id, field));
+                    }
+                    boolean lead = gloss && i <= leadEnd;
+
+                    String term = token.toString();
+                    IntList ids = chunk.postings.get(term);
+                    IntList frequencies = chunk.frequencies.get(term);
+                    if (ids == null) {
+                        ids = new IntList();
+                        frequencies = new IntList();
+                        chunk.postings.put(term, ids);
+                        chunk.frequencies.put(term, frequencies);
+                    }
+                    // Entries are visited in id order, so a repeated word only needs comparing
+                    // against the last posting to keep each list sorted and unique.
+                    if (ids.size() == 0 || ids.last() != id) {
+                        ids.add(id);
+                        frequencies.add(0);
+                    }
+                    frequencies.set(frequencies.size() - 1,
+                            countOccurrence(frequencies.last(), gloss, lead));
+                    if (lead && !GLOSS_FILLERS.contains(term)) {
+                        leadWords++;
+                        leadFrequencies = frequencies;
+                    }
+                    tokenCount++;
+                    token.setLength(0);
+                }
+            }
+            markSoleGloss(leadWords, leadFrequencies);
+            chunk.lengths[id - from] = (short) Math.min(Short.MAX_VALUE, tokenCount);
+        }
+        return chunk;
+    }
+
+    /**
+     * Combines chunk postings given in ascending entry order, so the merged lists stay sorted
+     * whatever order the chunks finished in.
+     */
+    static EnglishIndex merge(List<Chunk> chunks) {
+        int entryCount = chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).to;
+        Map<String, IntList> combined = new HashMap<>();
+        Map<String, IntList> frequencies = new HashMap<>();
+        short[] lengths = new short[entryCount];
+        for (Chunk chunk : chunks) {
+            for (Map.Entry<String, IntList> term : chunk.postings.entrySet()) {
+                IntList ids = combined.get(term.getKey());
+                if (ids == null) {
+                    combined.put(term.getKey(), term.getValue());
+                    frequencies.put(term.getKey(), chunk.frequencies.get(term.getKey()));
+                } else {
+                    ids.addAll(term.getValue());
+                    frequencies.get(term.getKey()).addAll(chunk.frequencies.get(term.getKey()));
+                }
+            }
+            System.arraycopy(chunk.lengths, 0, lengths, chunk.from, chunk.to - chunk.from);
+        }
+        return new EnglishIndex(TermTable.of(combined, frequencies), lengths);
+    }
+
+    /**
+     * Scores the candidate entries, given in ascending order, against the query terms; the
+     * returned array is parallel to {@code candidates}. Terms a candidate lacks add nothing.
+     */
+    @NonNull
+    public float[] score(@NonNull List<String> terms, @NonNull int[] candidates) {
+        float[] scores = new float[candidates.length];
+        int entryCount = lengths.length;
+        for (String term : terms) {
+            int index = postings.find(term);
+            if (index < 0) {
+                continue;
+            }
+            int start = postings.postingStart(index);
+            int end = postings.postingEnd(index);
+            int documentFrequency = end - start;
+            double idf = Math.log(1 + (entryCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            // Both lists are sorted, so one merge pass finds the candidates holding the term.
+            int c = 0;
+            for (int p = start; p < end && c < candidates.length; p++) {
+                int id = postings.posting(p);
+                while (c < candidates.length && candidates[c] < id) {
+                    c++;
+                }
+                if (c < candidates.length && candidates[c] == id) {
+                    int frequency = postings.payload(p);
+                    double tf = (frequency & COUNT_MASK)
+                            + (LEAD_GLOSS_WEIGHT - 1) * (frequency >>> LEAD_SHIFT & COUNT_MASK);
+                    double norm = K1 * (1 - B + B * lengths[id] / averageLength);
+                    double score = idf * tf * (K1 + 1) / (tf + norm);
+                    if ((frequency & SOLE_GLOSS_FLAG) != 0) {
+                        score += idf * (K1 + 1);
+                    }
+                    scores[c] += (float) score;
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the ids of the entries whose definition contains {@code term} as a whole word, in
+     * ascending order.
+     */
+    @NonNull
+    public int[] postings(@NonNull String term) {
+        return postings.postings(term);
+    }
+
+    /**
+     * Returns the ids of the entries with {@code term} in a gloss, or anywhere in the definition
+     * unless {@code glossOnly}, in ascending order.
+     */
+    @NonNull
+    public int[] postings(@NonNull String term, boolean glossOnly) {
+        if (!glossOnly) {
+            return postings(term);
+        }
+        int index = postings.find(term);
+        if (index < 0) {
+            return NO_POSTINGS;
+        }
+        IntList ids = new IntList();
+        for (int p = postings.postingStart(index); p < postings.postingEnd(index); p++) {
+            if (inGloss(p)) {
+                ids.add(postings.posting(p));
+            }
+        }
+        return ids.toArray();
+    }
+
+    int termCount() {
+        return postings.size();
+    }
+
+    /**
+     * Returns the first index in {@code [low, high)} of the sorted terms starting with
+     * {@code prefix}; they end at {@link #prefixEnd}.
+     */
+    int prefixStart(String prefix, int low, int high) {
+        return postings.prefixBoundary(prefix, low, high, false);
+    }
+
+    int prefixEnd(String prefix, int start, int high) {
+        return postings.prefixBoundary(prefix, start, high, true);
+    }
+
+    /**
+     * Number of postings held by the terms in {@code [termStart, termEnd)}.
+     */
+    int postingCount(int termStart, int termEnd) {
+        return termStart >= termEnd ? 0 : postings.postingEnd(termEnd - 1) - postings.postingStart(termStart);
+    }
+
+    /**
+     * Whether {@code text} contains a word, as split by {@link #tokenize}, starting with the
+     * lowercase {@code prefix}.
+     */
+    static boolean containsWordStartingWith(String text, String prefix) {
+        return containsWordStartingWith(text, 0, text.length(), prefix);
+    }
+
+    /**
+     * Like {@link #containsWordStartingWith(String, String)}, for the words within
+     * {@code [from, to)} of {@code text}.
+     */
+    static boolean containsWordStartingWith(String text, int from, int to, String prefix) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isLetter(text.charAt(i)) || (i > from && Character.isLetter(text.charAt(i - 1)))) {
+                continue;
+            }
+            int matched = 0;
+            while (matched < prefix.length() && i + matched < to
+                    && Character.toLowerCase(text.charAt(i + matched)) == prefix.charAt(matched)
+                    && Character.isLetter(text.charAt(i + matched))) {
+                matched++;
+            }
+            if (matched == prefix.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the {@code [start, end)} pairs of the words of {@code text}, as split by
+     * {@link #tokenize}, that equal one of {@code terms} or start with {@code prefix} unless it is
+     * empty.
+     */
+    static int[] matchOffsets(String text, List<String> terms, String prefix) {
+        IntList offsets = new IntList();
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean letter = i < length && Character.isLetter(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                if (matchesWord(text, start, i, terms, prefix)) {
+                    offsets.add(start);
+                    offsets.add(i);
+                }
+                start = -1;
+            }
+        }
+        return offsets.toArray();
+    }
+
+    private static boolean matchesWord(String text, int start, int end, List<String> terms, String prefix) {
+        if (!prefix.isEmpty() && end - start >= prefix.length()
+                && regionEqualsLowercase(text, start, prefix, prefix.length())) {
+            return true;
+        }
+        for (String term : terms) {
+            if (term.length() == end - start && regionEqualsLowercase(text, start, term, term.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEqualsLowercase(String text, int start, String lowercase, int length) {
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase(text.charAt(start + i)) != lowercase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns, in ascending order, the entries containing any of the terms in
+     * {@code [termStart, termEnd)}, in a gloss if {@code glossOnly}, restricted to {@code within}
+     * unless it is {@code null}. The postings of consecutive terms are stored back to back, so
+     * this is one pass over them.
+     *
+     * @throws CancellationException once {@code cancelled} reports true.
+     */
+    int[] entriesWithTerms(int termStart, int termEnd, @Nullable int[] within, boolean glossOnly,
+                           BooleanSupplier cancelled) {
+        if (termStart >= termEnd || (within != null && within.length == 0)) {
+            return NO_POSTINGS;
+        }
+        // 1: may be collected, 2: collected.
+        byte[] state = new byte[lengths.length];
+        if (within == null) {
+            Arrays.fill(state, (byte) 1);
+        } else {
+            for (int id : within) {
+                state[id] = 1;
+            }
+        }
+        int count = 0;
+        int end = postings.postingEnd(termEnd - 1);
+        for (int p = postings.postingStart(termStart); p < end; p++) {
+            if ((p & (CANCEL_CHECK_INTERVAL - 1)) == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException();
+            }
+            int id = postings.posting(p);
+            if (state[id] == 1 && (!glossOnly || inGloss(p))) {
+                state[id] = 2;
+                count++;
+            }
+        }
+        // Reading the marks back in id order keeps the result sorted without sorting it.
+        int[] result = new int[count];
+        int next = 0;
+        if (within == null) {
+            for (int id = 0; next < count; id++) {
+                if (state[id] == 2) {
+                    result[next++] = id;
+                }
+            }
+        } else {
+            for (int id : within) {
+                if (state[id] == 2) {
+                    result[next++] = id;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Bytes held by the index arrays.
+     */
+    public long sizeInBytes() {
+        return postings.sizeInBytes() + lengths.length * 2L;
+    }
+
+    /**
+     * Returns the entries containing every one of the terms, in their glosses if
+     * {@code glossOnly}.
+     */
+    @NonNull
+    public int[] all(@NonNull List<String> terms, boolean glossOnly) {
+        if (terms.isEmpty()) {
+            return NO_POSTINGS;
+        }
+        int[] result = postings(terms.get(0), glossOnly);
+        for (int i = 1; i < terms.size() && result.length > 0; i++) {
+            result = intersect(result, postings(terms.get(i), glossOnly));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the entries containing at least one of the terms, in their glosses if
+     * {@code glossOnly}.
+     */
+    @NonNull
+    public int[] any(@NonNull List<String> terms, boolean glossOnly) {
+        int[] result = NO_POSTINGS;
+        for (String term : terms) {
+            result = union(result, postings(term, glossOnly));
+        }
+        return result;
+    }
+
+    /**
+     * Splits text into the lowercase letter runs used as index terms.
+     */
+    @NonNull
+    public static List<String> tokenize(@NonNull String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetter(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns where the leading words of the gloss in {@code [start, end)} end: at its first
+     * {@code :} or {@code .}, or at its end.
+     */
+    static int leadGlossEnd(String definition, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = definition.charAt(i);
+            if (c == ':' || c == '.') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private boolean inGloss(int posting) {
+        return (postings.payload(posting) >>> GLOSS_SHIFT & COUNT_MASK) != 0;
+    }
+
+    /**
+     * Flags the word when it was the only one leading a gloss, {@code frequencies} holding its
+     * postings.
+     */
+    private static void markSoleGloss(int leadWords, IntList frequencies) {
+        if (leadWords == 1) {
+            frequencies.set(frequencies.size() - 1, frequencies.last() | SOLE_GLOSS_FLAG);
+        }
+    }
+
+    /**
+     * Adds one occurrence to a packed frequency: overall count in the low 10 bits, gloss count in
+     * the next 10 and leading-gloss count in the 10 after, all saturating, and
+     * {@link #SOLE_GLOSS_FLAG} above them.
+     */
+    private static int countOccurrence(int frequency, boolean gloss, boolean lead) {
+        int overall = Math.min(COUNT_MASK, (frequency & COUNT_MASK) + 1);
+        int glossed = Math.min(COUNT_MASK, (frequency >>> GLOSS_SHIFT & COUNT_MASK) + (gloss ? 1 : 0));
+        int leading = Math.min(COUNT_MASK, (frequency >>> LEAD_SHIFT & COUNT_MASK) + (lead ? 1 : 0));
+        return frequency & SOLE_GLOSS_FLAG | leading << LEAD_SHIFT | glossed << GLOSS_SHIFT | overall;
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[count++] = next;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Postings and statistics collected for a range of entries.
+     */
+    static final class Chunk {
+        final int from;
+        final int to;
+        final Map<String, IntList> postings = new HashMap<>();
+        final Map<String, IntList> frequencies = new HashMap<>();
+        final short[] lengths;
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+            this.lengths = new short[to - from];
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Typed fields of every entry, split out of the definition text once when the dictionary is
+ * loaded.
+ *
+ * A definition such as {@code n. 1) mushroom: a fungus. Ebitoosha nibikora emboga nungi munonga.
+ * Mushrooms make good sauce. Pl: ebitoosha.} holds a part of speech, numbered senses each opening
+ * with a gloss, Runyankore/Rukiga example sentences followed by their English translations, and
+ * labelled forms and notes. Each field is kept as a span of the definition, so nothing is copied
+ * out of the mapped file, and the spans are stored column-wise: one array per attribute, with the
+ * fields of an entry contiguous.
+ *
+ * Only a definition opening with a part of speech has a gloss. The others are mostly the tail of
+ * the previous entry, split off by the text layout, and their opening text is {@link #OTHER}.
+ */
+public final class EntryFields {
+
+    public static final int GLOSS = 0;
+    public static final int EXAMPLE = 1;
+    public static final int TRANSLATION = 2;
+    public static final int SINGULAR = 3;
+    public static final int PLURAL = 4;
+    public static final int VARIANT = 5;
+    public static final int SEE = 6;
+    /** {@code Usage:}, {@code Etym:}, {@code Ref:} and {@code Note:} remarks. */
+    public static final int NOTE = 7;
+    /** Text that is none of the above. */
+    public static final int OTHER = 8;
+
+    /** Parts of speech that open an entry, in the order of their codes. */
+    private static final String[] PARTS_OF_SPEECH = {
+            "n", "v", "adj", "adv", "conj", "int", "interj", "phr", "prep", "pron", "num"};
+
+    private static final String[] LABELS = {"Sing:", "Pl:", "Var:", "See:", "Usage:", "Etym:", "Ref:", "Note:"};
+    private static final int[] LABEL_KINDS = {SINGULAR, PLURAL, VARIANT, SEE, NOTE, NOTE, NOTE, NOTE};
+
+    // Per entry: part of speech code, 0 for none, and index of its first field.
+    private final byte[] partsOfSpeech;
+    private final int[] start;
+    // Per field: kind, sense number, 0 outside numbered senses, and [start, end) in the definition.
+    private final byte[] kinds;
+    private final byte[] senses;
+    private final int[] bounds;
+
+    private EntryFields(byte[] partsOfSpeech, int[] start, byte[] kinds, byte[] senses, int[] bounds) {
+        this.partsOfSpeech = partsOfSpeech;
+        this.start = start;
+        this.kinds = kinds;
+        this.senses = senses;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Splits every definition of the compiled dictionary.
+     */
+    @NonNull
+    public static EntryFields build(@NonNull CompiledDictionary compiled) {
+        return merge(Collections.singletonList(scan(compiled, 0, compiled.entryCount())));
+    }
+
+    /**
+     * Splits the definitions of the entries in {@code [from, to)}. Chunks can be scanned in
+     * parallel and then combined with {@link #merge}.
+     */
+    static Chunk scan(CompiledDictionary compiled, int from, int to) {
+        Chunk chunk = new Chunk(from, to);
+        for (int id = from; id < to; id++) {
+            int fields = chunk.kinds.size();
+            split(compiled.definition(id), chunk, id - from);
+            chunk.counts[id - from] = chunk.kinds.size() - fields;
+        }
+        return chunk;
+    }
+
+    /**
+     * Concatenates chunks covering consecutive entry ranges, given in ascending order.
+     */
+    static EntryFields merge(List<Chunk> chunks) {
+        int entryCount = chunks.isEmpty() ? 0 : chunks.get(chunks.size() - 1).to;
+        byte[] partsOfSpeech = new byte[entryCount];
+        int[] start = new int[entryCount + 1];
+        IntList kinds = new IntList(entryCount * 2);
+        IntList senses = new IntList(entryCount * 2);
+        IntList bounds = new IntList(entryCount * 4);
+        for (Chunk chunk : chunks) {
+            for (int id = chunk.from; id < chunk.to; id++) {
+                start[id + 1] = start[id] + chunk.counts[id - chunk.from];
+            }
+            System.arraycopy(chunk.partsOfSpeech, 0, partsOfSpeech, chunk.from, chunk.to - chunk.from);
+            kinds.addAll(chunk.kinds);
+            senses.addAll(chunk.senses);
+            bounds.addAll(chunk.bounds);
+        }
+        byte[] kindBytes = new byte[kinds.size()];
+        byte[] senseBytes = new byte[senses.size()];
+        for (int i = 0; i < kindBytes.length; i++) {
+            kindBytes[i] = (byte) kinds.get(i);
+            senseBytes[i] = (byte) senses.get(i);
+        }
+        return new EntryFields(partsOfSpeech, start, kindBytes, senseBytes, bounds.toArray());
+    }
+
+    /**
+     * Part of speech the definition of an entry opens with, such as {@code n} or {@code adv}, or
+     * {@code null} when it has none.
+     */
+    @Nullable
+    public String partOfSpeech(int entryId) {
+        int code = partsOfSpeech[entryId];
+        return code == 0 ? null : PARTS_OF_SPEECH[code - 1];
+    }
+
+    /**
+     * Number of senses of an entry, i.e. of its glosses.
+     */
+    public int senseCount(int entryId) {
+        int senseCount = 0;
+        for (int i = start[entryId]; i < start[entryId + 1]; i++) {
+            if (kinds[i] == GLOSS) {
+                senseCount++;
+            }
+        }
+        return senseCount;
+    }
+
+    /**
+     * Number of fields of an entry, in definition order.
+     */
+    public int count(int entryId) {
+        return start[entryId + 1] - start[entryId];
+    }
+
+    /**
+     * Kind of the {@code i}-th field of an entry, one of {@link #GLOSS}, {@link #EXAMPLE},
+     * {@link #TRANSLATION}, {@link #SINGULAR}, {@link #PLURAL}, {@link #VARIANT}, {@link #SEE},
+     * {@link #NOTE} or {@link #OTHER}.
+     */
+    public int kind(int entryId, int i) {
+        return kinds[start[entryId] + i];
+    }
+
+    /**
+     * Number of the sense holding the {@code i}-th field of an entry, as written in the
+     * definition, or 0 when the senses are not numbered.
+     */
+    public int sense(int entryId, int i) {
+        return senses[start[entryId] + i];
+    }
+
+    /**
+     * Offset in the definition of an entry where its {@code i}-th field starts.
+     */
+    public int fieldStart(int entryId, int i) {
+        return bounds[2 * (start[entryId] + i)];
+    }
+
+    /**
+     * Offset in the definition of an entry where its {@code i}-th field ends, before any
+     * closing period.
+     */
+    public int fieldEnd(int entryId, int i) {
+        return bounds[2 * (start[entryId] + i) + 1];
+    }
+
+    /**
+     * Text of the {@code i}-th field of an entry, without any closing period.
+     */
+    @NonNull
+    public String field(@NonNull CompiledDictionary compiled, int entryId, int i) {
+        return compiled.definition(entryId).substring(fieldStart(entryId, i), fieldEnd(entryId, i));
+    }
+
+    /**
+     * Whether a field of the given kind of an entry contains a word, as split by
+     * {@link EnglishIndex#tokenize}, starting with the lowercase {@code prefix}.
+     */
+    boolean containsWordStartingWith(String definition, int entryId, int kind, String prefix) {
+        for (int i = start[entryId]; i < start[entryId + 1]; i++) {
+            if (kinds[i] == kind && EnglishIndex.containsWordStartingWith(
+                    definition, bounds[2 * i], bounds[2 * i + 1], prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bytes held by the field arrays.
+     */
+    public long sizeInBytes() {
+        return partsOfSpeech.length + start.length * 4L + kinds.length + senses.length + bounds.length * 4L;
+    }
+
+    /**
+     * Splits a text laid out like a definition into a chunk holding it as its only entry.
+     */
+    static Chunk split(String text) {
+        Chunk chunk = new Chunk(0, 1);
+        split(text, chunk, 0);
+        chunk.counts[0] = chunk.kinds.size();
+        return chunk;
+    }
+
+    /**
+     * Appends the fields of one definition to the chunk.
+     */
+    private static void split(String definition, Chunk chunk, int index) {
+        int length = definition.length();
+        int position = 0;
+        int partOfSpeech = partOfSpeechCode(definition);
+        boolean glossExpected = partOfSpeech != 0;
+        if (partOfSpeech != 0) {
+            chunk.partsOfSpeech[index] = (byte) partOfSpeech;
+            position = PARTS_OF_SPEECH[partOfSpeech - 1].length() + 1;
+        }
+        int sense = 0;
+        boolean senseOpened = false;
+        int previous = -1;
+        while (true) {
+            while (position < length && definition.charAt(position) == ' ') {
+                position++;
+            }
+            if (position >= length) {
+                break;
+            }
+            int markerEnd = senseMarkerEnd(definition, position);
+            if (markerEnd > 0) {
+                sense = Math.min(Byte.MAX_VALUE, Integer.parseInt(definition.substring(position, markerEnd - 1)));
+                glossExpected = partOfSpeech != 0;
+                senseOpened = true;
+                position = markerEnd;
+                continue;
+            }
+            int label = labelAt(definition, position);
+            int kind;
+            if (label >= 0) {
+                kind = LABEL_KINDS[label];
+                position += LABELS[label].length();
+            } else if (glossExpected) {
+                kind = GLOSS;
+            } else if (senseOpened || previous < 0) {
+                kind = OTHER;
+            } else {
+                kind = previous == EXAMPLE ? TRANSLATION : EXAMPLE;
+            }
+            glossExpected = false;
+            senseOpened = false;
+            int end = clauseEnd(definition, position);
+            int textEnd = end;
+            while (textEnd > position && (definition.charAt(textEnd - 1) == '.' || definition.charAt(textEnd - 1) == ' ')) {
+                textEnd--;
+            }
+            int textStart = position;
+            while (textStart < textEnd && definition.charAt(textStart) == ' ') {
+                textStart++;
+            }
+            if (textStart < textEnd) {
+                chunk.kinds.add(kind);
+                chunk.senses.add(sense);
+                chunk.bounds.add(textStart);
+                chunk.bounds.add(textEnd);
+                previous = kind;
+            }
+            position = end;
+        }
+    }
+
+    /**
+     * Returns the code of the part of speech a definition opens with, or 0.
+     */
+    private static int partOfSpeechCode(String definition) {
+        int dot = definition.indexOf('.');
+        if (dot <= 0 || dot + 1 < definition.length() && definition.charAt(dot + 1) != ' ') {
+            return 0;
+        }
+        for (int code = 0; code < PARTS_OF_SPEECH.length; code++) {
+            if (definition.regionMatches(0, PARTS_OF_SPEECH[code], 0, dot) && PARTS_OF_SPEECH[code].length() == dot) {
+                return code + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns where the clause starting at {@code from} ends: past the period, question or
+     * exclamation mark closing its sentence, or before a label or sense number running on
+     * without one, or at the end of the definition. Periods inside {@code [...]} and those not
+     * followed by a capital, as in {@code e.g. a} or {@code etc. for}, do not close a sentence.
+     */
+    private static int clauseEnd(String definition, int from) {
+        int length = definition.length();
+        int brackets = 0;
+        for (int i = from; i < length; i++) {
+            char c = definition.charAt(i);
+            if (c == '[') {
+                brackets++;
+            } else if (c == ']') {
+                brackets = Math.max(0, brackets - 1);
+            } else if (brackets == 0 && (c == '.' || c == '?' || c == '!')) {
+                if (i + 1 == length || definition.charAt(i + 1) == ' ' && opensClause(definition, i + 2)) {
+                    return i + 1;
+                }
+            } else if (c == ' ' && i > from && (labelAt(definition, i + 1) >= 0 || senseMarkerEnd(definition, i + 1) > 0)) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static boolean opensClause(String definition, int at) {
+        return at >= definition.length() || Character.isUpperCase(definition.charAt(at))
+                || senseMarkerEnd(definition, at) > 0;
+    }
+
+    /**
+     * Returns the end of a sense number such as {@code 2)} at {@code at}, or -1.
+     */
+    private static int senseMarkerEnd(String definition, int at) {
+        int i = at;
+        while (i < definition.length() && i - at < 2 && definition.charAt(i) >= '0' && definition.charAt(i) <= '9') {
+            i++;
+        }
+        return i > at && i < definition.length() && definition.charAt(i) == ')' ? i + 1 : -1;
+    }
+
+    private static int labelAt(String definition, int at) {
+        for (int label = 0; label < LABELS.length; label++) {
+            if (definition.startsWith(LABELS[label], at)) {
+                return label;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fields split out of a range of entries.
+     */
+    static final class Chunk {
+        final int from;
+        final int to;
+        final byte[] partsOfSpeech;
+        final int[] counts;
+        final IntList kinds = new IntList();
+        final IntList senses = new IntList();
+        final IntList bounds = new IntList();
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+            this.partsOfSpeech = new byte[to - from];
+            this.counts = new int[to - from];
+        }
+    }
+}
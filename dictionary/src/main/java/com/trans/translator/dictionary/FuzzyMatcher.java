@@ -0,0 +1,302 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the headwords closest to a misspelled Runyankore/Rukiga query.
+ *
+ * Headwords are first folded to smooth over the spelling variation seen in user input
+ * (apostrophes and hyphens dropped, doubled vowels collapsed, {@code l} read as {@code r} and
+ * {@code sh} as {@code s}), then stored in a BK-tree keyed by edit distance. A search only visits
+ * subtrees that can hold a key within {@link #MAX_DISTANCE} of the folded query and stops once
+ * it has compared a given number of keys, returning the best candidates found so far. The budget
+ * is counted in keys rather than time so that a query gets the same answer on any device and
+ * under any load.
+ */
+public final class FuzzyMatcher {
+
+    /** Largest edit distance, measured between folded spellings, still offered as a match. */
+    public static final int MAX_DISTANCE = 2;
+
+    private static final int NO_NODE = -1;
+
+    private final CompiledDictionary compiled;
+    // Node keys back to back in one arena; node i spans [keyStart[i], keyStart[i + 1]).
+    private final char[] keyChars;
+    private final int[] keyStart;
+    // Headword indexes of node i are headwordIds[headwordStart[i] .. headwordStart[i + 1]).
+    private final int[] headwordStart;
+    private final int[] headwordIds;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] edge;
+    private final int maxKeyLength;
+
+    private FuzzyMatcher(CompiledDictionary compiled, char[] keyChars, int[] keyStart,
+                         int[] headwordStart, int[] headwordIds,
+                         int[] firstChild, int[] nextSibling, int[] edge, int maxKeyLength) {
+        this.compiled = compiled;
+        this.keyChars = keyChars;
+        this.keyStart = keyStart;
+        this.headwordStart = headwordStart;
+        this.headwordIds = headwordIds;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.edge = edge;
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * Builds the tree over the unnumbered headwords of the compiled dictionary; numbered
+     * homographs are reachable through their base headword.
+     */
+    @NonNull
+    public static FuzzyMatcher build(@NonNull CompiledDictionary compiled) {
+        Map<String, IntList> byKey = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < compiled.headwordCount(); i++) {
+            String headword = compiled.headword(i);
+            if (!DictionaryParser.baseHeadword(headword).equals(headword)) {
+                continue;
+            }
+            String key = fold(headword);
+            if (key.isEmpty()) {
+                continue;
+            }
+            IntList ids = byKey.get(key);
+            if (ids == null) {
+                ids = new IntList(1);
+                byKey.put(key, ids);
+                order.add(key);
+            }
+            ids.add(i);
+        }
+
+        int count = order.size();
+        int charCount = 0;
+        int headwordCount = 0;
+        int maxKeyLength = 0;
+        for (String key : order) {
+            charCount += key.length();
+            headwordCount += byKey.get(key).size();
+            maxKeyLength = Math.max(maxKeyLength, key.length());
+        }
+
+        char[] keyChars = new char[charCount];
+        int[] keyStart = new int[count + 1];
+        int[] headwordStart = new int[count + 1];
+        int[] headwordIds = new int[headwordCount];
+        int[] firstChild = new int[count];
+        int[] nextSibling = new int[count];
+        int[] edge = new int[count];
+        Arrays.fill(firstChild, NO_NODE);
+        Arrays.fill(nextSibling, NO_NODE);
+        int[][] rows = {new int[maxKeyLength + 1], new int[maxKeyLength + 1]};
+
+        for (int node = 0; node < count; node++) {
+            String key = order.get(node);
+            key.getChars(0, key.length(), keyChars, keyStart[node]);
+            keyStart[node + 1] = keyStart[node] + key.length();
+            IntList ids = byKey.get(key);
+            for (int i = 0; i < ids.size(); i++) {
+                headwordIds[headwordStart[node] + i] = ids.get(i);
+            }
+            headwordStart[node + 1] = headwordStart[node] + ids.size();
+            if (node == 0) {
+                continue;
+            }
+            int parent = 0;
+            while (true) {
+                int distance = distance(keyChars, keyStart[parent], keyStart[parent + 1], key, rows);
+                int child = firstChild[parent];
+                while (child != NO_NODE && edge[child] != distance) {
+                    child = nextSibling[child];
+                }
+                if (child == NO_NODE) {
+                    edge[node] = distance;
+                    nextSibling[node] = firstChild[parent];
+                    firstChild[parent] = node;
+                    break;
+                }
+                parent = child;
+            }
+        }
+        return new FuzzyMatcher(compiled, keyChars, keyStart, headwordStart, headwordIds,
+                firstChild, nextSibling, edge, maxKeyLength);
+    }
+
+    /**
+     * Returns the sorted headword table indexes of up to {@code limit} headwords within
+     * {@link #MAX_DISTANCE} of the normalized query, closest first. The search gives up after
+     * comparing the query with {@code maxVisits} keys, in which case the closest headwords
+     * visited so far are returned.
+     */
+    @NonNull
+    public int[] closest(@NonNull String normalized, int limit, int maxVisits) {
+        return closest(normalized, limit, maxVisits, new Scratch());
+    }
+
+    /**
+     * As {@link #closest(String, int, int)}, searching with the buffers of {@code scratch}, so
+     * that a run of lookups allocates them once. {@link Scratch#visited} is left at the number of
+     * keys compared.
+     */
+    @NonNull
+    int[] closest(@NonNull String normalized, int limit, int maxVisits, @NonNull Scratch scratch) {
+        scratch.visited = 0;
+        String query = fold(normalized);
+        int nodeCount = keyStart.length - 1;
+        if (query.isEmpty() || nodeCount == 0 || limit <= 0) {
+            return new int[0];
+        }
+        int[][] rows = widen(scratch.rows, Math.max(maxKeyLength, query.length()));
+        if (scratch.stack.length < nodeCount) {
+            scratch.stack = new int[nodeCount];
+        }
+
+        IntList found = scratch.found;
+        IntList distances = scratch.distances;
+        found.clear();
+        distances.clear();
+        int[] stack = scratch.stack;
+        int top = 0;
+        stack[top++] = 0;
+        int visited = 0;
+        while (top > 0 && visited < maxVisits) {
+            visited++;
+            int node = stack[--top];
+            int distance = distance(keyChars, keyStart[node], keyStart[node + 1], query, rows);
+            if (distance <= MAX_DISTANCE) {
+                found.add(node);
+                distances.add(distance);
+            }
+            for (int child = firstChild[node]; child != NO_NODE; child = nextSibling[child]) {
+                if (Math.abs(edge[child] - distance) <= MAX_DISTANCE) {
+                    stack[top++] = child;
+                }
+            }
+        }
+        scratch.visited = visited;
+        return rank(found, distances, normalized, limit, rows);
+    }
+
+    /**
+     * Orders the matches by folded distance, then by the distance between the unfolded spellings,
+     * then lexically.
+     */
+    private int[] rank(IntList found, IntList distances, String normalized, int limit, int[][] rows) {
+        List<long[]> candidates = new ArrayList<>();
+        for (int i = 0; i < found.size(); i++) {
+            int node = found.get(i);
+            for (int h = headwordStart[node]; h < headwordStart[node + 1]; h++) {
+                int headword = headwordIds[h];
+                char[] spelling = compiled.headword(headword).toCharArray();
+                int raw = distance(spelling, 0, spelling.length, normalized,
+                        widen(rows, normalized.length()));
+                candidates.add(new long[]{distances.get(i), raw, headword});
+            }
+        }
+        candidates.sort((a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                int cmp = Long.compare(a[i], b[i]);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return 0;
+        });
+        int[] result = new int[Math.min(limit, candidates.size())];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) candidates.get(i)[2];
+        }
+        return result;
+    }
+
+    private static int[][] widen(int[][] rows, int length) {
+        int width = length + 1;
+        if (rows[0].length < width) {
+            rows[0] = new int[width];
+            rows[1] = new int[width];
+        }
+        return rows;
+    }
+
+    /**
+     * Bytes held by the tree arrays.
+     */
+    public long sizeInBytes() {
+        return keyChars.length * 2L + (keyStart.length + headwordStart.length + headwordIds.length
+                + firstChild.length + nextSibling.length + edge.length) * 4L;
+    }
+
+    /**
+     * Search buffers reused across the lookups of one thread.
+     */
+    static final class Scratch {
+        int[][] rows = {new int[0], new int[0]};
+        int[] stack = new int[0];
+        final IntList found = new IntList();
+        final IntList distances = new IntList();
+        // Keys compared by the last search.
+        int visited;
+    }
+
+    /**
+     * Folds a normalized headword into the spelling used for matching.
+     */
+    @NonNull
+    static String fold(@NonNull String normalized) {
+        StringBuilder folded = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c == '\'' || c == '-' || (c >= '0' && c <= '9')) {
+                continue;
+            }
+            if (c == 'l') {
+                c = 'r';
+            } else if (c == 'h' && folded.length() > 0 && folded.charAt(folded.length() - 1) == 's') {
+                continue;
+            }
+            if (isVowel(c) && folded.length() > 0 && folded.charAt(folded.length() - 1) == c) {
+                continue;
+            }
+            folded.append(c);
+        }
+        return folded.toString();
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+
+    /**
+     * Levenshtein distance between {@code a[from, to)} and {@code b}, using two caller-provided
+     * rows at least {@code b.length() + 1} long.
+     */
+    private static int distance(char[] a, int from, int to, String b, int[][] rows) {
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        int n = b.length();
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= to - from; i++) {
+            current[0] = i;
+            char ca = a[from + i - 1];
+            for (int j = 1; j <= n; j++) {
+                int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n];
+    }
+}
@@ -0,0 +1,45 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Runyankore/Rukiga text read word by word, as returned by {@link SentenceGlosser#gloss}.
+ */
+public final class GlossedText {
+
+    public final String text;
+    /** One reading per word of the text, in order. */
+    public final List<WordGloss> words;
+    /**
+     * The longest multi-word headwords found in the text, in order and not overlapping. Their
+     * words are also read one by one in {@link #words}.
+     */
+    public final List<WordGloss> phrases;
+
+    public GlossedText(@NonNull String text, @NonNull List<WordGloss> words, @NonNull List<WordGloss> phrases) {
+        this.text = text;
+        this.words = words;
+        this.phrases = phrases;
+    }
+
+    /**
+     * Returns the reading of the text in order, a multi-word headword standing for its words.
+     */
+    @NonNull
+    public List<WordGloss> readings() {
+        List<WordGloss> readings = new ArrayList<>(words.size());
+        int phrase = 0;
+        for (int w = 0; w < words.size(); ) {
+            WordGloss reading = words.get(w);
+            if (phrase < phrases.size() && phrases.get(phrase).firstWord == w) {
+                reading = phrases.get(phrase++);
+            }
+            readings.add(reading);
+            w += reading.wordCount;
+        }
+        return readings;
+    }
+}
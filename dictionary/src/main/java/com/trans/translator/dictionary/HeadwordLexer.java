@@ -0,0 +1,230 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Single-pass, character-level scanning of dictionary lines and lookup queries, shared by the
+ * text parser and every lookup that normalizes a query.
+ *
+ * Each method reads its input once and writes into a buffer kept by the lexer, so the only
+ * allocations are the strings returned, and none when the input is already in the requested
+ * form. A lexer is not thread-safe; {@link DictionaryParser#normalizeHeadword} keeps one per
+ * thread. {@code HeadwordLexerTest} compares the results with the regular expressions the
+ * lexer replaced.
+ */
+final class HeadwordLexer {
+
+    private char[] buffer = new char[64];
+
+    /**
+     * Normalizes user input or a raw headword into the lookup key used by the index: lower-cased,
+     * {@code ʼ} read as an apostrophe, every character other than ASCII letters, digits,
+     * apostrophes, hyphens and whitespace dropped, and whitespace runs collapsed to single spaces
+     * with none at either end.
+     */
+    @NonNull
+    String normalize(@NonNull String input) {
+        int length = input.length();
+        char[] out = reserve(length);
+        int size = 0;
+        boolean space = false;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (isRegexSpace(c)) {
+                // Dropped at the start and collapsed elsewhere; a run at the end is never written.
+                space = size > 0;
+                continue;
+            }
+            char normalized = normalizedChar(c);
+            if (normalized == 0) {
+                continue;
+            }
+            if (space) {
+                out[size++] = ' ';
+                space = false;
+            }
+            out[size++] = normalized;
+        }
+        return unchanged(input, size) ? input : new String(out, 0, size);
+    }
+
+    /**
+     * Returns the character a headword key keeps for {@code c}, or {@code 0} when the key drops
+     * it. Whitespace is left to the caller.
+     */
+    static char normalizedChar(char c) {
+        if (c < 0x80) {
+            if (c >= 'A' && c <= 'Z') {
+                return (char) (c + ('a' - 'A'));
+            }
+            return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '\'' || c == '-' ? c : 0;
+        }
+        if (c == 'ʼ') {
+            return '\'';
+        }
+        // A few non-ASCII letters, such as the Kelvin sign, lower-case to an ASCII letter.
+        char lower = Character.toLowerCase(c);
+        return lower >= 'a' && lower <= 'z' ? lower : 0;
+    }
+
+    /**
+     * Strips the homograph number from a normalized headword, e.g. {@code aba2} becomes
+     * {@code aba}.
+     */
+    @NonNull
+    static String baseHeadword(@NonNull String normalizedHeadword) {
+        int end = normalizedHeadword.length();
+        while (end > 0 && isDigit(normalizedHeadword.charAt(end - 1))) {
+            end--;
+        }
+        return end == normalizedHeadword.length() ? normalizedHeadword : normalizedHeadword.substring(0, end);
+    }
+
+    /**
+     * Whether a trimmed line of the dictionary text opens an entry: it starts with a lower-case
+     * letter, and its first word is made of letters {@code a-z}, apostrophes and hyphens,
+     * optionally followed by a homograph number, and is followed by a space.
+     */
+    static boolean looksLikeHeadword(@NonNull String line) {
+        if (line.isEmpty() || !Character.isLowerCase(line.charAt(0))) {
+            return false;
+        }
+        int length = line.length();
+        int i = 0;
+        while (i < length && isHeadwordLetter(line.charAt(i))) {
+            i++;
+        }
+        if (i == 0) {
+            return false;
+        }
+        while (i < length && isDigit(line.charAt(i))) {
+            i++;
+        }
+        return i < length && line.charAt(i) == ' ';
+    }
+
+    /**
+     * Splits the line opening an entry into its headword, the first word, and the start of its
+     * definition, after reading {@code |} as a space and collapsing whitespace.
+     */
+    @NonNull
+    HeadwordLine splitHeadwordLine(@NonNull String line) {
+        int size = collapse(line, true, false);
+        int space = 0;
+        while (space < size && buffer[space] != ' ') {
+            space++;
+        }
+        String headword = new String(buffer, 0, space);
+        if (space == size) {
+            return new HeadwordLine(headword, "");
+        }
+        int from = space + 1;
+        int to = size;
+        while (from < to && buffer[from] <= ' ') {
+            from++;
+        }
+        while (to > from && buffer[to - 1] <= ' ') {
+            to--;
+        }
+        return new HeadwordLine(headword, new String(buffer, from, to - from));
+    }
+
+    /**
+     * Cleans the text of a definition: {@code ʼ} read as an apostrophe, trimmed, and whitespace
+     * runs collapsed to single spaces.
+     */
+    @NonNull
+    String cleanDefinition(@NonNull String definition) {
+        int size = collapse(definition, false, true);
+        return unchanged(definition, size) ? definition : new String(buffer, 0, size);
+    }
+
+    /**
+     * Writes {@code text} trimmed, with whitespace runs collapsed to one space, to the buffer and
+     * returns its length. {@code pipes} reads {@code |} as whitespace and {@code apostrophes}
+     * reads {@code ʼ} as an apostrophe. Like {@link String#trim}, trimming drops every character
+     * up to {@code U+0020} at either end, including control characters that are not whitespace.
+     */
+    private int collapse(String text, boolean pipes, boolean apostrophes) {
+        int from = 0;
+        int to = text.length();
+        while (from < to && isTrimmed(text.charAt(from), pipes)) {
+            from++;
+        }
+        while (to > from && isTrimmed(text.charAt(to - 1), pipes)) {
+            to--;
+        }
+        char[] out = reserve(to - from);
+        int size = 0;
+        boolean space = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (isRegexSpace(c) || (pipes && c == '|')) {
+                if (!space) {
+                    out[size++] = ' ';
+                    space = true;
+                }
+                continue;
+            }
+            out[size++] = apostrophes && c == 'ʼ' ? '\'' : c;
+            space = false;
+        }
+        return size;
+    }
+
+    /**
+     * Whether the first {@code size} characters of the buffer spell {@code text}, so that it can
+     * be returned as is.
+     */
+    private boolean unchanged(String text, int size) {
+        if (size != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (text.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isTrimmed(char c, boolean pipes) {
+        return c <= ' ' || (pipes && c == '|');
+    }
+
+    /**
+     * Whether {@code c} is matched by {@code \s}: a space, tab, line feed, vertical tab, form feed
+     * or carriage return.
+     */
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isHeadwordLetter(char c) {
+        return (c >= 'a' && c <= 'z') || c == '\'' || c == 'ʼ' || c == '-';
+    }
+
+    private char[] reserve(int length) {
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        return buffer;
+    }
+
+    /**
+     * Headword and definition start of a line opening an entry.
+     */
+    static final class HeadwordLine {
+        final String headword;
+        final String definition;
+
+        HeadwordLine(String headword, String definition) {
+            this.headword = headword;
+            this.definition = definition;
+        }
+    }
+}
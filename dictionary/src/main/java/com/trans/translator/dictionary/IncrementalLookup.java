@@ -0,0 +1,216 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Looks up the partial results of a speech recognizer as the words arrive, so the answer to a
+ * spoken query is ready about when the speaker stops.
+ *
+ * Each partial result that differs from the previous one cancels the lookup in flight and starts
+ * its own. Results are compared by their words only, ignoring case and punctuation, so a partial
+ * result repeating the previous one is ignored. The final result usually agrees with the last
+ * partial one, and then takes over its lookup instead of starting again: its answer is delivered
+ * as soon as that lookup completes, or at once if it already has. If that lookup failed, the final
+ * result looks the query up again.
+ *
+ * Only the answer of the latest lookup is delivered. The check runs on the delivery executor just
+ * before the listener is called, so a single-threaded executor such as the main thread, on which
+ * the recognizer also reports, never sees a stale answer. Nothing here depends on Android: a
+ * scripted sequence of partial results can be replayed against any lookup, with
+ * {@code Runnable::run} as the delivery executor.
+ *
+ * @param <R> the answer of a lookup.
+ */
+public final class IncrementalLookup<R> {
+
+    private static final LongAdder LOOKUPS = Metrics.global().counter("speech.lookups");
+    private static final LongAdder CANCELLED = Metrics.global().counter("speech.cancelled");
+    private static final LongAdder FINAL_REUSED = Metrics.global().counter("speech.final_reused");
+
+    /**
+     * Starts looking up a query.
+     */
+    public interface Lookup<R> {
+        /**
+         * @param cancelled turns true once the answer is no longer wanted; a lookup may then
+         *                  complete with a {@link CancellationException}.
+         */
+        @NonNull
+        CompletableFuture<R> start(@NonNull String query, @NonNull BooleanSupplier cancelled);
+    }
+
+    /**
+     * Receives the answers on the delivery executor.
+     */
+    public interface Listener<R> {
+        /**
+         * Receives the answer to the latest query. An answer to a partial result may be followed
+         * by the same answer again once the final result confirms the query.
+         */
+        void onResult(@NonNull String query, R result, boolean isFinal);
+
+        /**
+         * Receives the failure of the latest lookup; the query gets no answer.
+         */
+        void onError(@NonNull String query, @NonNull Throwable error);
+    }
+
+    private final Lookup<R> lookup;
+    private final Listener<R> listener;
+    private final Executor delivery;
+
+    // Guarded by this. Bumped by every new query or cancellation; a lookup started under an
+    // older generation is stale.
+    private int generation;
+    private Request<R> current;
+
+    public IncrementalLookup(@NonNull Lookup<R> lookup, @NonNull Listener<R> listener, @NonNull Executor delivery) {
+        this.lookup = lookup;
+        this.listener = listener;
+        this.delivery = delivery;
+    }
+
+    /**
+     * Looks up a partial result, unless it has the same words as the previous one.
+     */
+    public synchronized void onPartial(@NonNull String text) {
+        submit(text, false);
+    }
+
+    /**
+     * Looks up the final result, taking over the lookup of the last partial result when it has
+     * the same words and did not fail. A final result with no words cancels the lookup in flight.
+     */
+    public synchronized void onFinal(@NonNull String text) {
+        submit(text, true);
+    }
+
+    /**
+     * Cancels the lookup in flight; its answer is not delivered.
+     */
+    public synchronized void cancel() {
+        generation++;
+        if (current != null) {
+            if (!current.future.isDone()) {
+                CANCELLED.increment();
+            }
+            current.future.cancel(false);
+            current = null;
+        }
+    }
+
+    private void submit(String text, boolean isFinal) {
+        String query = text.trim();
+        String words = words(query);
+        // A final result does not take over a failed lookup; it tries the words again.
+        boolean retry = isFinal && current != null && current.future.isCompletedExceptionally();
+        if (current != null && current.words.equals(words) && !retry) {
+            if (isFinal && !current.isFinal) {
+                FINAL_REUSED.increment();
+                current.isFinal = true;
+                Request<R> request = current;
+                if (request.future.isDone()) {
+                    delivery.execute(() -> deliver(request));
+                }
+            }
+            return;
+        }
+        cancel();
+        if (words.isEmpty()) {
+            return;
+        }
+        int started = generation;
+        Request<R> request = new Request<>(query, words, isFinal);
+        current = request;
+        LOOKUPS.increment();
+        try {
+            request.future = lookup.start(query, () -> isStale(started));
+        } catch (RuntimeException e) {
+            request.future = new CompletableFuture<>();
+            request.future.completeExceptionally(e);
+        }
+        request.future.whenComplete((result, error) -> delivery.execute(() -> deliver(request)));
+    }
+
+    private synchronized boolean isStale(int started) {
+        return generation != started;
+    }
+
+    private void deliver(Request<R> request) {
+        boolean isFinal;
+        synchronized (this) {
+            if (request != current || request.deliveredFinal
+                    || (!request.isFinal && request.deliveredPartial)) {
+                return;
+            }
+            isFinal = request.isFinal;
+            if (isFinal) {
+                request.deliveredFinal = true;
+            } else {
+                request.deliveredPartial = true;
+            }
+        }
+        R result;
+        try {
+            result = request.future.join();
+        } catch (CancellationException e) {
+            return;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof CancellationException) {
+                return;
+            }
+            synchronized (this) {
+                request.deliveredFinal = true;
+            }
+            listener.onError(request.query, cause);
+            return;
+        }
+        listener.onResult(request.query, result, isFinal);
+    }
+
+    /**
+     * The words of a recognizer result, lower-cased and separated by single spaces.
+     */
+    @NonNull
+    static String words(@NonNull String text) {
+        StringBuilder words = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '\'' || c == 'ʼ') {
+                if (space && words.length() > 0) {
+                    words.append(' ');
+                }
+                space = false;
+                words.append(Character.toLowerCase(c));
+            } else {
+                space = true;
+            }
+        }
+        return words.toString();
+    }
+
+    private static final class Request<R> {
+        final String query;
+        final String words;
+        // Guarded by the IncrementalLookup.
+        boolean isFinal;
+        boolean deliveredPartial;
+        boolean deliveredFinal;
+        CompletableFuture<R> future;
+
+        Request(String query, String words, boolean isFinal) {
+            this.query = query;
+            this.words = words;
+            this.isFinal = isFinal;
+        }
+    }
+}
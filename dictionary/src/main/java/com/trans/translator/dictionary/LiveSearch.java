@@ -0,0 +1,235 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Search-as-you-type session over a {@link RukigaDictionary}, fed the whole query text after
+ * every keystroke.
+ *
+ * A session remembers what the previous query matched. When the new query only extends it, as
+ * it does while a word is being typed, the search narrows the previous matches instead of
+ * starting over: the run of headwords or English terms sharing the longer prefix lies inside the
+ * run of the shorter one, and the entries matching it are a subset of the previous ones.
+ *
+ * English words are looked for in the glosses of the entries. Only when no gloss matches are the
+ * whole definitions searched, from scratch, so the remembered matches always cover glosses.
+ *
+ * The user's own entries, which are few, are scanned on every search and listed first, as
+ * {@link RukigaDictionary#searchEnglish} does.
+ *
+ * Not thread-safe; a session is meant to be used from one search thread. A search that is
+ * cancelled leaves the session as it was before the search started.
+ */
+public final class LiveSearch {
+
+    /**
+     * Rough cost of checking one definition for a word prefix, in visited postings. Below it a
+     * short candidate list is filtered by reading the definitions instead of the postings.
+     */
+    private static final int DEFINITION_CHECK_COST = 32;
+
+    private final RukigaDictionary dictionary;
+    private final CompiledDictionary compiled;
+    private final EntryFields entryFields;
+    private final EnglishIndex englishIndex;
+
+    // Runyankore/Rukiga to English: the run of headwords starting with headwordPrefix.
+    private String headwordPrefix = "";
+    private int headwordStart;
+    private int headwordEnd;
+
+    // English to Runyankore/Rukiga: entries containing every completed word, or null for no
+    // word, and the run of terms starting with the word being typed plus the entries among
+    // wordMatches containing one of them.
+    private List<String> words = Collections.emptyList();
+    private int[] wordMatches;
+    private String termPrefix = "";
+    private int termStart;
+    private int termEnd;
+    private int[] termMatches;
+
+    public LiveSearch(@NonNull RukigaDictionary dictionary) {
+        this.dictionary = dictionary;
+        this.compiled = dictionary.compiled();
+        this.entryFields = dictionary.entryFields();
+        this.englishIndex = dictionary.englishIndex();
+    }
+
+    @NonNull
+    public RukigaDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the first entry of each headword starting with the normalized query, in lexical
+     * order so that an exact match comes first, from rank {@code offset} on. Each definition is
+     * followed by those it refers to, as in {@link RukigaDictionary#resolved}. The headwords the
+     * user gave definitions come first, as {@link RukigaDictionary#translateRukigaToEnglish} shows
+     * them. Repeating the last query to fetch another page reuses its matches.
+     *
+     * @throws CancellationException once {@code cancelled} reports true.
+     */
+    @NonNull
+    public List<DictionaryMatch> rukigaToEnglish(@NonNull String query, int offset, int limit,
+                                                 @NonNull BooleanSupplier cancelled) {
+        String prefix = DictionaryParser.normalizeHeadword(query);
+        if (prefix.isEmpty()) {
+            headwordPrefix = "";
+            return new ArrayList<>();
+        }
+        int low = 0;
+        int high = compiled.headwordCount();
+        if (!headwordPrefix.isEmpty() && prefix.startsWith(headwordPrefix)) {
+            low = headwordStart;
+            high = headwordEnd;
+        }
+        int start = compiled.prefixStart(prefix, low, high);
+        int end = compiled.prefixEnd(prefix, start, high);
+        checkCancelled(cancelled);
+
+        headwordPrefix = prefix;
+        headwordStart = start;
+        headwordEnd = end;
+        List<DictionaryMatch> own = dictionary.overlay().isEmpty()
+                ? Collections.emptyList() : dictionary.ownHeadwords(prefix);
+        List<DictionaryMatch> results = new ArrayList<>();
+        for (int rank = Math.max(0, offset); rank < own.size() && results.size() < limit; rank++) {
+            results.add(own.get(rank));
+        }
+        if (own.isEmpty()) {
+            for (int i = start + Math.max(0, offset); i < end && results.size() < limit; i++) {
+                results.add(dictionary.resolved(compiled.posting(i, 0)));
+            }
+            return results;
+        }
+        // The user's headwords already have their row, so the compiled ones are counted without them.
+        int skip = Math.max(0, offset - own.size());
+        for (int i = start; i < end && results.size() < limit; i++) {
+            if (dictionary.overlay().displayHeadword(compiled.headword(i)) != null) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+            } else {
+                results.add(dictionary.resolved(compiled.posting(i, 0)));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the best scoring entries containing every completed word of the query and, while
+     * its last word is still being typed, a word starting with it, from rank {@code offset} on,
+     * after the user's definitions that do. Repeating the last query to fetch another page reuses
+     * its matches.
+     *
+     * @throws CancellationException once {@code cancelled} reports true.
+     */
+    @NonNull
+    public List<DictionaryMatch> englishToRukiga(@NonNull String query, int offset, int limit,
+                                                 @NonNull BooleanSupplier cancelled) {
+        List<String> tokens = EnglishIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            words = Collections.emptyList();
+            wordMatches = null;
+            termPrefix = "";
+            return new ArrayList<>();
+        }
+        boolean typing = Character.isLetter(query.charAt(query.length() - 1));
+        List<String> completed = typing ? tokens.subList(0, tokens.size() - 1) : tokens;
+        String prefix = typing ? tokens.get(tokens.size() - 1) : "";
+
+        List<String> newWords = words;
+        int[] newWordMatches = wordMatches;
+        boolean sameWords = completed.equals(words);
+        if (!sameWords) {
+            newWords = new ArrayList<>(completed);
+            newWordMatches = completed.isEmpty() ? null : englishIndex.all(completed, true);
+        }
+
+        int[] candidates;
+        int newTermStart = 0;
+        int newTermEnd = 0;
+        if (prefix.isEmpty()) {
+            candidates = newWordMatches != null ? newWordMatches : new int[0];
+        } else if (sameWords && !termPrefix.isEmpty() && prefix.startsWith(termPrefix)) {
+            // Narrow the previous matches down to the terms sharing the longer prefix.
+            newTermStart = englishIndex.prefixStart(prefix, termStart, termEnd);
+            newTermEnd = englishIndex.prefixEnd(prefix, newTermStart, termEnd);
+            candidates = newTermEnd - newTermStart == termEnd - termStart
+                    ? termMatches
+                    : narrow(termMatches, prefix, newTermStart, newTermEnd, cancelled);
+        } else {
+            newTermStart = englishIndex.prefixStart(prefix, 0, englishIndex.termCount());
+            newTermEnd = englishIndex.prefixEnd(prefix, newTermStart, englishIndex.termCount());
+            candidates = narrow(newWordMatches, prefix, newTermStart, newTermEnd, cancelled);
+        }
+        int[] results = candidates;
+        if (results.length == 0) {
+            int[] withWords = completed.isEmpty() ? null : englishIndex.all(completed, false);
+            if (prefix.isEmpty()) {
+                results = withWords;
+            } else if (withWords == null || withWords.length > 0) {
+                results = englishIndex.entriesWithTerms(newTermStart, newTermEnd, withWords, false, cancelled);
+            }
+        }
+        checkCancelled(cancelled);
+
+        words = newWords;
+        wordMatches = newWordMatches;
+        termPrefix = prefix;
+        termStart = newTermStart;
+        termEnd = newTermEnd;
+        termMatches = candidates;
+
+        // The word being typed only counts towards the score once it is a whole term.
+        List<String> scored = new ArrayList<>(completed);
+        if (!prefix.isEmpty()) {
+            scored.add(prefix);
+        }
+        float[] scores = englishIndex.score(scored, results);
+        List<DictionaryMatch> own = dictionary.overlay().search(completed, prefix);
+        if (own.isEmpty()) {
+            return RukigaDictionary.rankedPage(compiled, results, scores, offset, limit, completed, prefix);
+        }
+        List<DictionaryMatch> page = new ArrayList<>();
+        for (int rank = offset; rank < own.size() && page.size() < limit; rank++) {
+            page.add(own.get(rank));
+        }
+        page.addAll(RukigaDictionary.rankedPage(compiled, results, scores, Math.max(0, offset - own.size()),
+                limit - page.size(), completed, prefix));
+        return page;
+    }
+
+    /**
+     * Returns the entries of {@code within}, or of the whole dictionary when it is {@code null},
+     * with a gloss containing a word from the run of terms {@code [start, end)} starting with
+     * {@code prefix}, reading whichever is shorter of the candidates' glosses and the run's
+     * postings.
+     */
+    private int[] narrow(int[] within, String prefix, int start, int end, BooleanSupplier cancelled) {
+        if (within == null || (long) within.length * DEFINITION_CHECK_COST >= englishIndex.postingCount(start, end)) {
+            return englishIndex.entriesWithTerms(start, end, within, true, cancelled);
+        }
+        IntList found = new IntList();
+        for (int id : within) {
+            if (entryFields.containsWordStartingWith(compiled.definition(id), id, EntryFields.GLOSS, prefix)) {
+                found.add(id);
+            }
+        }
+        checkCancelled(cancelled);
+        return found.toArray();
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException();
+        }
+    }
+}
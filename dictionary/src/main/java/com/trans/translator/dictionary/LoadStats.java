@@ -0,0 +1,55 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a loaded dictionary, logged once loading completes.
+ */
+public final class LoadStats {
+
+    /** How many dangling references the summary spells out. */
+    private static final int DANGLING_SAMPLE_SIZE = 10;
+
+    public final int entryCount;
+    public final int headwordCount;
+    public final int referenceCount;
+    public final List<String> danglingReferences;
+    /** Bytes held by the arrays of the in-memory indexes; the entries stay in the mapped file. */
+    public final long indexBytes;
+
+    LoadStats(int entryCount, int headwordCount, int referenceCount, List<String> danglingReferences,
+              long indexBytes) {
+        this.entryCount = entryCount;
+        this.headwordCount = headwordCount;
+        this.referenceCount = referenceCount;
+        this.danglingReferences = Collections.unmodifiableList(danglingReferences);
+        this.indexBytes = indexBytes;
+    }
+
+    @NonNull
+    public String summary() {
+        StringBuilder builder = new StringBuilder()
+                .append(entryCount).append(" entries, ")
+                .append(headwordCount).append(" headwords, ")
+                .append(indexBytes / 1024).append(" KiB of indexes, ")
+                .append(referenceCount).append(" cross-references (")
+                .append(danglingReferences.size()).append(" dangling");
+        int shown = Math.min(DANGLING_SAMPLE_SIZE, danglingReferences.size());
+        for (int i = 0; i < shown; i++) {
+            builder.append(i == 0 ? ": " : ", ").append(danglingReferences.get(i));
+        }
+        if (shown < danglingReferences.size()) {
+            builder.append(", ...");
+        }
+        return builder.append(')').toString();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return summary();
+    }
+}
@@ -0,0 +1,210 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide timings and counts of the dictionary and translation paths, to find which one is
+ * slow on a real device.
+ *
+ * There are three kinds of metric, each named with dotted lowercase words:
+ * <ul>
+ *     <li>latency histograms, one per lookup path, recorded on every call;</li>
+ *     <li>counters, of how often something happened;</li>
+ *     <li>phases, the last duration of a one-off step such as loading.</li>
+ * </ul>
+ * Callers look a histogram or counter up once and keep it in a static field, so recording never
+ * goes through the registry and never locks. Counts kept elsewhere can be included in the
+ * reports as {@link #gauge gauges}.
+ */
+public final class Metrics {
+
+    private static final Metrics GLOBAL = new Metrics();
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Long> phases = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    @NonNull
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Returns the histogram of {@code name}, created on first use.
+     */
+    @NonNull
+    public LatencyHistogram histogram(@NonNull String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Returns the counter of {@code name}, created on first use.
+     */
+    @NonNull
+    public LongAdder counter(@NonNull String name) {
+        return counters.computeIfAbsent(name, ignored -> new LongAdder());
+    }
+
+    /**
+     * Records how long a one-off step took, replacing its previous duration.
+     */
+    public void recordPhase(@NonNull String name, long nanos) {
+        phases.put(name, nanos);
+    }
+
+    /**
+     * Reports the value of {@code supplier} under {@code name}, replacing the supplier registered
+     * before it. It is called on the thread producing a report.
+     */
+    public void gauge(@NonNull String name, @NonNull LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    /**
+     * Clears the histograms, counters and phases; the gauges are left to their owners.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (LongAdder counter : counters.values()) {
+            counter.reset();
+        }
+        phases.clear();
+    }
+
+    /**
+     * Returns the histograms that recorded anything, in name order.
+     */
+    @NonNull
+    public List<LatencyHistogram.Snapshot> snapshots() {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram histogram : new TreeMap<>(histograms).values()) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.count > 0) {
+                snapshots.add(snapshot);
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Returns the counters and gauges by name.
+     */
+    @NonNull
+    public Map<String, Long> counts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            counts.put(counter.getKey(), counter.getValue().sum());
+        }
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            counts.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the phase durations by name, in nanoseconds.
+     */
+    @NonNull
+    public Map<String, Long> phases() {
+        return new TreeMap<>(phases);
+    }
+
+    /**
+     * Renders every metric as a JSON object, with durations in microseconds:
+     * {@code {"phases": {name: us}, "counts": {name: n}, "latencies": {name: {"count", "mean_us",
+     * "p50_us", "p90_us", "p99_us", "max_us"}}}}.
+     */
+    @NonNull
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"phases\":{");
+        appendValues(json, phases(), true);
+        json.append("},\"counts\":{");
+        appendValues(json, counts(), false);
+        json.append("},\"latencies\":{");
+        boolean first = true;
+        for (LatencyHistogram.Snapshot snapshot : snapshots()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, snapshot.name);
+            json.append(":{\"count\":").append(snapshot.count)
+                    .append(",\"mean_us\":").append(micros(snapshot.meanNanos()))
+                    .append(",\"p50_us\":").append(micros(snapshot.percentileNanos(0.50)))
+                    .append(",\"p90_us\":").append(micros(snapshot.percentileNanos(0.90)))
+                    .append(",\"p99_us\":").append(micros(snapshot.percentileNanos(0.99)))
+                    .append(",\"max_us\":").append(micros(snapshot.maxNanos))
+                    .append('}');
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Renders every metric as aligned plain text, one per line, for a debug screen.
+     */
+    @NonNull
+    public String report() {
+        StringBuilder report = new StringBuilder("Phases (ms)\n");
+        for (Map.Entry<String, Long> phase : phases().entrySet()) {
+            report.append(String.format(Locale.ROOT, "  %-28s %10.1f%n", phase.getKey(), phase.getValue() / 1e6));
+        }
+        report.append("\nCounts\n");
+        for (Map.Entry<String, Long> count : counts().entrySet()) {
+            report.append(String.format(Locale.ROOT, "  %-28s %10d%n", count.getKey(), count.getValue()));
+        }
+        report.append(String.format(Locale.ROOT, "%nLatencies (ms)%n  %-28s %7s %8s %8s %8s %8s%n",
+                "", "count", "p50", "p90", "p99", "max"));
+        for (LatencyHistogram.Snapshot snapshot : snapshots()) {
+            report.append(String.format(Locale.ROOT, "  %-28s %7d %8.3f %8.3f %8.3f %8.3f%n", snapshot.name,
+                    snapshot.count, snapshot.percentileNanos(0.50) / 1e6, snapshot.percentileNanos(0.90) / 1e6,
+                    snapshot.percentileNanos(0.99) / 1e6, snapshot.maxNanos / 1e6));
+        }
+        return report.toString();
+    }
+
+    private static void appendValues(StringBuilder json, Map<String, Long> values, boolean nanos) {
+        boolean first = true;
+        for (Map.Entry<String, Long> value : values.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, value.getKey());
+            json.append(':').append(nanos ? micros(value.getValue()) : String.valueOf(value.getValue()));
+        }
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e3);
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
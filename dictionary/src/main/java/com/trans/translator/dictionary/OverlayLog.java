@@ -0,0 +1,135 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of the {@link UserEntry user entries}, replayed in order into a
+ * {@link UserOverlay}.
+ *
+ * Each record is its length, its operation, headword, definition and timestamp, and a CRC-32 of
+ * those fields, and is synced to disk before {@link #append} returns. A record cut short by a
+ * crash, or otherwise unreadable, ends the log: it and anything after it are ignored on
+ * {@link #read} and cut off before the next append.
+ */
+public final class OverlayLog {
+
+    private static final int MAGIC = 0x524b4f31; // "RKO1"
+    private static final int HEADER_SIZE = 4;
+    // Length prefix and CRC-32 around each record's fields.
+    private static final int RECORD_FRAMING_SIZE = 8;
+
+    private final File file;
+
+    public OverlayLog(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the entries of the log in the order they were appended; none if it does not exist.
+     */
+    @NonNull
+    public synchronized List<UserEntry> read() throws IOException {
+        List<UserEntry> entries = new ArrayList<>();
+        readValid(entries);
+        return entries;
+    }
+
+    /**
+     * Appends an entry and syncs it to disk.
+     */
+    public synchronized void append(@NonNull UserEntry entry) throws IOException {
+        long valid = readValid(null);
+        ByteArrayOutputStream fields = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(fields)) {
+            out.writeByte(entry.operation);
+            out.writeUTF(entry.displayHeadword);
+            out.writeUTF(entry.definition);
+            out.writeLong(entry.timestamp);
+        }
+        byte[] payload = fields.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (valid == 0) {
+                raf.setLength(0);
+                raf.writeInt(MAGIC);
+                valid = HEADER_SIZE;
+            } else if (raf.length() != valid) {
+                raf.setLength(valid);
+            }
+            raf.seek(valid);
+            ByteArrayOutputStream record = new ByteArrayOutputStream(payload.length + RECORD_FRAMING_SIZE);
+            try (DataOutputStream out = new DataOutputStream(record)) {
+                out.writeInt(payload.length);
+                out.write(payload);
+                out.writeInt((int) crc.getValue());
+            }
+            raf.write(record.toByteArray());
+            raf.getFD().sync();
+        }
+    }
+
+    /**
+     * Bytes held by the log on disk.
+     */
+    public long sizeInBytes() {
+        return file.length();
+    }
+
+    /**
+     * Reads the records up to the first unreadable one into {@code entries}, when given, and
+     * returns the length of the file they span, or {@code 0} when it has no valid header.
+     */
+    private long readValid(List<UserEntry> entries) throws IOException {
+        if (!file.isFile()) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (bytes.length < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            return 0;
+        }
+        int valid = HEADER_SIZE;
+        while (bytes.length - valid >= RECORD_FRAMING_SIZE) {
+            int length = buffer.getInt(valid);
+            if (length < 0 || length > bytes.length - valid - RECORD_FRAMING_SIZE) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, valid + 4, length);
+            if (buffer.getInt(valid + 4 + length) != (int) crc.getValue()) {
+                break;
+            }
+            if (entries != null) {
+                entries.add(readEntry(bytes, valid + 4, length));
+            }
+            valid += length + RECORD_FRAMING_SIZE;
+        }
+        return valid;
+    }
+
+    private static UserEntry readEntry(byte[] bytes, int offset, int length) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+            int operation = in.readByte();
+            if (operation != UserEntry.ADD && operation != UserEntry.CORRECT) {
+                // Intact but written by a newer version; stop rather than let an append cut it off.
+                throw new IOException("Unsupported user entry operation " + operation);
+            }
+            return new UserEntry(operation, in.readUTF(), in.readUTF(), in.readLong());
+        }
+    }
+}
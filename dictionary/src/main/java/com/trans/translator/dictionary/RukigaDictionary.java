@@ -0,0 +1,544 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lookup engine over a {@link CompiledDictionary}. Provides Runyankore/Rukiga to English and
+ * English to Runyankore/Rukiga lookups without any dependency on Android, so the same code backs
+ * the app and runs on a plain JVM.
+ *
+ * A dictionary is immutable and safe to share between threads. The user's own entries are laid
+ * over it by {@link #withOverlay}, which returns a new dictionary sharing every index with this
+ * one, so callers can swap whole snapshots behind a single reference.
+ */
+public final class RukigaDictionary {
+
+    /** Number of "Did you mean" suggestions included in a missed lookup. */
+    public static final int SUGGESTION_LIMIT = 3;
+
+    /** Number of headwords returned by an English to Runyankore/Rukiga lookup. */
+    public static final int REVERSE_RESULT_LIMIT = 5;
+
+    /** Number of example sentences returned for a phrase that is not a headword. */
+    public static final int EXAMPLE_RESULT_LIMIT = 3;
+
+    /**
+     * Score from which an example sentence is taken for a translation of an English sentence:
+     * the query is most of the sentence, not a phrase the two share.
+     */
+    static final float CLOSE_EXAMPLE_SCORE = 0.8f;
+
+    /**
+     * Headword keys a misspelled lookup may compare while searching for close ones. It bounds the
+     * search like a time limit would, but gives the same suggestions on any device.
+     */
+    static final int FUZZY_VISIT_BUDGET = 8_000;
+
+    // Latency of each path a lookup can be answered by, named after it in Metrics.
+    private static final LatencyHistogram RUKIGA_EXACT = Metrics.global().histogram("rukiga.exact");
+    private static final LatencyHistogram RUKIGA_PHRASE = Metrics.global().histogram("rukiga.phrase");
+    private static final LatencyHistogram RUKIGA_STEM = Metrics.global().histogram("rukiga.stem");
+    private static final LatencyHistogram RUKIGA_PREFIX = Metrics.global().histogram("rukiga.prefix");
+    private static final LatencyHistogram RUKIGA_FUZZY = Metrics.global().histogram("rukiga.fuzzy");
+    private static final LatencyHistogram RUKIGA_MISS = Metrics.global().histogram("rukiga.miss");
+    private static final LatencyHistogram GLOSS_SENTENCE = Metrics.global().histogram("rukiga.gloss_sentence");
+    private static final LatencyHistogram ENGLISH_GLOSS = Metrics.global().histogram("english.gloss");
+    private static final LatencyHistogram ENGLISH_EXAMPLES = Metrics.global().histogram("english.examples");
+    private static final LatencyHistogram ENGLISH_KEYWORDS = Metrics.global().histogram("english.keywords");
+    private static final LatencyHistogram ENGLISH_MISS = Metrics.global().histogram("english.miss");
+
+    private final CompiledDictionary compiled;
+    private final EntryFields entryFields;
+    private final EnglishIndex englishIndex;
+    private final SentenceIndex sentenceIndex;
+    private final StemIndex stemIndex;
+    private final FuzzyMatcher fuzzyMatcher;
+    private final CrossReferences crossReferences;
+    private final LoadStats loadStats;
+    private final UserOverlay overlay;
+    private final ThreadLocal<SentenceGlosser> glossers = ThreadLocal.withInitial(this::newGlosser);
+
+    /**
+     * Builds every index on the calling thread. {@link DictionaryLoader} builds them in parallel.
+     */
+    public RukigaDictionary(@NonNull CompiledDictionary compiled) {
+        this(compiled, EntryFields.build(compiled));
+    }
+
+    private RukigaDictionary(CompiledDictionary compiled, EntryFields entryFields) {
+        this(compiled, entryFields, EnglishIndex.build(compiled, entryFields),
+                SentenceIndex.build(compiled, entryFields), StemIndex.build(compiled),
+                FuzzyMatcher.build(compiled), CrossReferences.build(compiled));
+    }
+
+    RukigaDictionary(CompiledDictionary compiled, EntryFields entryFields, EnglishIndex englishIndex,
+                     SentenceIndex sentenceIndex, StemIndex stemIndex, FuzzyMatcher fuzzyMatcher,
+                     CrossReferences crossReferences) {
+        this.compiled = compiled;
+        this.entryFields = entryFields;
+        this.englishIndex = englishIndex;
+        this.sentenceIndex = sentenceIndex;
+        this.stemIndex = stemIndex;
+        this.fuzzyMatcher = fuzzyMatcher;
+        this.crossReferences = crossReferences;
+        this.overlay = UserOverlay.EMPTY;
+        this.loadStats = new LoadStats(compiled.entryCount(), compiled.headwordCount(),
+                crossReferences.referenceCount(), crossReferences.dangling(),
+                entryFields.sizeInBytes() + englishIndex.sizeInBytes() + sentenceIndex.sizeInBytes()
+                        + stemIndex.sizeInBytes() + fuzzyMatcher.sizeInBytes()
+                        + crossReferences.sizeInBytes());
+    }
+
+    private RukigaDictionary(RukigaDictionary base, UserOverlay overlay) {
+        this.compiled = base.compiled;
+        this.entryFields = base.entryFields;
+        this.englishIndex = base.englishIndex;
+        this.sentenceIndex = base.sentenceIndex;
+        this.stemIndex = base.stemIndex;
+        this.fuzzyMatcher = base.fuzzyMatcher;
+        this.crossReferences = base.crossReferences;
+        this.loadStats = base.loadStats;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Opens a dictionary over a buffer holding the compiled index, building its indexes on the
+     * calling thread.
+     */
+    @NonNull
+    public static RukigaDictionary open(@NonNull ByteBuffer buffer) throws IOException {
+        return new RukigaDictionary(CompiledDictionary.open(buffer));
+    }
+
+    @NonNull
+    public CompiledDictionary compiled() {
+        return compiled;
+    }
+
+    @NonNull
+    public EntryFields entryFields() {
+        return entryFields;
+    }
+
+    EnglishIndex englishIndex() {
+        return englishIndex;
+    }
+
+    @NonNull
+    public CrossReferences crossReferences() {
+        return crossReferences;
+    }
+
+    @NonNull
+    public LoadStats loadStats() {
+        return loadStats;
+    }
+
+    @NonNull
+    public UserOverlay overlay() {
+        return overlay;
+    }
+
+    /**
+     * Returns this dictionary with {@code overlay} in place of its user entries. The compiled
+     * dictionary and its indexes are shared, not rebuilt.
+     */
+    @NonNull
+    public RukigaDictionary withOverlay(@NonNull UserOverlay overlay) {
+        return overlay == this.overlay ? this : new RukigaDictionary(this, overlay);
+    }
+
+    /**
+     * Looks up an entry by Runyankore/Rukiga headword and returns the available English
+     * definitions. If multiple senses exist, all of them are returned separated by blank lines,
+     * the user's own first; a headword the user corrected only has theirs. A phrase that is not a
+     * headword is answered word by word and with the closest example sentences instead.
+     */
+    @NonNull
+    public String translateRukigaToEnglish(@NonNull String source) {
+        if (source.trim().isEmpty()) {
+            return "";
+        }
+
+        long start = System.nanoTime();
+        String normalized = DictionaryParser.normalizeHeadword(source);
+        if (normalized.isEmpty()) {
+            return timed(RUKIGA_MISS, start, "Translation not found");
+        }
+
+        int index = compiled.findHeadword(normalized);
+        if (index >= 0 || !overlay.definitions(normalized).isEmpty()) {
+            return timed(RUKIGA_EXACT, start, joinDefinitions(definitionsOf(normalized, index)));
+        }
+
+        if (normalized.indexOf(' ') >= 0) {
+            List<String> sections = new ArrayList<>();
+            GlossedText glossed = glossSentence(source);
+            if (hasReading(glossed)) {
+                sections.add("Word by word:\n" + formatGlosses(glossed));
+            }
+            List<String> examples = new ArrayList<>();
+            for (SentencePair pair : searchExamples(normalized, SentenceIndex.RUKIGA, EXAMPLE_RESULT_LIMIT)) {
+                examples.add(pair.toString());
+            }
+            if (!examples.isEmpty()) {
+                sections.add("From the examples:\n" + joinDefinitions(examples));
+            }
+            if (!sections.isEmpty()) {
+                return timed(RUKIGA_PHRASE, start, joinDefinitions(sections));
+            }
+        }
+
+        // Attempt prefix matches if exact lookup fails. The headword table is sorted, so the
+        // candidates are the contiguous run starting at the insertion point.
+        List<String> suggestions = new ArrayList<>();
+        int first = -(index + 1);
+        int end = Math.min(compiled.prefixEnd(normalized, first), first + SUGGESTION_LIMIT);
+        for (int i = first; i < end; i++) {
+            suggestions.add(formatSuggestion(compiled.headword(i), compiled.definition(compiled.posting(i, 0))));
+        }
+        if (!suggestions.isEmpty()) {
+            return timed(RUKIGA_PREFIX, start, "Did you mean:\n" + joinDefinitions(suggestions));
+        }
+
+        // A whole word nothing starts with may be listed under another noun-class or verbal
+        // prefix.
+        for (int i : stemIndex.lookup(normalized)) {
+            if (suggestions.size() >= SUGGESTION_LIMIT) {
+                break;
+            }
+            suggestions.add(formatSuggestion(compiled.headword(i), compiled.definition(compiled.posting(i, 0))));
+        }
+        if (!suggestions.isEmpty()) {
+            return timed(RUKIGA_STEM, start, "Did you mean:\n" + joinDefinitions(suggestions));
+        }
+
+        // Nothing shares the prefix, so the query is probably misspelled.
+        for (int i : fuzzyMatcher.closest(normalized, SUGGESTION_LIMIT, FUZZY_VISIT_BUDGET)) {
+            suggestions.add(formatSuggestion(compiled.headword(i), compiled.definition(compiled.posting(i, 0))));
+        }
+        if (!suggestions.isEmpty()) {
+            return timed(RUKIGA_FUZZY, start, "Did you mean:\n" + joinDefinitions(suggestions));
+        }
+
+        return timed(RUKIGA_MISS, start, "Translation not found");
+    }
+
+    /**
+     * Reads a Runyankore/Rukiga text word by word, with the glosser kept for the calling thread.
+     */
+    @NonNull
+    public GlossedText glossSentence(@NonNull String source) {
+        long start = System.nanoTime();
+        return timed(GLOSS_SENTENCE, start, glossers.get().gloss(source));
+    }
+
+    /**
+     * Returns a glosser over this dictionary for a caller glossing many texts on one thread.
+     */
+    @NonNull
+    public SentenceGlosser newGlosser() {
+        return new SentenceGlosser(compiled, entryFields, stemIndex, fuzzyMatcher, crossReferences, overlay);
+    }
+
+    /**
+     * Returns up to {@code limit} example sentence pairs closest to {@code source}, matched
+     * against their {@link SentenceIndex#RUKIGA} or {@link SentenceIndex#ENGLISH} side.
+     */
+    @NonNull
+    public List<SentencePair> searchExamples(@NonNull String source, int side, int limit) {
+        return sentenceIndex.search(source, side, limit);
+    }
+
+    /**
+     * Returns the normalized headwords starting with the normalized form of {@code source} in
+     * lexical order, skipping the first {@code offset} so callers can page through long runs.
+     */
+    @NonNull
+    public List<String> suggestHeadwords(@NonNull String source, int offset, int limit) {
+        List<String> headwords = new ArrayList<>();
+        String prefix = DictionaryParser.normalizeHeadword(source);
+        if (prefix.isEmpty() || offset < 0 || limit <= 0) {
+            return headwords;
+        }
+        int start = compiled.prefixStart(prefix);
+        int end = compiled.prefixEnd(prefix, start);
+        for (int i = start + offset; i < end && headwords.size() < limit; i++) {
+            headwords.add(compiled.headword(i));
+        }
+        return headwords;
+    }
+
+    /**
+     * Returns how many headwords start with the normalized form of {@code source}.
+     */
+    public int countSuggestions(@NonNull String source) {
+        String prefix = DictionaryParser.normalizeHeadword(source);
+        if (prefix.isEmpty()) {
+            return 0;
+        }
+        int start = compiled.prefixStart(prefix);
+        return compiled.prefixEnd(prefix, start) - start;
+    }
+
+    /**
+     * Performs a reverse lookup through the English word index and returns up to five candidate
+     * Runyankore/Rukiga headwords whose glosses mention every word of the provided English term,
+     * best BM25 score first. When no gloss has them all, entries mentioning them anywhere in the
+     * definition are ranked instead, and failing that entries mentioning any of its longer words,
+     * again in a gloss first.
+     */
+    @NonNull
+    public List<DictionaryEntry> translateEnglishToRukiga(@NonNull String source) {
+        List<DictionaryEntry> entries = new ArrayList<>();
+        for (DictionaryMatch match : searchEnglish(source, 0, REVERSE_RESULT_LIMIT)) {
+            entries.add(match.toEntry());
+        }
+        return entries;
+    }
+
+    /**
+     * Looks up an English sentence. The example sentences close to it come back as entries with
+     * the Runyankore/Rukiga sentence for headword and the English one for definition. Without a
+     * close example, the sentence is looked up as by {@link #translateEnglishToRukiga} when some
+     * entry mentions all its words, and otherwise word by word, one entry for each word that is
+     * neither short nor a common function word.
+     */
+    @NonNull
+    public List<DictionaryEntry> translateEnglishSentence(@NonNull String source) {
+        List<DictionaryEntry> entries = new ArrayList<>();
+        for (SentencePair pair : searchExamples(source, SentenceIndex.ENGLISH, EXAMPLE_RESULT_LIMIT)) {
+            if (pair.score >= CLOSE_EXAMPLE_SCORE) {
+                entries.add(new DictionaryEntry(pair.rukiga, pair.english));
+            }
+        }
+        if (!entries.isEmpty()) {
+            return entries;
+        }
+        List<String> terms = EnglishIndex.tokenize(source);
+        if (terms.size() <= 1 || !overlay.search(terms, "").isEmpty()
+                || englishIndex.all(terms, true).length > 0 || englishIndex.all(terms, false).length > 0) {
+            return translateEnglishToRukiga(source);
+        }
+        Set<String> seen = new HashSet<>();
+        for (String term : terms) {
+            if (term.length() < 3 || SentenceIndex.isEnglishMarker(term) || !seen.add(term)) {
+                continue;
+            }
+            for (DictionaryMatch match : searchEnglish(term, 0, 1)) {
+                if (seen.add('\0' + match.displayHeadword)) {
+                    entries.add(match.toEntry());
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Ranks entries like {@link #translateEnglishToRukiga} and returns the page of {@code limit}
+     * results starting at rank {@code offset}, one per headword, with the query words located in
+     * each definition. User entries mentioning every word of {@code source} come first.
+     */
+    @NonNull
+    public List<DictionaryMatch> searchEnglish(@NonNull String source, int offset, int limit) {
+        List<String> terms = EnglishIndex.tokenize(source);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long start = System.nanoTime();
+        LatencyHistogram path = ENGLISH_GLOSS;
+        int[] candidates = englishIndex.all(terms, true);
+        if (candidates.length == 0) {
+            // Example sentences use the words without translating them, so they only count when
+            // no gloss does.
+            path = ENGLISH_EXAMPLES;
+            candidates = englishIndex.all(terms, false);
+        }
+        if (candidates.length == 0) {
+            path = ENGLISH_KEYWORDS;
+            // Try again using individual keywords to provide broader suggestions.
+            List<String> keywords = new ArrayList<>();
+            for (String term : terms) {
+                if (term.length() >= 3) {
+                    keywords.add(term);
+                }
+            }
+            terms = keywords;
+            candidates = englishIndex.any(keywords, true);
+            if (candidates.length == 0) {
+                candidates = englishIndex.any(keywords, false);
+            }
+            if (candidates.length == 0) {
+                path = ENGLISH_MISS;
+            }
+        }
+        float[] scores = englishIndex.score(terms, candidates);
+        if (overlay.isEmpty()) {
+            return timed(path, start, rankedPage(compiled, candidates, scores, offset, limit, terms, ""));
+        }
+        // The user's entries rank ahead of the compiled ones.
+        List<DictionaryMatch> own = overlay.search(EnglishIndex.tokenize(source), "");
+        List<DictionaryMatch> page = new ArrayList<>();
+        for (int rank = offset; rank < own.size() && page.size() < limit; rank++) {
+            page.add(own.get(rank));
+        }
+        page.addAll(rankedPage(compiled, candidates, scores, Math.max(0, offset - own.size()),
+                limit - page.size(), terms, ""));
+        return timed(path, start, page);
+    }
+
+    /**
+     * Selects ranks {@code [offset, offset + limit)} of the scored candidates, keeping the best
+     * entry of each headword, and locates the terms and word prefix in their definitions.
+     */
+    static List<DictionaryMatch> rankedPage(CompiledDictionary compiled, int[] candidates, float[] scores,
+                                            int offset, int limit, List<String> terms, String prefix) {
+        List<DictionaryMatch> page = new ArrayList<>();
+        if (limit <= 0 || offset < 0) {
+            return page;
+        }
+        TopK best = new TopK(offset + limit, compiled::displayHeadword);
+        for (int i = 0; i < candidates.length; i++) {
+            best.offer(candidates[i], scores[i]);
+        }
+        int[] ranked = best.toSortedArray();
+        for (int rank = offset; rank < ranked.length; rank++) {
+            int id = ranked[rank];
+            String definition = compiled.definition(id);
+            page.add(new DictionaryMatch(id, compiled.displayHeadword(id), definition,
+                    EnglishIndex.matchOffsets(definition, terms, prefix)));
+        }
+        return page;
+    }
+
+    /**
+     * Returns a row for each headword starting with {@code prefix}, normalized, that the user gave
+     * definitions, in lexical order, with the definitions {@link #translateRukigaToEnglish} shows.
+     */
+    @NonNull
+    List<DictionaryMatch> ownHeadwords(@NonNull String prefix) {
+        List<DictionaryMatch> rows = new ArrayList<>();
+        for (String normalized : overlay.headwordsStartingWith(prefix)) {
+            rows.add(DictionaryMatch.of(overlay.entryId(normalized), overlay.displayHeadword(normalized),
+                    joinDefinitions(definitionsOf(normalized, compiled.findHeadword(normalized)))));
+        }
+        return rows;
+    }
+
+    /**
+     * The entry as a result row, its definition followed by the definitions of the entries it
+     * points to, as {@link #translateRukigaToEnglish} shows it.
+     */
+    @NonNull
+    public DictionaryMatch resolved(int entryId) {
+        return DictionaryMatch.of(entryId, compiled.displayHeadword(entryId), definitionWithReferences(entryId));
+    }
+
+    /**
+     * The user's definitions of a normalized headword, then, unless the user corrected it, those
+     * of the compiled headword {@code index} with the entries they refer to.
+     */
+    private List<String> definitionsOf(String normalized, int index) {
+        List<String> definitions = new ArrayList<>(overlay.definitions(normalized));
+        if (index >= 0 && !overlay.replacesBase(normalized)) {
+            for (int i = 0; i < compiled.postingCount(index); i++) {
+                definitions.add(definitionWithReferences(compiled.posting(index, i)));
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * Returns the definition of an entry followed by the definitions it points to, so that
+     * {@code See:} entries and bare variant or plural pointers answer the lookup on their own.
+     */
+    private String definitionWithReferences(int entryId) {
+        String definition = compiled.definition(entryId);
+        int count = crossReferences.count(entryId);
+        if (count == 0) {
+            return definition;
+        }
+        StringBuilder builder = new StringBuilder(definition);
+        boolean pointer = crossReferences.isPointer(entryId);
+        for (int i = 0; i < count; i++) {
+            if (!pointer && crossReferences.kind(entryId, i) != CrossReferences.SEE) {
+                continue;
+            }
+            int target = crossReferences.target(entryId, i);
+            for (int p = 0; p < compiled.postingCount(target); p++) {
+                int targetEntry = compiled.posting(target, p);
+                if (targetEntry != entryId) {
+                    builder.append("\n→ ").append(compiled.headword(target))
+                            .append(" — ").append(compiled.definition(targetEntry));
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Records the time since {@code start} in the histogram of the path that produced a result.
+     */
+    private static <T> T timed(LatencyHistogram path, long start, T result) {
+        path.recordSince(start);
+        return result;
+    }
+
+    private static boolean hasReading(GlossedText glossed) {
+        for (WordGloss word : glossed.words) {
+            if (word.match != WordGloss.NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the words of a glossed text one per line, reading a multi-word headword as a whole.
+     * Words matched by stem or spelling show the headword they were read as.
+     */
+    private static String formatGlosses(GlossedText glossed) {
+        StringBuilder builder = new StringBuilder();
+        for (WordGloss reading : glossed.readings()) {
+            if (builder.length() > 0) {
+                builder.append('\n');
+            }
+            builder.append(glossed.text, reading.start, reading.end);
+            if (reading.match == WordGloss.STEM || reading.match == WordGloss.FUZZY) {
+                builder.append(" (").append(reading.headword).append(')');
+            }
+            if (reading.match == WordGloss.NONE) {
+                builder.append(" — ?");
+            } else if (!reading.gloss.isEmpty()) {
+                builder.append(" — ").append(reading.gloss);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String joinDefinitions(List<String> definitions) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < definitions.size(); i++) {
+            builder.append(definitions.get(i));
+            if (i < definitions.size() - 1) {
+                builder.append("\n\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String formatSuggestion(String headword, String definition) {
+        String sanitizedDefinition = definition.trim();
+        if (sanitizedDefinition.length() > 220) {
+            sanitizedDefinition = sanitizedDefinition.substring(0, 217) + "...";
+        }
+        return headword + " — " + sanitizedDefinition;
+    }
+}
@@ -0,0 +1,334 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a Runyankore/Rukiga text word by word, for input that is longer than a headword.
+ *
+ * The text is split into words once, and the distinct words are then resolved together, stage
+ * by stage: every word is looked up as a headword, the user's own first, the words left over are
+ * looked up by
+ * {@link StemIndex stem}, and those still left over by {@link FuzzyMatcher spelling}, the fuzzy
+ * searches sharing one {@link #BATCH_FUZZY_VISIT_BUDGET budget} of headword keys compared. A
+ * word repeated in the text is resolved once. Runs of up to {@link #MAX_PHRASE_WORDS} words are
+ * also matched against the multi-word headwords, longest first.
+ *
+ * A glosser keeps its word lists, lookup keys and search buffers from one text to the next, so
+ * a paragraph costs one pass rather than one lookup per word each allocating its own. It is not
+ * thread-safe; use one per thread.
+ */
+public final class SentenceGlosser {
+
+    /** Longest run of words matched against the multi-word headwords. */
+    public static final int MAX_PHRASE_WORDS = 4;
+
+    /** Headword keys all the fuzzy lookups of one text may compare together. */
+    static final int BATCH_FUZZY_VISIT_BUDGET = 4 * RukigaDictionary.FUZZY_VISIT_BUDGET;
+
+    /** Shorter words are left unresolved rather than matched by spelling. */
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    /** Entries whose gloss is included in the reading of a headword. */
+    private static final int MAX_GLOSSES = 2;
+
+    private final CompiledDictionary compiled;
+    private final EntryFields fields;
+    private final StemIndex stemIndex;
+    private final FuzzyMatcher fuzzyMatcher;
+    private final CrossReferences crossReferences;
+    private final UserOverlay overlay;
+
+    // Per word of the text: its offsets and the distinct word it reads as.
+    private final IntList starts = new IntList();
+    private final IntList ends = new IntList();
+    private final IntList wordSlots = new IntList();
+    // Per distinct word: its normalized spelling, match and headword.
+    private final Map<String, Integer> slotsByWord = new HashMap<>();
+    private final List<String> slotWords = new ArrayList<>();
+    private final IntList slotMatches = new IntList();
+    private final IntList slotHeadwords = new IntList();
+    // Per distinct word the user gave definitions: the reading of the user's definitions.
+    private final Map<Integer, String> ownGlosses = new HashMap<>();
+    private final Map<Integer, String> glosses = new HashMap<>();
+    private final StringBuilder key = new StringBuilder();
+    private final FuzzyMatcher.Scratch fuzzyScratch = new FuzzyMatcher.Scratch();
+
+    SentenceGlosser(CompiledDictionary compiled, EntryFields fields, StemIndex stemIndex,
+                    FuzzyMatcher fuzzyMatcher, CrossReferences crossReferences, UserOverlay overlay) {
+        this.compiled = compiled;
+        this.fields = fields;
+        this.stemIndex = stemIndex;
+        this.fuzzyMatcher = fuzzyMatcher;
+        this.crossReferences = crossReferences;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Reads every word of {@code text} and finds the multi-word headwords it contains.
+     */
+    @NonNull
+    public GlossedText gloss(@NonNull String text) {
+        split(text);
+        resolveExact();
+        resolveStems();
+        resolveFuzzy();
+
+        List<WordGloss> words = new ArrayList<>(wordSlots.size());
+        for (int w = 0; w < wordSlots.size(); w++) {
+            int slot = wordSlots.get(w);
+            int headword = slotHeadwords.get(slot);
+            String own = ownGlosses.get(slot);
+            if (own != null) {
+                words.add(new WordGloss(starts.get(w), ends.get(w), w, 1, WordGloss.EXACT, headword,
+                        slotWords.get(slot), own));
+                continue;
+            }
+            words.add(new WordGloss(starts.get(w), ends.get(w), w, 1, slotMatches.get(slot), headword,
+                    headword >= 0 ? compiled.headword(headword) : null, glossOf(headword)));
+        }
+        List<WordGloss> phrases = findPhrases();
+        glosses.clear();
+        return new GlossedText(text, words, phrases);
+    }
+
+    /**
+     * Splits the text into words of letters and digits, which may contain apostrophes and hyphens
+     * between letters, and assigns each the slot of its normalized spelling.
+     */
+    private void split(String text) {
+        starts.clear();
+        ends.clear();
+        wordSlots.clear();
+        slotsByWord.clear();
+        slotWords.clear();
+        slotMatches.clear();
+        slotHeadwords.clear();
+        ownGlosses.clear();
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            key.setLength(0);
+            while (i < length) {
+                char c = text.charAt(i);
+                if (Character.isLetterOrDigit(c)) {
+                    char normalized = HeadwordLexer.normalizedChar(c);
+                    if (normalized != 0) {
+                        key.append(normalized);
+                    }
+                } else if (isJoiner(c) && i + 1 < length && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                    key.append(c == '-' ? '-' : '\'');
+                } else {
+                    break;
+                }
+                i++;
+            }
+            if (key.length() == 0) {
+                continue;
+            }
+            String word = key.toString();
+            Integer slot = slotsByWord.get(word);
+            if (slot == null) {
+                slot = slotWords.size();
+                slotsByWord.put(word, slot);
+                slotWords.add(word);
+                slotMatches.add(WordGloss.NONE);
+                slotHeadwords.add(-1);
+            }
+            starts.add(start);
+            ends.add(i);
+            wordSlots.add(slot);
+        }
+    }
+
+    private static boolean isJoiner(char c) {
+        return c == '\'' || c == 'ʼ' || c == '’' || c == '-';
+    }
+
+    private void resolveExact() {
+        for (int slot = 0; slot < slotWords.size(); slot++) {
+            String word = slotWords.get(slot);
+            int index = compiled.findHeadword(word);
+            List<String> own = overlay.definitions(word);
+            if (!own.isEmpty()) {
+                if (index < 0 || overlay.replacesBase(word)) {
+                    index = -1;
+                }
+                slotMatches.set(slot, WordGloss.EXACT);
+                slotHeadwords.set(slot, index);
+                ownGlosses.put(slot, ownGloss(own, index));
+            } else if (index >= 0) {
+                slotMatches.set(slot, WordGloss.EXACT);
+                slotHeadwords.set(slot, index);
+            }
+        }
+    }
+
+    /**
+     * Returns the leading words of the user's definitions of a word, followed by the glosses of
+     * its compiled headword {@code index} unless it is {@code -1}.
+     */
+    private String ownGloss(List<String> definitions, int index) {
+        StringBuilder gloss = new StringBuilder();
+        int found = 0;
+        for (int d = 0; d < definitions.size() && found < MAX_GLOSSES; d++) {
+            String definition = definitions.get(d);
+            EntryFields.Chunk split = EntryFields.split(definition);
+            if (split.kinds.size() == 0) {
+                continue;
+            }
+            // The first gloss, or whatever comes first in a definition laid out without one.
+            int field = 0;
+            for (int i = split.kinds.size() - 1; i >= 0; i--) {
+                if (split.kinds.get(i) == EntryFields.GLOSS) {
+                    field = i;
+                }
+            }
+            int start = split.bounds.get(2 * field);
+            int end = split.bounds.get(2 * field + 1);
+            String lead = definition.substring(start, EnglishIndex.leadGlossEnd(definition, start, end)).trim();
+            if (!lead.isEmpty() && gloss.indexOf(lead) < 0) {
+                if (gloss.length() > 0) {
+                    gloss.append("; ");
+                }
+                gloss.append(lead);
+                found++;
+            }
+        }
+        String base = found < MAX_GLOSSES ? glossOf(index) : "";
+        if (!base.isEmpty() && gloss.indexOf(base) < 0) {
+            gloss.append(gloss.length() > 0 ? "; " : "").append(base);
+        }
+        return gloss.toString();
+    }
+
+    private void resolveStems() {
+        for (int slot = 0; slot < slotWords.size(); slot++) {
+            if (slotMatches.get(slot) != WordGloss.NONE) {
+                continue;
+            }
+            int[] candidates = stemIndex.lookup(slotWords.get(slot));
+            if (candidates.length > 0) {
+                slotMatches.set(slot, WordGloss.STEM);
+                slotHeadwords.set(slot, candidates[0]);
+            }
+        }
+    }
+
+    private void resolveFuzzy() {
+        int remaining = BATCH_FUZZY_VISIT_BUDGET;
+        for (int slot = 0; slot < slotWords.size(); slot++) {
+            String word = slotWords.get(slot);
+            if (slotMatches.get(slot) != WordGloss.NONE || word.length() < MIN_FUZZY_LENGTH) {
+                continue;
+            }
+            if (remaining <= 0) {
+                break;
+            }
+            int[] closest = fuzzyMatcher.closest(word, 1, Math.min(remaining, RukigaDictionary.FUZZY_VISIT_BUDGET),
+                    fuzzyScratch);
+            remaining -= fuzzyScratch.visited;
+            if (closest.length > 0) {
+                slotMatches.set(slot, WordGloss.FUZZY);
+                slotHeadwords.set(slot, closest[0]);
+            }
+        }
+    }
+
+    /**
+     * Matches the runs of words against the multi-word headwords, taking the longest match at
+     * each word and resuming after it. A run is only extended while some headword starts with it.
+     */
+    private List<WordGloss> findPhrases() {
+        List<WordGloss> phrases = new ArrayList<>();
+        int count = wordSlots.size();
+        int w = 0;
+        while (w < count) {
+            key.setLength(0);
+            key.append(slotWords.get(wordSlots.get(w)));
+            int best = -1;
+            int bestWords = 0;
+            for (int n = 2; n <= MAX_PHRASE_WORDS && w + n <= count; n++) {
+                key.append(' ').append(slotWords.get(wordSlots.get(w + n - 1)));
+                int start = compiled.prefixStart(key);
+                if (start == compiled.prefixEnd(key, start)) {
+                    break;
+                }
+                if (compiled.compareHeadword(start, key) == 0) {
+                    best = start;
+                    bestWords = n;
+                }
+            }
+            if (best < 0) {
+                w++;
+                continue;
+            }
+            phrases.add(new WordGloss(starts.get(w), ends.get(w + bestWords - 1), w, bestWords,
+                    WordGloss.EXACT, best, compiled.headword(best), glossOf(best)));
+            w += bestWords;
+        }
+        return phrases;
+    }
+
+    /**
+     * Returns the leading words of the first glosses of a headword, up to a colon or period.
+     * A headword whose entries carry no gloss, such as a plural pointing to its singular, is read
+     * through the headwords it refers to.
+     */
+    private String glossOf(int headword) {
+        if (headword < 0) {
+            return "";
+        }
+        String gloss = glosses.get(headword);
+        if (gloss == null) {
+            gloss = leadGlosses(headword);
+            for (int p = 0; gloss.isEmpty() && p < compiled.postingCount(headword); p++) {
+                int entry = compiled.posting(headword, p);
+                for (int r = 0; gloss.isEmpty() && r < crossReferences.count(entry); r++) {
+                    int target = crossReferences.target(entry, r);
+                    if (target != headword) {
+                        gloss = leadGlosses(target);
+                    }
+                }
+            }
+            glosses.put(headword, gloss);
+        }
+        return gloss;
+    }
+
+    private String leadGlosses(int headword) {
+        StringBuilder gloss = new StringBuilder();
+        int found = 0;
+        for (int p = 0; p < compiled.postingCount(headword) && found < MAX_GLOSSES; p++) {
+            int entry = compiled.posting(headword, p);
+            for (int i = 0; i < fields.count(entry); i++) {
+                if (fields.kind(entry, i) != EntryFields.GLOSS) {
+                    continue;
+                }
+                String definition = compiled.definition(entry);
+                int start = fields.fieldStart(entry, i);
+                String lead = definition.substring(start,
+                        EnglishIndex.leadGlossEnd(definition, start, fields.fieldEnd(entry, i))).trim();
+                if (!lead.isEmpty() && gloss.indexOf(lead) < 0) {
+                    if (gloss.length() > 0) {
+                        gloss.append("; ");
+                    }
+                    gloss.append(lead);
+                    found++;
+                }
+                break;
+            }
+        }
+        return gloss.toString();
+    }
+}
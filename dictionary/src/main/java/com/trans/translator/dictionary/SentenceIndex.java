@@ -0,0 +1,319 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Word n-gram index of the example sentence pairs of the dictionary, i.e. of every
+ * Runyankore/Rukiga {@link EntryFields#EXAMPLE} directly followed by its English
+ * {@link EntryFields#TRANSLATION}. A pair quoted under several entries is indexed once.
+ *
+ * The layout of a few articles leaves an English gloss where the example should be, or two
+ * examples or two translations in a row, which the split takes for a pair. Each side is therefore
+ * checked to read as its language, by {@link #language}: a pair read the wrong way round is
+ * turned round, and a pair whose sides are in the same language is dropped.
+ *
+ * The text layout splits many articles into several entries, often in the middle of an example,
+ * so pairs are read from whole articles: an entry opening with a part of speech together with
+ * the entries without one that follow it. The sentences are copied into one string, as they do
+ * not all lie within a single definition.
+ *
+ * Both sentences of a pair are split into words as by {@link EnglishIndex#tokenize}, and every run
+ * of one to {@link #MAX_GRAM_WORDS} words is posted to the pair. A lookup only visits the postings
+ * of the query's own n-grams. Each one shared with a sentence adds its length in words times its
+ * inverse document frequency, so a shared phrase counts for more than the same words scattered.
+ * The sum is divided by what the query's n-grams would add up to, and by the square root of how
+ * much longer than the query the sentence is, so that sentences that are mostly the query come
+ * first and the query itself would score 1. Single words found in more than one sentence in
+ * {@link #COMMON_WORD_SHARE} are only counted as part of a longer n-gram.
+ */
+public final class SentenceIndex {
+
+    public static final int RUKIGA = 0;
+    public static final int ENGLISH = 1;
+
+    /** Longest word n-gram indexed. */
+    static final int MAX_GRAM_WORDS = 2;
+
+    private static final int COMMON_WORD_SHARE = 10;
+
+    /** Returned by {@link #language} for a sentence that reads as neither language. */
+    static final int UNKNOWN = -1;
+
+    /**
+     * Frequent English words that are neither Runyankore/Rukiga words nor the elided forms
+     * {@link EnglishIndex#tokenize} splits off, such as {@code by}, {@code n} or {@code ky}.
+     */
+    private static final Set<String> ENGLISH_MARKERS = new HashSet<>(Arrays.asList(
+            "a", "an", "the", "is", "are", "was", "were", "am", "i", "you", "he", "she", "it",
+            "they", "his", "her", "their", "my", "your", "him", "them", "of", "and", "to", "in", "on",
+            "with", "for", "from", "at", "this", "that", "there", "have", "has", "had", "do", "does",
+            "did", "not", "no", "yes", "will", "what", "who", "how", "when"));
+
+    // Per pair: entry opening its article, and [start, end) of its Rukiga then English sentence
+    // in sentences.
+    private final int[] entries;
+    private final int[] bounds;
+    private final String sentences;
+    // Per side: n-gram postings and sentence lengths in words.
+    private final TermTable[] grams;
+    private final short[][] lengths;
+
+    private SentenceIndex(int[] entries, int[] bounds, String sentences, TermTable[] grams, short[][] lengths) {
+        this.entries = entries;
+        this.bounds = bounds;
+        this.sentences = sentences;
+        this.grams = grams;
+        this.lengths = lengths;
+    }
+
+    /**
+     * Indexes the example pairs of the compiled dictionary, whose articles start at the entries
+     * {@code fields} finds a part of speech in.
+     */
+    @NonNull
+    public static SentenceIndex build(@NonNull CompiledDictionary compiled, @NonNull EntryFields fields) {
+        IntList entries = new IntList();
+        IntList bounds = new IntList();
+        StringBuilder sentences = new StringBuilder();
+        List<Map<String, IntList>> building = new ArrayList<>();
+        List<IntList> lengths = new ArrayList<>();
+        for (int side = RUKIGA; side <= ENGLISH; side++) {
+            building.add(new HashMap<>());
+            lengths.add(new IntList());
+        }
+        Set<String> seen = new HashSet<>();
+        int entryCount = compiled.entryCount();
+        for (int id = 0; id < entryCount; ) {
+            int next = id + 1;
+            while (next < entryCount && fields.partOfSpeech(next) == null) {
+                next++;
+            }
+            String article = articleText(compiled, id, next);
+            EntryFields.Chunk split = EntryFields.split(article);
+            for (int i = 0; i + 1 < split.kinds.size(); i++) {
+                if (split.kinds.get(i) != EntryFields.EXAMPLE || split.kinds.get(i + 1) != EntryFields.TRANSLATION) {
+                    continue;
+                }
+                String rukiga = article.substring(split.bounds.get(2 * i), split.bounds.get(2 * i + 1));
+                String english = article.substring(split.bounds.get(2 * i + 2), split.bounds.get(2 * i + 3));
+                List<String> rukigaWords = EnglishIndex.tokenize(rukiga);
+                List<String> englishWords = EnglishIndex.tokenize(english);
+                int first = language(rukigaWords);
+                int second = language(englishWords);
+                if (first != UNKNOWN && first == second) {
+                    continue;
+                }
+                if (first == ENGLISH || second == RUKIGA) {
+                    String swapped = rukiga;
+                    rukiga = english;
+                    english = swapped;
+                    List<String> swappedWords = rukigaWords;
+                    rukigaWords = englishWords;
+                    englishWords = swappedWords;
+                }
+                if (!seen.add(rukiga + '\0' + english)) {
+                    continue;
+                }
+                int pair = entries.size();
+                entries.add(id);
+                for (String sentence : new String[]{rukiga, english}) {
+                    bounds.add(sentences.length());
+                    sentences.append(sentence);
+                    bounds.add(sentences.length());
+                }
+                addGrams(building.get(RUKIGA), lengths.get(RUKIGA), rukigaWords, pair);
+                addGrams(building.get(ENGLISH), lengths.get(ENGLISH), englishWords, pair);
+            }
+            id = next;
+        }
+
+        TermTable[] grams = new TermTable[2];
+        short[][] lengthArrays = new short[2][entries.size()];
+        for (int side = RUKIGA; side <= ENGLISH; side++) {
+            grams[side] = TermTable.of(building.get(side));
+            for (int pair = 0; pair < entries.size(); pair++) {
+                lengthArrays[side][pair] = (short) Math.min(Short.MAX_VALUE, lengths.get(side).get(pair));
+            }
+        }
+        return new SentenceIndex(entries.toArray(), bounds.toArray(), sentences.toString(), grams, lengthArrays);
+    }
+
+    /**
+     * Returns up to {@code limit} pairs whose sentence on {@code side}, {@link #RUKIGA} or
+     * {@link #ENGLISH}, shares word n-grams with {@code text}, closest first. The score of a
+     * pair is its share of what the query would score against itself, 1 for the same sentence.
+     */
+    @NonNull
+    public List<SentencePair> search(@NonNull String text, int side, int limit) {
+        List<SentencePair> results = new ArrayList<>();
+        List<String> words = EnglishIndex.tokenize(text);
+        if (words.isEmpty() || limit <= 0) {
+            return results;
+        }
+        TermTable table = grams[side];
+        int pairCount = entries.length;
+        float[] scores = new float[pairCount];
+        IntList touched = new IntList();
+        IntList counted = new IntList();
+        StringBuilder gram = new StringBuilder();
+        // What a sentence holding every counted n-gram of the query would score before the
+        // length division.
+        float possible = 0;
+        for (int n = 1; n <= MAX_GRAM_WORDS; n++) {
+            for (int start = 0; start + n <= words.size(); start++) {
+                gram.setLength(0);
+                for (int i = start; i < start + n; i++) {
+                    if (i > start) {
+                        gram.append(' ');
+                    }
+                    gram.append(words.get(i));
+                }
+                int index = table.find(gram);
+                if (index < 0 || contains(counted, index)) {
+                    continue;
+                }
+                counted.add(index);
+                int documentFrequency = table.postingEnd(index) - table.postingStart(index);
+                if (n == 1 && (long) documentFrequency * COMMON_WORD_SHARE > pairCount) {
+                    continue;
+                }
+                float weight = (float) (n * Math.log(1 + (double) pairCount / documentFrequency));
+                possible += weight;
+                for (int p = table.postingStart(index); p < table.postingEnd(index); p++) {
+                    int pair = table.posting(p);
+                    if (scores[pair] == 0) {
+                        touched.add(pair);
+                    }
+                    scores[pair] += weight;
+                }
+            }
+        }
+
+        TopK best = new TopK(limit, pair -> pair);
+        for (int i = 0; i < touched.size(); i++) {
+            int pair = touched.get(i);
+            scores[pair] = (float) (scores[pair] / possible
+                    * Math.sqrt((double) words.size() / Math.max(lengths[side][pair], words.size())));
+            best.offer(pair, scores[pair]);
+        }
+        for (int pair : best.toSortedArray()) {
+            results.add(pair(pair, scores[pair]));
+        }
+        return results;
+    }
+
+    /**
+     * Tells whether {@code word}, as {@link EnglishIndex#tokenize} spells it, is one of the frequent
+     * English function words that mark a sentence as English.
+     */
+    static boolean isEnglishMarker(@NonNull String word) {
+        return ENGLISH_MARKERS.contains(word);
+    }
+
+    /**
+     * Returns the {@code index}-th pair indexed, with the given score.
+     */
+    @NonNull
+    SentencePair pair(int index, float score) {
+        return new SentencePair(entries[index],
+                sentences.substring(bounds[4 * index], bounds[4 * index + 1]),
+                sentences.substring(bounds[4 * index + 2], bounds[4 * index + 3]), score);
+    }
+
+    /**
+     * Number of distinct example pairs indexed.
+     */
+    public int pairCount() {
+        return entries.length;
+    }
+
+    /**
+     * Bytes held by the index arrays and sentences.
+     */
+    public long sizeInBytes() {
+        long bytes = (entries.length + bounds.length) * 4L + sentences.length() * 2L;
+        for (int side = RUKIGA; side <= ENGLISH; side++) {
+            bytes += grams[side].sizeInBytes() + lengths[side].length * 2L;
+        }
+        return bytes;
+    }
+
+    /**
+     * Tells which language a sentence split into words reads as. A fifth or more of
+     * {@link #ENGLISH_MARKERS} make it {@link #ENGLISH}. Without any, it is {@link #RUKIGA} when
+     * every word of three letters or more ends in a vowel, as Runyankore/Rukiga words do; shorter
+     * words are mostly elided forms such as {@code bw} or {@code ky}. Short English glosses such
+     * as {@code Bread crumbs} have no marker and are left {@link #UNKNOWN}.
+     */
+    static int language(@NonNull List<String> words) {
+        int markers = 0;
+        int longWords = 0;
+        boolean vowelEnded = true;
+        for (String word : words) {
+            if (ENGLISH_MARKERS.contains(word)) {
+                markers++;
+            }
+            if (word.length() >= 3) {
+                char last = word.charAt(word.length() - 1);
+                vowelEnded &= last == 'a' || last == 'e' || last == 'i' || last == 'o' || last == 'u';
+                longWords++;
+            }
+        }
+        if (markers > 0) {
+            return markers * 5 >= words.size() ? ENGLISH : UNKNOWN;
+        }
+        return longWords > 0 && vowelEnded ? RUKIGA : UNKNOWN;
+    }
+
+    /**
+     * Rebuilds the text of the article made of the entries in {@code [from, to)}. An entry split
+     * off an article starts with the first word of its line, which the text parser took for its
+     * headword.
+     */
+    private static String articleText(CompiledDictionary compiled, int from, int to) {
+        if (to == from + 1) {
+            return compiled.definition(from);
+        }
+        StringBuilder text = new StringBuilder(compiled.definition(from));
+        for (int id = from + 1; id < to; id++) {
+            text.append(' ').append(compiled.displayHeadword(id)).append(' ').append(compiled.definition(id));
+        }
+        return text.toString();
+    }
+
+    private static void addGrams(Map<String, IntList> building, IntList lengths, List<String> words, int pair) {
+        lengths.add(words.size());
+        for (int n = 1; n <= MAX_GRAM_WORDS; n++) {
+            for (int start = 0; start + n <= words.size(); start++) {
+                String gram = String.join(" ", words.subList(start, start + n));
+                IntList pairs = building.get(gram);
+                if (pairs == null) {
+                    pairs = new IntList(1);
+                    building.put(gram, pairs);
+                }
+                // Pairs are added in order, so a repeated n-gram only needs comparing against
+                // the last posting.
+                if (pairs.size() == 0 || pairs.last() != pair) {
+                    pairs.add(pair);
+                }
+            }
+        }
+    }
+
+    private static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
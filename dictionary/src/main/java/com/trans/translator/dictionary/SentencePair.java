@@ -0,0 +1,30 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A Runyankore/Rukiga example sentence of the dictionary together with its English translation,
+ * as returned by a sentence lookup.
+ */
+public final class SentencePair {
+
+    /** Entry whose definition holds the example. */
+    public final int entryId;
+    public final String rukiga;
+    public final String english;
+    /** Weighted share of the query's word n-grams found in the sentence; higher is closer. */
+    public final float score;
+
+    public SentencePair(int entryId, @NonNull String rukiga, @NonNull String english, float score) {
+        this.entryId = entryId;
+        this.rukiga = rukiga;
+        this.english = english;
+        this.score = score;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return rukiga + " — " + english;
+    }
+}
@@ -0,0 +1,92 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps Runyankore/Rukiga stems to the headwords built on them, so a word typed with a different
+ * noun-class or verbal prefix than the one listed in the dictionary (for example
+ * {@code ebitojo} for {@code ekitojo}, or {@code kuhimba} for {@code okuhimba}) resolves with a
+ * single hash probe. Stems are keyed by their {@link FuzzyMatcher#fold folded} spelling so the
+ * usual spelling variations do not defeat the probe.
+ */
+public final class StemIndex {
+
+    /**
+     * Noun-class, infinitive and locative prefixes, longest first so that the most specific one
+     * is stripped. Forms with and without the initial vowel are both listed because users often
+     * drop it.
+     */
+    private static final String[] PREFIXES = {
+            "okwe", "okwi",
+            "omu", "omw", "aba", "emi", "emy", "eri", "ery", "ama", "eki", "eky", "ebi", "eby",
+            "oru", "orw", "aka", "akw", "otu", "otw", "obu", "obw", "oku", "okw", "aha", "ogu", "aga",
+            "mu", "mw", "ba", "mi", "ri", "ma", "ki", "ky", "bi", "by", "ru", "rw", "ka", "tu", "bu",
+            "ku", "kw", "gu", "ga",
+            "ab", "am", "ei", "en", "em", "ak",
+            "n", "m",
+    };
+
+    /** Stems shorter than this are too ambiguous to be useful. */
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private final TermTable headwordsByStem;
+
+    private StemIndex(TermTable headwordsByStem) {
+        this.headwordsByStem = headwordsByStem;
+    }
+
+    /**
+     * Indexes every unnumbered headword of the compiled dictionary under its stem.
+     */
+    @NonNull
+    public static StemIndex build(@NonNull CompiledDictionary compiled) {
+        Map<String, IntList> building = new HashMap<>();
+        for (int i = 0; i < compiled.headwordCount(); i++) {
+            String headword = compiled.headword(i);
+            if (!DictionaryParser.baseHeadword(headword).equals(headword)) {
+                continue;
+            }
+            String stem = FuzzyMatcher.fold(stem(headword));
+            IntList ids = building.get(stem);
+            if (ids == null) {
+                ids = new IntList(1);
+                building.put(stem, ids);
+            }
+            ids.add(i);
+        }
+        return new StemIndex(TermTable.of(building));
+    }
+
+    /**
+     * Returns the sorted headword table indexes of the headwords sharing the stem of the
+     * normalized query, in lexical order.
+     */
+    @NonNull
+    public int[] lookup(@NonNull String normalized) {
+        return headwordsByStem.postings(FuzzyMatcher.fold(stem(normalized)));
+    }
+
+    /**
+     * Bytes held by the index arrays.
+     */
+    public long sizeInBytes() {
+        return headwordsByStem.sizeInBytes();
+    }
+
+    /**
+     * Strips the longest known prefix that leaves a stem of at least {@link #MIN_STEM_LENGTH}
+     * characters; words without such a prefix are their own stem.
+     */
+    @NonNull
+    static String stem(@NonNull String normalized) {
+        for (String prefix : PREFIXES) {
+            if (normalized.length() - prefix.length() >= MIN_STEM_LENGTH && normalized.startsWith(prefix)) {
+                return normalized.substring(prefix.length());
+            }
+        }
+        return normalized;
+    }
+}
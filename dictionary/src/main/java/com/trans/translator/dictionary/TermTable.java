@@ -0,0 +1,180 @@
+package com.trans.translator.dictionary;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable sorted map from terms to posting lists, packed into three primitive arrays: the term
+ * characters back to back in one {@code char[]} arena, and every posting list concatenated in one
+ * {@code int[]}. Lookups binary search the arena, so no per-term {@code String}, {@code int[]} or
+ * hash node is retained. Each posting may carry an {@code int} payload, stored in a parallel array.
+ */
+final class TermTable {
+
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final char[] chars;
+    private final int[] termStart;
+    private final int[] postingStart;
+    private final int[] postings;
+    private final int[] payloads;
+
+    private TermTable(char[] chars, int[] termStart, int[] postingStart, int[] postings, int[] payloads) {
+        this.chars = chars;
+        this.termStart = termStart;
+        this.postingStart = postingStart;
+        this.postings = postings;
+        this.payloads = payloads;
+    }
+
+    static TermTable of(Map<String, IntList> building) {
+        return of(building, null);
+    }
+
+    /**
+     * @param payloads per-term lists parallel to the posting lists, or {@code null} for none.
+     */
+    static TermTable of(Map<String, IntList> building, Map<String, IntList> payloads) {
+        String[] terms = building.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+
+        int charCount = 0;
+        int postingCount = 0;
+        for (String term : terms) {
+            charCount += term.length();
+            postingCount += building.get(term).size();
+        }
+
+        char[] chars = new char[charCount];
+        int[] termStart = new int[terms.length + 1];
+        int[] postingStart = new int[terms.length + 1];
+        int[] postings = new int[postingCount];
+        int[] payloadArray = payloads != null ? new int[postingCount] : NO_POSTINGS;
+        for (int i = 0; i < terms.length; i++) {
+            String term = terms[i];
+            term.getChars(0, term.length(), chars, termStart[i]);
+            termStart[i + 1] = termStart[i] + term.length();
+
+            IntList ids = building.get(term);
+            for (int j = 0; j < ids.size(); j++) {
+                postings[postingStart[i] + j] = ids.get(j);
+            }
+            if (payloads != null) {
+                IntList values = payloads.get(term);
+                for (int j = 0; j < values.size(); j++) {
+                    payloadArray[postingStart[i] + j] = values.get(j);
+                }
+            }
+            postingStart[i + 1] = postingStart[i] + ids.size();
+        }
+        return new TermTable(chars, termStart, postingStart, postings, payloadArray);
+    }
+
+    int size() {
+        return termStart.length - 1;
+    }
+
+    /**
+     * Returns the postings of {@code term}, or an empty array when it is absent.
+     */
+    int[] postings(CharSequence term) {
+        int index = find(term);
+        if (index < 0) {
+            return NO_POSTINGS;
+        }
+        return Arrays.copyOfRange(postings, postingStart[index], postingStart[index + 1]);
+    }
+
+    int postingCount(CharSequence term) {
+        int index = find(term);
+        return index < 0 ? 0 : postingStart[index + 1] - postingStart[index];
+    }
+
+    /**
+     * Returns the index of {@code term}, or -1 when it is absent. The postings of the term are
+     * {@link #posting}{@code (i)} for {@code i} in {@code [postingStart(index), postingEnd(index))}.
+     */
+    int find(CharSequence term) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first term index in {@code [low, high)} not sorting before the terms starting
+     * with {@code prefix} or, when {@code upper} is set, the first one after them.
+     */
+    int prefixBoundary(CharSequence prefix, int low, int high, boolean upper) {
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = comparePrefix(mid, prefix);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    int postingStart(int index) {
+        return postingStart[index];
+    }
+
+    int postingEnd(int index) {
+        return postingStart[index + 1];
+    }
+
+    int posting(int i) {
+        return postings[i];
+    }
+
+    int payload(int i) {
+        return payloads[i];
+    }
+
+    /**
+     * Bytes held by the table's arrays, excluding object headers.
+     */
+    long sizeInBytes() {
+        return chars.length * 2L
+                + (termStart.length + postingStart.length + postings.length + payloads.length) * 4L;
+    }
+
+    private int comparePrefix(int index, CharSequence prefix) {
+        int start = termStart[index];
+        int length = termStart[index + 1] - start;
+        int shared = Math.min(length, prefix.length());
+        for (int i = 0; i < shared; i++) {
+            int diff = chars[start + i] - prefix.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length < prefix.length() ? -1 : 0;
+    }
+
+    private int compare(int index, CharSequence term) {
+        int start = termStart[index];
+        int length = termStart[index + 1] - start;
+        int shared = Math.min(length, term.length());
+        for (int i = 0; i < shared; i++) {
+            int diff = chars[start + i] - term.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - term.length();
+    }
+}
@@ -0,0 +1,121 @@
+package com.trans.translator.dictionary;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the {@code k} best scored entries seen so far in a binary min-heap, so selecting them
+ * from {@code n} candidates costs {@code O(n log k)} instead of sorting every candidate.
+ *
+ * Entries sharing a group, such as the fragments of one headword, count once: a group keeps its
+ * best scoring entry. Equal scores prefer the lower entry id, i.e. dictionary order.
+ */
+final class TopK {
+
+    /**
+     * Maps an entry to the group it is deduplicated in.
+     */
+    interface Grouping {
+        Object groupOf(int id);
+    }
+
+    private final int[] ids;
+    private final float[] scores;
+    private final Object[] groups;
+    private final Grouping grouping;
+    private int size;
+
+    TopK(int k, Grouping grouping) {
+        this.ids = new int[k];
+        this.scores = new float[k];
+        this.groups = new Object[k];
+        this.grouping = grouping;
+    }
+
+    void offer(int id, float score) {
+        if (size == ids.length && !better(id, score, 0)) {
+            return;
+        }
+        Object group = grouping.groupOf(id);
+        for (int i = 0; i < size; i++) {
+            if (groups[i].equals(group)) {
+                if (better(id, score, i)) {
+                    ids[i] = id;
+                    scores[i] = score;
+                    siftDown(i);
+                }
+                return;
+            }
+        }
+        if (size < ids.length) {
+            set(size, id, score, group);
+            siftUp(size++);
+        } else {
+            set(0, id, score, group);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Returns the retained entry ids, best first.
+     */
+    int[] toSortedArray() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> better(ids[a], scores[a], b) ? -1 : better(ids[b], scores[b], a) ? 1 : 0);
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = ids[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Whether {@code (id, score)} ranks above the entry in heap slot {@code slot}.
+     */
+    private boolean better(int id, float score, int slot) {
+        return score > scores[slot] || score == scores[slot] && id < ids[slot];
+    }
+
+    private void siftUp(int slot) {
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (!better(ids[parent], scores[parent], slot)) {
+                return;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int worst = slot;
+            for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < size; child++) {
+                if (better(ids[worst], scores[worst], child)) {
+                    worst = child;
+                }
+            }
+            if (worst == slot) {
+                return;
+            }
+            swap(slot, worst);
+            slot = worst;
+        }
+    }
+
+    private void set(int slot, int id, float score, Object group) {
+        ids[slot] = id;
+        scores[slot] = score;
+        groups[slot] = group;
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        float score = scores[a];
+        Object group = groups[a];
+        set(a, ids[b], scores[b], groups[b]);
+        set(b, id, score, group);
+    }
+}
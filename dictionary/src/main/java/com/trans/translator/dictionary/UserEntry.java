@@ -0,0 +1,31 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+
+/**
+ * An entry added or corrected by the user, as recorded in the {@link OverlayLog}.
+ */
+public final class UserEntry {
+
+    /** Lists the definition under the headword, after those already there. */
+    public static final int ADD = 0;
+    /** Replaces every definition of the headword, from the dictionary or the user, with this one. */
+    public static final int CORRECT = 1;
+
+    /** {@link #ADD} or {@link #CORRECT}. */
+    public final int operation;
+    public final String displayHeadword;
+    public final String definition;
+    /** When the user made the change, in milliseconds since the epoch. */
+    public final long timestamp;
+
+    public UserEntry(int operation, @NonNull String displayHeadword, @NonNull String definition, long timestamp) {
+        if (operation != ADD && operation != CORRECT) {
+            throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+        this.operation = operation;
+        this.displayHeadword = displayHeadword;
+        this.definition = definition;
+        this.timestamp = timestamp;
+    }
+}
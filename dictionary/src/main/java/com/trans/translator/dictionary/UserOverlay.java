@@ -0,0 +1,191 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The user's own entries laid over the compiled dictionary, keyed by normalized headword.
+ *
+ * An overlay is immutable: {@link #with} returns a new overlay sharing the headwords it leaves
+ * alone, so adding an entry costs a copy of the small headword map and never touches the
+ * compiled dictionary or its indexes. User entries are few, so the English lookup scans them.
+ */
+public final class UserOverlay {
+
+    public static final UserOverlay EMPTY = new UserOverlay(Collections.emptyMap(), 0);
+
+    private final Map<String, Headword> headwords;
+    private final int entryCount;
+
+    private UserOverlay(Map<String, Headword> headwords, int entryCount) {
+        this.headwords = headwords;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Replays entries in the order they were made.
+     */
+    @NonNull
+    public static UserOverlay of(@NonNull List<UserEntry> entries) {
+        UserOverlay overlay = EMPTY;
+        for (UserEntry entry : entries) {
+            overlay = overlay.with(entry);
+        }
+        return overlay;
+    }
+
+    /**
+     * Returns this overlay with one more entry applied.
+     */
+    @NonNull
+    public UserOverlay with(@NonNull UserEntry entry) {
+        String key = DictionaryParser.normalizeHeadword(entry.displayHeadword);
+        if (key.isEmpty()) {
+            return this;
+        }
+        String definition = entry.definition.trim();
+        Headword previous = headwords.get(key);
+        List<String> definitions = new ArrayList<>();
+        if (entry.operation == UserEntry.ADD && previous != null) {
+            definitions.addAll(previous.definitions);
+        }
+        if (!definitions.contains(definition)) {
+            definitions.add(definition);
+        }
+        boolean replacesBase = entry.operation == UserEntry.CORRECT || (previous != null && previous.replacesBase);
+
+        Map<String, Headword> updated = new LinkedHashMap<>(headwords);
+        updated.put(key, new Headword(entry.displayHeadword.trim(), definitions, replacesBase));
+        return new UserOverlay(Collections.unmodifiableMap(updated), entryCount + 1);
+    }
+
+    /**
+     * Definitions the user gave a normalized headword, oldest first; empty when there are none.
+     */
+    @NonNull
+    public List<String> definitions(@NonNull String normalized) {
+        Headword headword = headwords.get(normalized);
+        return headword != null ? headword.definitions : Collections.emptyList();
+    }
+
+    /**
+     * Whether the user corrected a normalized headword, so that its compiled definitions no
+     * longer apply.
+     */
+    public boolean replacesBase(@NonNull String normalized) {
+        Headword headword = headwords.get(normalized);
+        return headword != null && headword.replacesBase;
+    }
+
+    /**
+     * The headword as the user spelled it, or {@code null} when the user gave it no definition.
+     */
+    @Nullable
+    String displayHeadword(@NonNull String normalized) {
+        Headword headword = headwords.get(normalized);
+        return headword != null ? headword.displayHeadword : null;
+    }
+
+    /**
+     * Returns the normalized headwords the user gave definitions starting with {@code prefix}, in
+     * lexical order.
+     */
+    @NonNull
+    List<String> headwordsStartingWith(@NonNull String prefix) {
+        List<String> found = new ArrayList<>();
+        for (String normalized : headwords.keySet()) {
+            if (normalized.startsWith(prefix)) {
+                found.add(normalized);
+            }
+        }
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * The negative entry id of the first definition of a normalized headword, as numbered by
+     * {@link #search}, or {@code 0} when the user gave it none.
+     */
+    int entryId(@NonNull String normalized) {
+        int index = 0;
+        for (Map.Entry<String, Headword> headword : headwords.entrySet()) {
+            if (headword.getKey().equals(normalized)) {
+                return -(index + 1);
+            }
+            index += headword.getValue().definitions.size();
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the user's definitions mentioning every term and, unless {@code prefix} is empty, a
+     * word starting with it, in the order of their headwords' first entry, with the words located.
+     * Their entry ids are negative, so that they are not taken for compiled entries.
+     */
+    @NonNull
+    List<DictionaryMatch> search(@NonNull List<String> terms, @NonNull String prefix) {
+        List<DictionaryMatch> matches = new ArrayList<>();
+        if (terms.isEmpty() && prefix.isEmpty()) {
+            return matches;
+        }
+        int index = 0;
+        for (Headword headword : headwords.values()) {
+            for (int i = 0; i < headword.definitions.size(); i++, index++) {
+                Set<String> words = headword.words.get(i);
+                if (words.containsAll(terms) && (prefix.isEmpty() || containsWordStartingWith(words, prefix))) {
+                    String definition = headword.definitions.get(i);
+                    matches.add(new DictionaryMatch(-(index + 1), headword.displayHeadword, definition,
+                            EnglishIndex.matchOffsets(definition, terms, prefix)));
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static boolean containsWordStartingWith(Set<String> words, String prefix) {
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return headwords.isEmpty();
+    }
+
+    /**
+     * Number of user entries applied, including those later replaced by a correction.
+     */
+    public int entryCount() {
+        return entryCount;
+    }
+
+    private static final class Headword {
+        final String displayHeadword;
+        final List<String> definitions;
+        // Per definition, its words as split by EnglishIndex.tokenize.
+        final List<Set<String>> words;
+        final boolean replacesBase;
+
+        Headword(String displayHeadword, List<String> definitions, boolean replacesBase) {
+            this.displayHeadword = displayHeadword;
+            this.definitions = Collections.unmodifiableList(definitions);
+            this.replacesBase = replacesBase;
+            List<Set<String>> words = new ArrayList<>(definitions.size());
+            for (String definition : definitions) {
+                words.add(new HashSet<>(EnglishIndex.tokenize(definition)));
+            }
+            this.words = words;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.trans.translator.dictionary;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * The dictionary reading of one word, or of a run of words forming a multi-word headword, of a
+ * glossed Runyankore/Rukiga text.
+ */
+public final class WordGloss {
+
+    /** The word is a headword. */
+    public static final int EXACT = 0;
+    /** The word shares its stem with a headword listed under another prefix. */
+    public static final int STEM = 1;
+    /** The word is within a few edits of a headword. */
+    public static final int FUZZY = 2;
+    /** Nothing in the dictionary matches the word. */
+    public static final int NONE = 3;
+
+    /** Offsets of the words in the glossed text. */
+    public final int start;
+    public final int end;
+    /** Position of the first word covered among the words of the text, and how many are covered. */
+    public final int firstWord;
+    public final int wordCount;
+    /** One of {@link #EXACT}, {@link #STEM}, {@link #FUZZY} or {@link #NONE}. */
+    public final int match;
+    /**
+     * Headword table index of the matched headword, or {@code -1} for {@link #NONE} and for a
+     * word only the user's own entries define.
+     */
+    public final int headwordIndex;
+    @Nullable
+    public final String headword;
+    /** Leading words of the English glosses of the headword; empty when it has none. */
+    public final String gloss;
+
+    public WordGloss(int start, int end, int firstWord, int wordCount, int match, int headwordIndex,
+                     @Nullable String headword, @NonNull String gloss) {
+        this.start = start;
+        this.end = end;
+        this.firstWord = firstWord;
+        this.wordCount = wordCount;
+        this.match = match;
+        this.headwordIndex = headwordIndex;
+        this.headword = headword;
+        this.gloss = gloss;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return headword + " — " + gloss;
+    }
+}
@@ -0,0 +1,75 @@
+package com.trans.translator.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the lookups of the memory-mapped compiled dictionary against the regular-expression
+ * parser the app used on the text dictionary before it was compiled.
+ */
+public class CompiledDictionaryTest {
+
+    private static ReferenceParser reference;
+    private static CompiledDictionary compiled;
+
+    @BeforeClass
+    public static void load() throws IOException {
+        reference = ReferenceParser.parse(TestDictionary.textString());
+        compiled = TestDictionary.compiled();
+    }
+
+    @Test
+    public void entriesMatchTextParser() {
+        assertEquals(reference.entries.size(), compiled.entryCount());
+        for (int id = 0; id < compiled.entryCount(); id++) {
+            DictionaryEntry expected = reference.entries.get(id);
+            assertEquals("headword of entry " + id, expected.displayHeadword, compiled.displayHeadword(id));
+            assertEquals("definition of entry " + id, expected.definition, compiled.definition(id));
+        }
+    }
+
+    @Test
+    public void headwordLookupsMatchTextParser() {
+        assertEquals(reference.definitions.size(), compiled.headwordCount());
+        for (Map.Entry<String, List<String>> headword : reference.definitions.entrySet()) {
+            int index = compiled.findHeadword(headword.getKey());
+            assertTrue("missing headword " + headword.getKey(), index >= 0);
+            List<String> definitions = new ArrayList<>();
+            for (int i = 0; i < compiled.postingCount(index); i++) {
+                definitions.add(compiled.definition(compiled.posting(index, i)));
+            }
+            assertEquals("definitions of " + headword.getKey(), headword.getValue(), definitions);
+        }
+    }
+
+    @Test
+    public void lookupOfMissingHeadwordGivesInsertionPoint() {
+        for (String headword : reference.definitions.keySet()) {
+            String missing = headword + "\u007f";
+            if (reference.definitions.containsKey(missing)) {
+                continue;
+            }
+            int index = compiled.findHeadword(missing);
+            assertTrue("found " + missing, index < 0);
+            int insertion = -(index + 1);
+            assertTrue(insertion > 0 && compiled.headword(insertion - 1).compareTo(missing) < 0);
+            assertTrue(insertion == compiled.headwordCount() || compiled.headword(insertion).compareTo(missing) > 0);
+        }
+    }
+
+    @Test
+    public void userInputIsNormalizedLikeTextParser() {
+        String[] inputs = {"  Omuntu ", "OMWANA", "aba2", "ʼmbwa", "e-ki-ntu!", "Kuruga  omu"};
+        for (String input : inputs) {
+            assertEquals(input, ReferenceParser.normalizeHeadword(input), DictionaryParser.normalizeHeadword(input));
+        }
+    }
+}
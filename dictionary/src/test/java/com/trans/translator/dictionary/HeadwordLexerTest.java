@@ -0,0 +1,100 @@
+package com.trans.translator.dictionary;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Differential check of {@link HeadwordLexer} against the regular expressions of the
+ * {@link ReferenceParser} it replaced, on inputs at the edges of the rules, on every character
+ * and on every line and word of the dictionary text.
+ */
+public class HeadwordLexerTest {
+
+    /** Inputs at the edges of the rules, besides the dictionary lines. */
+    private static final String[] SAMPLES = {
+            "", " ", "\t\n", "|", " | ", "a", "A", "aba2", "aba2 x", "aba 2", "aba12b 3",
+            "  Omu-ntu  ", "ʼaba", "abaʼ x", "o'mwana  n. child", "a\u0001 b", "\u0001a b\u0001",
+            "a | b||c", "a \u000b\u000c b", "İstanbul", "Kelvin", "naïve café", "x y",
+            "abc1\n", "-aba- 1", "aba’ n.", "ßtraße", "𐐀x",
+    };
+
+    private final HeadwordLexer lexer = new HeadwordLexer();
+    private final List<String> mismatches = new ArrayList<>();
+
+    @Test
+    public void edgeCasesMatchReference() {
+        for (String sample : SAMPLES) {
+            compare(sample);
+        }
+        assertNoMismatches();
+    }
+
+    @Test
+    public void everyCharacterMatchesReference() {
+        for (char c = 0; c < Character.MAX_VALUE; c++) {
+            compare("ab" + c + " c" + c);
+        }
+        assertNoMismatches();
+    }
+
+    @Test
+    public void dictionaryLinesAndWordsMatchReference() {
+        for (String line : TestDictionary.textString().split("\n")) {
+            compare(line);
+            compare(line.trim());
+            for (String word : line.split(" ")) {
+                compare(word);
+            }
+        }
+        assertNoMismatches();
+    }
+
+    private void compare(String input) {
+        String normalized = ReferenceParser.normalizeHeadword(input);
+        check("normalize", input, normalized, lexer.normalize(input));
+        check("baseHeadword", normalized, ReferenceParser.baseHeadword(normalized),
+                HeadwordLexer.baseHeadword(normalized));
+        check("cleanDefinition", input, ReferenceParser.cleanDefinition(input), lexer.cleanDefinition(input));
+
+        String trimmed = input.trim();
+        boolean headword = ReferenceParser.looksLikeHeadword(trimmed);
+        if (headword != HeadwordLexer.looksLikeHeadword(trimmed)) {
+            mismatches.add("looksLikeHeadword(" + escape(trimmed) + ")");
+        }
+        if (headword) {
+            String[] expected = ReferenceParser.extractHeadword(trimmed);
+            HeadwordLexer.HeadwordLine actual = lexer.splitHeadwordLine(trimmed);
+            check("headword", trimmed, expected[0], actual.headword);
+            check("definition", trimmed, expected[1], actual.definition);
+        }
+    }
+
+    private void check(String step, String input, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            mismatches.add(step + "(" + escape(input) + "): " + escape(expected) + " != " + escape(actual));
+        }
+    }
+
+    private void assertNoMismatches() {
+        assertTrue(mismatches.size() + " mismatches: " + mismatches.subList(0, Math.min(10, mismatches.size())),
+                mismatches.isEmpty());
+    }
+
+    private static String escape(String text) {
+        StringBuilder escaped = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x20 && c < 0x7f) {
+                escaped.append(c);
+            } else {
+                escaped.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package com.trans.translator.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Replays scripted recognizer results against a lookup completed by hand, delivering on the
+ * calling thread.
+ */
+public class IncrementalLookupTest {
+
+    private final List<String> queries = new ArrayList<>();
+    private final List<CompletableFuture<String>> lookups = new ArrayList<>();
+    private final List<BooleanSupplier> cancelled = new ArrayList<>();
+    private final List<String> delivered = new ArrayList<>();
+
+    private final IncrementalLookup<String> speech = new IncrementalLookup<>(
+            (query, isCancelled) -> {
+                CompletableFuture<String> future = new CompletableFuture<>();
+                queries.add(query);
+                lookups.add(future);
+                cancelled.add(isCancelled);
+                return future;
+            },
+            new IncrementalLookup.Listener<String>() {
+                @Override
+                public void onResult(@NonNull String query, String result, boolean isFinal) {
+                    delivered.add((isFinal ? "final " : "partial ") + query + " = " + result);
+                }
+
+                @Override
+                public void onError(@NonNull String query, @NonNull Throwable error) {
+                    delivered.add("error " + query + " = " + error.getMessage());
+                }
+            },
+            Runnable::run);
+
+    @Test
+    public void finalResultTakesOverLookupInFlight() {
+        speech.onPartial("omwana");
+        speech.onPartial("Omwana ");
+        speech.onPartial("omwana w'");
+        speech.onFinal("Omwana w'.");
+        assertEquals(List.of("omwana", "omwana w'"), queries);
+
+        lookups.get(1).complete("child of");
+        // The answer keeps the query of the partial result that started the lookup.
+        assertEquals(List.of("final omwana w' = child of"), delivered);
+    }
+
+    @Test
+    public void finalResultReusesAnsweredPartialLookup() {
+        speech.onPartial("omwana");
+        lookups.get(0).complete("child");
+        speech.onFinal("omwana");
+        assertEquals(List.of("omwana"), queries);
+        assertEquals(List.of("partial omwana = child", "final omwana = child"), delivered);
+
+        speech.onFinal("omwana");
+        assertEquals(2, delivered.size());
+    }
+
+    @Test
+    public void newWordsCancelTheLookupInFlight() {
+        speech.onPartial("omwana");
+        speech.onPartial("omwana mu");
+        assertTrue(lookups.get(0).isCancelled());
+        assertTrue(cancelled.get(0).getAsBoolean());
+        assertFalse(cancelled.get(1).getAsBoolean());
+
+        speech.onFinal("");
+        assertTrue(lookups.get(1).isCancelled());
+        assertTrue(cancelled.get(1).getAsBoolean());
+        assertEquals(2, queries.size());
+        assertEquals(List.of(), delivered);
+    }
+
+    @Test
+    public void cancelledLookupIsNotDelivered() {
+        speech.onPartial("omwana");
+        speech.cancel();
+        assertTrue(cancelled.get(0).getAsBoolean());
+        lookups.get(0).completeExceptionally(new CancellationException());
+        assertEquals(List.of(), delivered);
+
+        speech.onFinal("omwana");
+        assertEquals(List.of("omwana", "omwana"), queries);
+        lookups.get(1).complete("child");
+        assertEquals(List.of("final omwana = child"), delivered);
+    }
+
+    @Test
+    public void staleAnswerIsDropped() {
+        // Answers wait on the delivery queue, as they would behind the recognizer on the main thread.
+        List<Runnable> queue = new ArrayList<>();
+        IncrementalLookup<String> queued = new IncrementalLookup<>(
+                (query, isCancelled) -> CompletableFuture.completedFuture(query.toUpperCase(Locale.ROOT)),
+                new IncrementalLookup.Listener<String>() {
+                    @Override
+                    public void onResult(@NonNull String query, String result, boolean isFinal) {
+                        delivered.add((isFinal ? "final " : "partial ") + query + " = " + result);
+                    }
+
+                    @Override
+                    public void onError(@NonNull String query, @NonNull Throwable error) {
+                        delivered.add("error " + query);
+                    }
+                },
+                queue::add);
+        queued.onPartial("omwana");
+        queued.onPartial("omuntu");
+        queued.onFinal("omuntu");
+        assertEquals(3, queue.size());
+        queue.forEach(Runnable::run);
+        assertEquals(List.of("final omuntu = OMUNTU"), delivered);
+    }
+
+    @Test
+    public void finalResultRetriesFailedPartialLookup() {
+        speech.onPartial("omwana");
+        lookups.get(0).completeExceptionally(new IllegalStateException("offline"));
+        assertEquals(List.of("error omwana = offline"), delivered);
+
+        speech.onPartial("omwana");
+        assertEquals(1, queries.size());
+        speech.onFinal("omwana");
+        assertEquals(List.of("omwana", "omwana"), queries);
+        lookups.get(1).complete("child");
+        assertEquals(List.of("error omwana = offline", "final omwana = child"), delivered);
+    }
+
+    @Test
+    public void wordsIgnoreCaseAndPunctuation() {
+        assertEquals("omwana w'omuntu", IncrementalLookup.words("  Omwana,  W'omuntu? "));
+        assertEquals("", IncrementalLookup.words(" ... "));
+    }
+}
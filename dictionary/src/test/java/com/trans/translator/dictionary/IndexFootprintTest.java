@@ -0,0 +1,248 @@
+package com.trans.translator.dictionary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures the heap retained by the compiled entries and the flattened load-time indexes, and
+ * checks the lookups of the packed {@link TermTable} and {@link FuzzyMatcher} against plain
+ * collections built over the same headwords.
+ */
+public class IndexFootprintTest {
+
+    /** Slack allowed over the array sizes for object headers and measurement noise. */
+    private static final double INDEX_OVERHEAD = 1.25;
+
+    private static CompiledDictionary compiled;
+    private static RukigaDictionary dictionary;
+
+    @BeforeClass
+    public static void load() {
+        compiled = TestDictionary.compiled();
+        dictionary = TestDictionary.loaded();
+    }
+
+    @Test
+    public void loadStatsSumIndexSizes() {
+        EntryFields fields = EntryFields.build(compiled);
+        long expected = fields.sizeInBytes()
+                + EnglishIndex.build(compiled, fields).sizeInBytes()
+                + SentenceIndex.build(compiled, fields).sizeInBytes()
+                + StemIndex.build(compiled).sizeInBytes()
+                + FuzzyMatcher.build(compiled).sizeInBytes()
+                + CrossReferences.build(compiled).sizeInBytes();
+        LoadStats stats = dictionary.loadStats();
+        assertEquals(expected, stats.indexBytes);
+        assertEquals(expected, new RukigaDictionary(compiled).loadStats().indexBytes);
+        assertEquals(compiled.entryCount(), stats.entryCount);
+        assertEquals(compiled.headwordCount(), stats.headwordCount);
+        assertTrue(stats.summary(), stats.summary().contains(stats.indexBytes / 1024 + " KiB of indexes"));
+    }
+
+    /**
+     * The entries, compiled into one buffer, retain at most half the heap of the maps the app
+     * filled from the text: every entry with a lowercased copy of its definition, and the
+     * definitions by headword. The buffer is held on the heap here; the app maps it instead.
+     */
+    @Test
+    public void compiledEntriesRetainAtMostHalfOfTextMaps() throws IOException {
+        String text = TestDictionary.textString();
+        byte[] bytes = TestDictionary.text();
+
+        long before = usedHeap();
+        ReferenceParser maps = ReferenceParser.parse(text);
+        List<String> lowercased = new ArrayList<>(maps.entries.size());
+        for (DictionaryEntry entry : maps.entries) {
+            lowercased.add(entry.definition.toLowerCase(Locale.ROOT));
+        }
+        long mapBytes = usedHeap() - before;
+
+        before = usedHeap();
+        CompiledDictionary entries = CompiledDictionary.open(ByteBuffer.wrap(DictionaryCompiler.compileText(bytes)));
+        long compiledBytes = usedHeap() - before;
+
+        assertEquals(maps.entries.size(), lowercased.size());
+        assertEquals(maps.entries.size(), entries.entryCount());
+        assertTrue(compiledBytes + " bytes compiled, " + mapBytes + " bytes of maps", compiledBytes * 2 <= mapBytes);
+    }
+
+    /**
+     * The indexes retain little more than their arrays, so that {@link LoadStats#indexBytes}
+     * reports the heap a load costs.
+     */
+    @Test
+    public void indexesRetainAboutTheirArrays() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long before = usedHeap();
+            RukigaDictionary loaded = DictionaryLoader.load(compiled, executor, threads, null).join();
+            long retained = usedHeap() - before;
+            long indexBytes = loaded.loadStats().indexBytes;
+            assertTrue(retained + " bytes retained, " + indexBytes + " bytes of indexes",
+                    retained <= indexBytes * INDEX_OVERHEAD);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void termTableMatchesSortedMap() {
+        Map<String, IntList> building = new HashMap<>();
+        Map<String, IntList> payloads = new HashMap<>();
+        TreeMap<String, List<Integer>> expected = new TreeMap<>();
+        for (int i = 0; i < compiled.headwordCount(); i++) {
+            String key = FuzzyMatcher.fold(compiled.headword(i));
+            building.computeIfAbsent(key, k -> new IntList(1)).add(i);
+            payloads.computeIfAbsent(key, k -> new IntList(1)).add(-i);
+            expected.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        TermTable table = TermTable.of(building, payloads);
+        assertEquals(expected.size(), table.size());
+
+        int index = 0;
+        for (Map.Entry<String, List<Integer>> term : expected.entrySet()) {
+            assertEquals(term.getKey(), index, table.find(term.getKey()));
+            assertEquals(term.getKey(), term.getValue().size(), table.postingCount(term.getKey()));
+            int[] postings = table.postings(term.getKey());
+            assertArrayEquals(term.getKey(), toArray(term.getValue()), postings);
+            for (int i = table.postingStart(index); i < table.postingEnd(index); i++) {
+                assertEquals(-table.posting(i), table.payload(i));
+            }
+            assertEquals(-1, table.find(term.getKey() + "\u007f"));
+            assertEquals(0, table.postings(term.getKey() + "\u007f").length);
+            index++;
+        }
+
+        for (String prefix : new String[]{"a", "ab", "omu", "ek", "kur", "zz", ""}) {
+            int start = table.prefixBoundary(prefix, 0, table.size(), false);
+            int end = table.prefixBoundary(prefix, start, table.size(), true);
+            int count = expected.subMap(prefix, true, prefix + Character.MAX_VALUE, false).size();
+            assertEquals(prefix, expected.headMap(prefix).size(), start);
+            assertEquals(prefix, count, end - start);
+        }
+    }
+
+    @Test
+    public void fuzzyMatcherFindsEveryHeadwordWithinDistance() {
+        FuzzyMatcher matcher = FuzzyMatcher.build(compiled);
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < compiled.headwordCount(); i += 97) {
+            String headword = compiled.headword(i);
+            queries.add(headword);
+            queries.add(misspell(headword));
+        }
+        for (String query : queries) {
+            int[] found = matcher.closest(query, Integer.MAX_VALUE, Integer.MAX_VALUE);
+            int[] sorted = found.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(query, bruteForce(query), sorted);
+            int previous = 0;
+            for (int headword : found) {
+                int distance = distance(FuzzyMatcher.fold(compiled.headword(headword)), FuzzyMatcher.fold(query));
+                assertTrue(query + " ranked " + compiled.headword(headword) + " late", distance >= previous);
+                previous = distance;
+            }
+        }
+    }
+
+    @Test
+    public void fuzzyMatcherRanksExactHeadwordFirst() {
+        FuzzyMatcher matcher = FuzzyMatcher.build(compiled);
+        for (int i = 0; i < compiled.headwordCount(); i += 31) {
+            String headword = compiled.headword(i);
+            if (!DictionaryParser.baseHeadword(headword).equals(headword)) {
+                continue;
+            }
+            int[] found = matcher.closest(headword, 3, Integer.MAX_VALUE);
+            assertTrue(headword, found.length > 0);
+            assertEquals(headword, compiled.headword(found[0]));
+        }
+    }
+
+    /**
+     * Heap in use once the garbage is collected, the lowest of a few collections.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /** The sorted unnumbered headwords within {@link FuzzyMatcher#MAX_DISTANCE} of the query. */
+    private static int[] bruteForce(String query) {
+        String folded = FuzzyMatcher.fold(query);
+        IntList found = new IntList(8);
+        for (int i = 0; i < compiled.headwordCount(); i++) {
+            String headword = compiled.headword(i);
+            if (!DictionaryParser.baseHeadword(headword).equals(headword)) {
+                continue;
+            }
+            String key = FuzzyMatcher.fold(headword);
+            if (!key.isEmpty() && distance(key, folded) <= FuzzyMatcher.MAX_DISTANCE) {
+                found.add(i);
+            }
+        }
+        int[] result = new int[found.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = found.get(i);
+        }
+        return result;
+    }
+
+    /** Swaps two letters in the middle of the word, or doubles its last one when it is short. */
+    private static String misspell(String word) {
+        if (word.length() < 4) {
+            return word + word.charAt(word.length() - 1);
+        }
+        int i = word.length() / 2;
+        return word.substring(0, i - 1) + word.charAt(i) + word.charAt(i - 1) + word.substring(i + 1);
+    }
+
+    private static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,156 @@
+package com.trans.translator.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Types queries one character at a time into a session and checks that every step, narrowed
+ * from the previous one, answers as a search starting from scratch.
+ */
+public class LiveSearchTest {
+
+    private static final int LIMIT = 20;
+    /** Enough to compare every match, not just the first page. */
+    private static final int ALL = 100_000;
+
+    private static final String[] RUKIGA = {"omwana", "ebitobotobo", "okuhing", "aba2", "kuzz", "en"};
+    // Completed words with a short match list make the session read glosses instead of postings;
+    // past "grandm" or "wate" a longer prefix keeps the same run of terms and reuses its matches.
+    private static final String[] ENGLISH = {
+            "water", "a small child", "to cut wood", "big fami", "cow milk ", "x", "grandmother of the"};
+
+    private static RukigaDictionary dictionary;
+
+    @BeforeClass
+    public static void load() {
+        dictionary = TestDictionary.loaded();
+    }
+
+    @Test
+    public void pointerEntryShowsItsTargetDefinition() {
+        List<DictionaryMatch> rows = new LiveSearch(dictionary).rukigaToEnglish("ebitob", 0, LIMIT, () -> false);
+        DictionaryMatch pointer = rows.get(0);
+        assertEquals("ebitobo", pointer.displayHeadword);
+        assertTrue(pointer.definition, pointer.definition.startsWith("n. See: ENTOBO.\n→ entobo — n. a plant"));
+        assertEquals(dictionary.resolved(pointer.entryId).definition, pointer.definition);
+    }
+
+    @Test
+    public void userEntriesComeFirstWhileTyping() {
+        RukigaDictionary own = dictionary.withOverlay(UserOverlay.of(List.of(
+                new UserEntry(UserEntry.ADD, "Omwanakazi", "n. granddaughter: a child of one's child", 0),
+                new UserEntry(UserEntry.CORRECT, "omwana", "n. baby", 1))));
+        LiveSearch session = new LiveSearch(own);
+        List<DictionaryMatch> rows = session.rukigaToEnglish("om", 0, LIMIT, () -> false);
+        assertEquals("omwana", rows.get(0).displayHeadword);
+        assertEquals("n. baby", rows.get(0).definition);
+        assertEquals("Omwanakazi", rows.get(1).displayHeadword);
+        // The compiled omwana gives way to the corrected one, and the pages after it shift.
+        List<String> compiledRows = rows(new LiveSearch(dictionary).rukigaToEnglish("om", 0, ALL, () -> false));
+        assertTrue(compiledRows.remove(rows(List.of(dictionary.resolved(compiled(dictionary, "omwana")))).get(0)));
+        assertEquals(compiledRows.subList(0, LIMIT - 2), rows(rows.subList(2, LIMIT)));
+        assertEquals(compiledRows.subList(LIMIT - 2, 2 * LIMIT - 2),
+                rows(session.rukigaToEnglish("om", LIMIT, LIMIT, () -> false)));
+
+        String typed = "";
+        for (char c : "grandd".toCharArray()) {
+            typed += c;
+            rows = session.englishToRukiga(typed, 0, LIMIT, () -> false);
+        }
+        assertEquals("Omwanakazi", rows.get(0).displayHeadword);
+        assertEquals(1, rows.get(0).highlightCount());
+        assertEquals("granddaughter", rows.get(0).definition.substring(
+                rows.get(0).highlightStart(0), rows.get(0).highlightEnd(0)));
+        assertEquals("Omwanakazi", session.englishToRukiga("child of one's ", 0, LIMIT, () -> false)
+                .get(0).displayHeadword);
+    }
+
+    @Test
+    public void typedRukigaMatchesFreshSearch() {
+        for (String query : RUKIGA) {
+            LiveSearch session = new LiveSearch(dictionary);
+            for (int length = 1; length <= query.length(); length++) {
+                String typed = query.substring(0, length);
+                assertEquals(typed, rows(new LiveSearch(dictionary).rukigaToEnglish(typed, 0, ALL, () -> false)),
+                        rows(session.rukigaToEnglish(typed, 0, ALL, () -> false)));
+            }
+        }
+    }
+
+    @Test
+    public void typedEnglishMatchesFreshSearch() {
+        for (String query : ENGLISH) {
+            LiveSearch session = new LiveSearch(dictionary);
+            for (int length = 1; length <= query.length(); length++) {
+                String typed = query.substring(0, length);
+                assertEquals(typed, rows(new LiveSearch(dictionary).englishToRukiga(typed, 0, ALL, () -> false)),
+                        rows(session.englishToRukiga(typed, 0, ALL, () -> false)));
+            }
+        }
+    }
+
+    @Test
+    public void cancelledSearchLeavesSessionUnchanged() {
+        for (String query : ENGLISH) {
+            LiveSearch session = new LiveSearch(dictionary);
+            for (int length = 1; length <= query.length(); length++) {
+                String typed = query.substring(0, length);
+                assertCancelled(() -> session.englishToRukiga(typed + "q", 0, LIMIT, () -> true));
+                assertCancelled(() -> session.rukigaToEnglish(typed + "q", 0, LIMIT, () -> true));
+                assertEquals(typed, rows(new LiveSearch(dictionary).englishToRukiga(typed, 0, ALL, () -> false)),
+                        rows(session.englishToRukiga(typed, 0, ALL, () -> false)));
+            }
+        }
+        LiveSearch session = new LiveSearch(dictionary);
+        session.rukigaToEnglish("omw", 0, LIMIT, () -> false);
+        assertCancelled(() -> session.rukigaToEnglish("omwa", 0, LIMIT, () -> true));
+        assertEquals(rows(new LiveSearch(dictionary).rukigaToEnglish("om", 0, ALL, () -> false)),
+                rows(session.rukigaToEnglish("om", 0, ALL, () -> false)));
+    }
+
+    @Test
+    public void nextPageContinuesTheFirst() {
+        LiveSearch session = new LiveSearch(dictionary);
+        List<String> all = rows(new LiveSearch(dictionary).englishToRukiga("child", 0, ALL, () -> false));
+        assertTrue(all.size() > 2 * LIMIT);
+        assertEquals(all.subList(0, LIMIT), rows(session.englishToRukiga("child", 0, LIMIT, () -> false)));
+        assertEquals(all.subList(LIMIT, 2 * LIMIT), rows(session.englishToRukiga("child", LIMIT, LIMIT, () -> false)));
+    }
+
+    /** The first entry of a headword. */
+    private static int compiled(RukigaDictionary dictionary, String headword) {
+        return dictionary.compiled().posting(dictionary.compiled().findHeadword(headword), 0);
+    }
+
+    private static void assertCancelled(Runnable search) {
+        try {
+            search.run();
+            fail("not cancelled");
+        } catch (CancellationException expected) {
+            // The session is left as it was.
+        }
+    }
+
+    /** Each row as its entry and highlighted ranges. */
+    private static List<String> rows(List<DictionaryMatch> matches) {
+        List<String> rows = new ArrayList<>();
+        for (DictionaryMatch match : matches) {
+            StringBuilder row = new StringBuilder().append(match.entryId);
+            for (int i = 0; i < match.highlightCount(); i++) {
+                row.append(' ').append(match.highlightStart(i)).append('-').append(match.highlightEnd(i));
+            }
+            rows.add(row.toString());
+        }
+        assertFalse(rows.contains(null));
+        return rows;
+    }
+}
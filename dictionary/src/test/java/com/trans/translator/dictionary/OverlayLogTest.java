@@ -0,0 +1,149 @@
+package com.trans.translator.dictionary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class OverlayLogTest {
+
+    private static final UserEntry CHILD = new UserEntry(UserEntry.ADD, "omwana", "n. child", 1);
+    private static final UserEntry BABY = new UserEntry(UserEntry.CORRECT, "omwana", "n. baby", 2);
+    private static final UserEntry PERSON = new UserEntry(UserEntry.ADD, "omuntu", "n. person", 3);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private OverlayLog log;
+
+    @Before
+    public void create() {
+        file = new File(folder.getRoot(), "overlay.log");
+        log = new OverlayLog(file);
+    }
+
+    @Test
+    public void entriesAreReadInTheOrderAppended() throws IOException {
+        assertEquals(List.of(), log.read());
+        log.append(CHILD);
+        log.append(BABY);
+        assertEquals(List.of(describe(CHILD), describe(BABY)), read(new OverlayLog(file)));
+    }
+
+    @Test
+    public void recordCutShortIsDroppedAndCutOffBeforeTheNextAppend() throws IOException {
+        log.append(CHILD);
+        long firstEnd = file.length();
+        log.append(BABY);
+        for (long cut = file.length() - 1; cut > firstEnd; cut -= 5) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(cut);
+            }
+            assertEquals(List.of(describe(CHILD)), read(log));
+        }
+
+        log.append(PERSON);
+        assertEquals(List.of(describe(CHILD), describe(PERSON)), read(log));
+        assertEquals(firstEnd + record(PERSON.operation, PERSON).length, file.length());
+    }
+
+    @Test
+    public void recordFailingItsChecksumEndsTheLog() throws IOException {
+        log.append(CHILD);
+        long firstEnd = file.length();
+        log.append(BABY);
+        log.append(PERSON);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        // A letter of the second record's definition.
+        bytes[(int) firstEnd + 4 + 1 + 2 + "omwana".length() + 2] ^= 1;
+        Files.write(file.toPath(), bytes);
+        assertEquals(List.of(describe(CHILD)), read(log));
+
+        log.append(PERSON);
+        assertEquals(List.of(describe(CHILD), describe(PERSON)), read(log));
+    }
+
+    @Test
+    public void unknownHeaderStartsTheLogAfresh() throws IOException {
+        Files.write(file.toPath(), new byte[]{'R', 'K', 'O', '9', 0, 0, 0, 0});
+        assertEquals(List.of(), log.read());
+        log.append(CHILD);
+        assertEquals(List.of(describe(CHILD)), read(log));
+    }
+
+    @Test
+    public void recordOfUnknownOperationIsKeptIntact() throws IOException {
+        log.append(CHILD);
+        byte[] newer = record(7, BABY);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.write(newer);
+        }
+        byte[] before = Files.readAllBytes(file.toPath());
+        assertUnreadable();
+
+        log.append(PERSON);
+        byte[] after = Files.readAllBytes(file.toPath());
+        assertArrayEquals(before, Arrays.copyOf(after, before.length));
+        assertArrayEquals(record(PERSON.operation, PERSON), Arrays.copyOfRange(after, before.length, after.length));
+        assertUnreadable();
+    }
+
+    private void assertUnreadable() {
+        try {
+            log.read();
+            fail("read a record of an unknown operation");
+        } catch (IOException expected) {
+            // Written by a newer version.
+        }
+    }
+
+    /** A record as the log frames it, with {@code operation} in place of the entry's own. */
+    private static byte[] record(int operation, UserEntry entry) throws IOException {
+        ByteArrayOutputStream fields = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(fields)) {
+            out.writeByte(operation);
+            out.writeUTF(entry.displayHeadword);
+            out.writeUTF(entry.definition);
+            out.writeLong(entry.timestamp);
+        }
+        byte[] payload = fields.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(record)) {
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt((int) crc.getValue());
+        }
+        return record.toByteArray();
+    }
+
+    private static List<String> read(OverlayLog log) throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (UserEntry entry : log.read()) {
+            entries.add(describe(entry));
+        }
+        return entries;
+    }
+
+    private static String describe(UserEntry entry) {
+        return entry.operation + " " + entry.displayHeadword + " = " + entry.definition + " @" + entry.timestamp;
+    }
+}
@@ -0,0 +1,131 @@
+package com.trans.translator.dictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The regular-expression parser the app used before the dictionary was compiled, kept unchanged
+ * as the reference the compiled index and {@link HeadwordLexer} are checked against.
+ */
+final class ReferenceParser {
+
+    private static final Pattern HEADWORD_TOKEN_PATTERN = Pattern.compile("[a-z'ʼ-]+\\d*");
+
+    /** Entries in file order. */
+    final List<DictionaryEntry> entries = new ArrayList<>();
+    /** Definitions by normalized headword, numbered homographs also under their base headword. */
+    final Map<String, List<String>> definitions = new LinkedHashMap<>();
+
+    private ReferenceParser() {
+    }
+
+    static ReferenceParser parse(String text) throws IOException {
+        ReferenceParser parser = new ReferenceParser();
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String line;
+            String currentHeadword = null;
+            StringBuilder definitionBuilder = new StringBuilder();
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                if (looksLikeHeadword(trimmed)) {
+                    if (currentHeadword != null && definitionBuilder.length() > 0) {
+                        parser.storeEntry(currentHeadword, definitionBuilder.toString());
+                    }
+                    String[] parts = extractHeadword(trimmed);
+                    currentHeadword = parts[0];
+                    definitionBuilder = new StringBuilder(parts[1]);
+                } else if (currentHeadword != null) {
+                    if (definitionBuilder.length() > 0) {
+                        definitionBuilder.append(' ');
+                    }
+                    definitionBuilder.append(trimmed);
+                }
+            }
+            if (currentHeadword != null && definitionBuilder.length() > 0) {
+                parser.storeEntry(currentHeadword, definitionBuilder.toString());
+            }
+        }
+        return parser;
+    }
+
+    private void storeEntry(String rawHeadword, String rawDefinition) {
+        String normalizedHeadword = normalizeHeadword(rawHeadword);
+        if (normalizedHeadword.isEmpty()) {
+            return;
+        }
+        String cleanedDefinition = cleanDefinition(rawDefinition);
+        if (cleanedDefinition.isEmpty()) {
+            return;
+        }
+        addDefinition(normalizedHeadword, cleanedDefinition);
+        String baseHeadword = baseHeadword(normalizedHeadword);
+        if (!baseHeadword.equals(normalizedHeadword)) {
+            addDefinition(baseHeadword, cleanedDefinition);
+        }
+        entries.add(new DictionaryEntry(rawHeadword.trim(), cleanedDefinition));
+    }
+
+    private void addDefinition(String headword, String definition) {
+        List<String> list = definitions.computeIfAbsent(headword, key -> new ArrayList<>());
+        if (!list.contains(definition)) {
+            list.add(definition);
+        }
+    }
+
+    static String normalizeHeadword(String input) {
+        String lower = input.toLowerCase(Locale.ROOT);
+        lower = lower.replace('ʼ', '\'');
+        lower = lower.replaceAll("[^a-z'\\-\\d\\s]", "");
+        lower = lower.replaceAll("\\s+", " ").trim();
+        return lower;
+    }
+
+    static String baseHeadword(String normalizedHeadword) {
+        return normalizedHeadword.replaceAll("\\d+$", "");
+    }
+
+    static boolean looksLikeHeadword(String line) {
+        if (line.isEmpty()) {
+            return false;
+        }
+        char first = line.charAt(0);
+        if (!Character.isLowerCase(first)) {
+            return false;
+        }
+        int spaceIndex = line.indexOf(' ');
+        if (spaceIndex <= 0) {
+            return false;
+        }
+        String token = line.substring(0, spaceIndex);
+        return HEADWORD_TOKEN_PATTERN.matcher(token).matches();
+    }
+
+    /**
+     * Splits a headword line into its headword and the start of its definition.
+     */
+    static String[] extractHeadword(String line) {
+        String sanitized = line.replace("|", " ");
+        sanitized = sanitized.replaceAll("\\s+", " ").trim();
+        int firstSpace = sanitized.indexOf(' ');
+        if (firstSpace == -1) {
+            return new String[]{sanitized, ""};
+        }
+        return new String[]{sanitized.substring(0, firstSpace), sanitized.substring(firstSpace + 1).trim()};
+    }
+
+    static String cleanDefinition(String definition) {
+        String trimmed = definition.replace('ʼ', '\'').trim();
+        trimmed = trimmed.replaceAll("\\s+", " ");
+        return trimmed;
+    }
+}
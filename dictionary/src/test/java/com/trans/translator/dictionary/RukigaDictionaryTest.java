@@ -0,0 +1,97 @@
+package com.trans.translator.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RukigaDictionaryTest {
+
+    private static final String SUGGESTIONS = "Did you mean:\n";
+
+    private static RukigaDictionary dictionary;
+    private static CompiledDictionary compiled;
+
+    @BeforeClass
+    public static void load() {
+        dictionary = TestDictionary.loaded();
+        compiled = TestDictionary.compiled();
+    }
+
+    @Test
+    public void partialHeadwordSuggestsHeadwordsStartingWithIt() {
+        assertEquals(List.of("abaregye", "abaregyera"), suggestedHeadwords("abareg").subList(0, 2));
+        for (String partial : new String[]{"abareg", "abarong", "aband", "abaan", "abashe"}) {
+            for (String headword : suggestedHeadwords(partial)) {
+                assertTrue(partial + " suggested " + headword, headword.startsWith(partial));
+            }
+        }
+    }
+
+    @Test
+    public void everyPartialHeadwordSuggestsPrefixMatches() {
+        List<String> failures = new ArrayList<>();
+        for (int index = 0; index < compiled.headwordCount(); index++) {
+            String headword = compiled.headword(index);
+            for (int length = 1; length < headword.length(); length++) {
+                String partial = headword.substring(0, length);
+                if (partial.endsWith(" ") || compiled.findHeadword(partial) >= 0) {
+                    continue;
+                }
+                List<String> suggested = suggestedHeadwords(partial);
+                if (suggested.isEmpty() || !suggested.get(0).startsWith(partial)) {
+                    failures.add(partial + " -> " + suggested);
+                }
+            }
+        }
+        assertTrue(failures.size() + " partial headwords, e.g. " + failures.subList(0, Math.min(10, failures.size())),
+                failures.isEmpty());
+    }
+
+    @Test
+    public void wordWithAnotherPrefixFallsBackToItsStem() {
+        List<String> suggested = suggestedHeadwords("kuntu");
+        assertFalse(suggested.isEmpty());
+        for (String headword : suggested) {
+            assertTrue(headword, headword.endsWith("ntu"));
+        }
+    }
+
+    @Test
+    public void exactHeadwordListsItsDefinitions() {
+        assertTrue(dictionary.translateRukigaToEnglish("oburungi").startsWith("n. goodness"));
+    }
+
+    @Test
+    public void userEntriesAreReadInSentences() {
+        RukigaDictionary own = dictionary.withOverlay(UserOverlay.of(List.of(
+                new UserEntry(UserEntry.ADD, "omwanakazi", "n. granddaughter: a child of one's child", 0),
+                new UserEntry(UserEntry.CORRECT, "omwana", "n. baby", 1),
+                new UserEntry(UserEntry.ADD, "okwiruka", "v. to flee", 2))));
+        List<WordGloss> words = own.glossSentence("Omwanakazi omwana nibiruka okwiruka").readings();
+        assertEquals(WordGloss.EXACT, words.get(0).match);
+        assertEquals(-1, words.get(0).headwordIndex);
+        assertEquals("granddaughter", words.get(0).gloss);
+        assertEquals("baby", words.get(1).gloss);
+        assertEquals(-1, words.get(1).headwordIndex);
+        assertEquals("to flee; " + dictionary.glossSentence("okwiruka").readings().get(0).gloss, words.get(3).gloss);
+        assertEquals(compiled.findHeadword("okwiruka"), words.get(3).headwordIndex);
+    }
+
+    private static List<String> suggestedHeadwords(String query) {
+        String answer = dictionary.translateRukigaToEnglish(query);
+        List<String> headwords = new ArrayList<>();
+        if (!answer.startsWith(SUGGESTIONS)) {
+            return headwords;
+        }
+        for (String suggestion : answer.substring(SUGGESTIONS.length()).split("\n\n")) {
+            headwords.add(suggestion.substring(0, suggestion.indexOf(" — ")));
+        }
+        return headwords;
+    }
+}
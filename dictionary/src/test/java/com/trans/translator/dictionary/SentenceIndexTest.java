@@ -0,0 +1,67 @@
+package com.trans.translator.dictionary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SentenceIndexTest {
+
+    private static SentenceIndex index;
+
+    @BeforeClass
+    public static void load() {
+        CompiledDictionary compiled = TestDictionary.compiled();
+        index = SentenceIndex.build(compiled, EntryFields.build(compiled));
+    }
+
+    @Test
+    public void sentencesReadAsTheirLanguage() {
+        assertEquals(SentenceIndex.RUKIGA, language("Omwenda gwa marekaane nimurungi"));
+        assertEquals(SentenceIndex.RUKIGA, language("Twara obwo bwana bw'enkoko"));
+        assertEquals(SentenceIndex.ENGLISH, language("A kakhi cotton material"));
+        assertEquals(SentenceIndex.ENGLISH, language("They have a big family"));
+        assertEquals(SentenceIndex.UNKNOWN, language("Bread crumbs"));
+        assertEquals(SentenceIndex.UNKNOWN, language("Take those little chicks"));
+        assertNotEquals(SentenceIndex.ENGLISH, language("Akanyuunyuura abaana be"));
+    }
+
+    @Test
+    public void pairReadTheWrongWayRoundIsTurnedRound() {
+        SentencePair pair = index.search("kakhi cotton material", SentenceIndex.ENGLISH, 1).get(0);
+        assertEquals("Omwenda gwa marekaane nimurungi", pair.rukiga);
+        assertEquals("A kakhi cotton material", pair.english);
+    }
+
+    @Test
+    public void pairInOneLanguageIsDropped() {
+        for (int side = SentenceIndex.RUKIGA; side <= SentenceIndex.ENGLISH; side++) {
+            for (SentencePair pair : index.search("They have a big family", side, 20)) {
+                assertNotEquals("They have a big family", pair.rukiga);
+                assertNotEquals("They called the whole clan", pair.english);
+            }
+        }
+    }
+
+    @Test
+    public void noPairHasBothSidesInOneLanguage() {
+        assertTrue(index.pairCount() > 1000);
+        List<String> mixed = new ArrayList<>();
+        for (int i = 0; i < index.pairCount(); i++) {
+            SentencePair pair = index.pair(i, 0);
+            if (language(pair.rukiga) == SentenceIndex.ENGLISH || language(pair.english) == SentenceIndex.RUKIGA) {
+                mixed.add(pair.rukiga + " — " + pair.english);
+            }
+        }
+        assertTrue(mixed.toString(), mixed.isEmpty());
+    }
+
+    private static int language(String sentence) {
+        return SentenceIndex.language(EnglishIndex.tokenize(sentence));
+    }
+}
@@ -0,0 +1,73 @@
+package com.trans.translator.dictionary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The app's text dictionary, given by the {@code dictionary.text} system property, compiled once
+ * and memory-mapped from a temporary file the way the app maps its asset.
+ */
+final class TestDictionary {
+
+    static final String PROPERTY = "dictionary.text";
+
+    private static byte[] text;
+    private static CompiledDictionary compiled;
+    private static RukigaDictionary loaded;
+
+    private TestDictionary() {
+        // Utility class.
+    }
+
+    static synchronized byte[] text() {
+        if (text == null) {
+            String path = System.getProperty(PROPERTY);
+            if (path == null) {
+                throw new IllegalStateException("Set -D" + PROPERTY + " to the path of rukiga_dictionary.txt");
+            }
+            try {
+                text = Files.readAllBytes(Paths.get(path));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return text;
+    }
+
+    static String textString() {
+        return new String(text(), StandardCharsets.UTF_8);
+    }
+
+    static synchronized CompiledDictionary compiled() {
+        if (compiled == null) {
+            try {
+                Path file = Files.createTempFile("rukiga_dictionary", ".bin");
+                file.toFile().deleteOnExit();
+                Files.write(file, DictionaryCompiler.compileText(text()));
+                compiled = CompiledDictionary.map(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return compiled;
+    }
+
+    static synchronized RukigaDictionary loaded() {
+        if (loaded == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                loaded = DictionaryLoader.load(compiled(), executor, threads, null).join();
+            } finally {
+                executor.shutdown();
+            }
+        }
+        return loaded;
+    }
+}
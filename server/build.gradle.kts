@@ -0,0 +1,28 @@
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(project(":dictionary"))
+    implementation(project(":dictionary-compiler"))
+    testImplementation(libs.junit)
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+application {
+    mainClass.set("com.trans.translator.server.DictionaryServer")
+}
+
+// ./gradlew :server:run serves the app's text dictionary on localhost:8080.
+tasks.named<JavaExec>("run") {
+    val dictionary = rootProject.layout.projectDirectory.file("app/src/main/dictionary/rukiga_dictionary.txt")
+    args("--dictionary", dictionary.asFile.absolutePath)
+}
@@ -0,0 +1,379 @@
+package com.trans.translator.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.trans.translator.dictionary.CompiledDictionary;
+import com.trans.translator.dictionary.DictionaryCompiler;
+import com.trans.translator.dictionary.DictionaryLoader;
+import com.trans.translator.dictionary.Metrics;
+import com.trans.translator.dictionary.RukigaDictionary;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves Runyankore/Rukiga ↔ English lookups over HTTP from the same engine as the app, for
+ * backends and batch jobs. It needs nothing but a JDK and the dictionary file.
+ *
+ * <ul>
+ *     <li>{@code GET /rukiga-to-english?q=...}: the translation of a Runyankore/Rukiga headword or
+ *     phrase.</li>
+ *     <li>{@code GET /english-to-rukiga?q=...[&offset=0][&limit=5]}: a page of the ranked
+ *     headwords whose definitions mention the English words.</li>
+ *     <li>{@code POST /batch}: one {@code rukiga} or {@code english} lookup per line of the body,
+ *     as {@code direction<TAB>query}, answered as JSON lines in the same order. Lines are read
+ *     and answered one at a time, so a batch of any size streams through in constant memory.</li>
+ *     <li>{@code GET /health/live} answers as soon as the server is up, {@code GET /health/ready}
+ *     only once the dictionary has loaded; lookups are refused with 503 until then.</li>
+ *     <li>{@code GET /metrics}: the {@link Metrics} of the engine as JSON.</li>
+ * </ul>
+ *
+ * Any other path, including one that merely starts with an endpoint's, is answered with a JSON
+ * 404, and a query string that does not decode with a 400.
+ *
+ * Each request is handled on its own virtual thread when the JVM has them (Java 21), and on a
+ * thread of a cached pool otherwise, so a slow batch never holds up the single lookups.
+ */
+public final class DictionaryServer {
+
+    static final int DEFAULT_PORT = 8080;
+    /** Largest page of English to Rukiga results a request may ask for. */
+    static final int MAX_LIMIT = 100;
+    // Batch lines answered between flushes of the response stream.
+    private static final int BATCH_FLUSH_INTERVAL = 64;
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String JSON_LINES = "application/x-ndjson; charset=utf-8";
+
+    private final HttpServer server;
+    private final ExecutorService requestExecutor;
+    private final CompletableFuture<RukigaDictionary> dictionary;
+
+    /**
+     * Binds the server and starts answering; lookups wait for {@code dictionary} to complete.
+     */
+    public DictionaryServer(InetSocketAddress address, CompletableFuture<RukigaDictionary> dictionary)
+            throws IOException {
+        this.dictionary = dictionary;
+        this.requestExecutor = newRequestExecutor();
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(requestExecutor);
+        endpoint("/", exchange -> respond(exchange, 404, Json.error(0, "Not found")));
+        endpoint("/rukiga-to-english", this::rukigaToEnglish);
+        endpoint("/english-to-rukiga", this::englishToRukiga);
+        endpoint("/batch", this::batch);
+        endpoint("/health/live", exchange -> respond(exchange, 200, Json.status("live")));
+        endpoint("/health/ready", this::ready);
+        endpoint("/metrics", exchange -> respond(exchange, 200, Metrics.global().toJson()));
+        server.start();
+    }
+
+    /**
+     * Answers requests for exactly {@code path}. A context also receives the paths below it, such
+     * as {@code /metrics/x} or {@code /batchjob}, which are not found.
+     */
+    private void endpoint(String path, HttpHandler handler) {
+        server.createContext(path, exchange -> {
+            if (exchange.getRequestURI().getPath().equals(path)) {
+                handler.handle(exchange);
+            } else {
+                respond(exchange, 404, Json.error(0, "Not found"));
+            }
+        });
+    }
+
+    /**
+     * The address the server listens on, with the port chosen by the system when bound to 0.
+     */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    public void stop() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+    }
+
+    /**
+     * {@code DictionaryServer --dictionary <rukiga_dictionary.txt|.bin> [--port 8080]
+     * [--host 127.0.0.1]}. A text dictionary is compiled in memory at startup; a compiled one is
+     * mapped as is.
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        String file = options.get("dictionary");
+        if (file == null) {
+            System.err.println("Usage: DictionaryServer --dictionary <dictionary.txt|dictionary.bin>"
+                    + " [--port " + DEFAULT_PORT + "] [--host 127.0.0.1]");
+            System.exit(2);
+        }
+        InetAddress host = InetAddress.getByName(options.getOrDefault("host", "127.0.0.1"));
+        int port = Integer.parseInt(options.getOrDefault("port", String.valueOf(DEFAULT_PORT)));
+
+        long start = System.nanoTime();
+        CompletableFuture<RukigaDictionary> dictionary = load(Paths.get(file));
+        DictionaryServer server = new DictionaryServer(new InetSocketAddress(host, port), dictionary);
+        System.out.println("Listening on http://" + server.address().getHostString() + ':' + server.address().getPort());
+        dictionary.whenComplete((loaded, error) -> {
+            if (error != null) {
+                System.err.println("Failed to load " + file + ": " + error);
+            } else {
+                System.out.printf("Ready in %d ms: %s%n", (System.nanoTime() - start) / 1_000_000,
+                        loaded.loadStats().summary());
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+
+    /**
+     * Starts loading a text or compiled dictionary file in the background, building the indexes
+     * on a pool bounded by the number of cores that is shut down once they are built.
+     */
+    public static CompletableFuture<RukigaDictionary> load(Path file) {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "dictionary-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletableFuture<RukigaDictionary> future = CompletableFuture
+                .supplyAsync(() -> {
+                    try {
+                        if (!file.getFileName().toString().endsWith(".txt")) {
+                            return CompiledDictionary.map(file);
+                        }
+                        Path compiled = Files.createTempFile("rukiga_dictionary", ".bin");
+                        compiled.toFile().deleteOnExit();
+                        Files.write(compiled, DictionaryCompiler.compileText(Files.readAllBytes(file)));
+                        return CompiledDictionary.map(compiled);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, pool)
+                .thenCompose(compiled -> DictionaryLoader.load(compiled, pool, threads, null));
+        future.whenComplete((loaded, error) -> pool.shutdown());
+        return future;
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task where the JVM supports them, found
+     * reflectively so that the module still runs on Java 11, and a cached pool of daemon
+     * threads otherwise.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "dictionary-request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void rukigaToEnglish(HttpExchange exchange) throws IOException {
+        if (!allow(exchange, "GET")) {
+            return;
+        }
+        Map<String, String> parameters = parametersOrRefuse(exchange);
+        if (parameters == null) {
+            return;
+        }
+        String query = parameters.get("q");
+        if (query == null || query.trim().isEmpty()) {
+            respond(exchange, 400, Json.error(0, "Missing q"));
+            return;
+        }
+        RukigaDictionary loaded = readyOrRefuse(exchange);
+        if (loaded != null) {
+            respond(exchange, 200, Json.rukigaToEnglish(query, loaded.translateRukigaToEnglish(query)));
+        }
+    }
+
+    private void englishToRukiga(HttpExchange exchange) throws IOException {
+        if (!allow(exchange, "GET")) {
+            return;
+        }
+        Map<String, String> parameters = parametersOrRefuse(exchange);
+        if (parameters == null) {
+            return;
+        }
+        String query = parameters.get("q");
+        int offset;
+        int limit;
+        try {
+            offset = Integer.parseInt(parameters.getOrDefault("offset", "0"));
+            limit = Integer.parseInt(parameters.getOrDefault("limit",
+                    String.valueOf(RukigaDictionary.REVERSE_RESULT_LIMIT)));
+        } catch (NumberFormatException e) {
+            respond(exchange, 400, Json.error(0, "offset and limit must be integers"));
+            return;
+        }
+        if (query == null || query.trim().isEmpty()) {
+            respond(exchange, 400, Json.error(0, "Missing q"));
+            return;
+        }
+        if (offset < 0 || limit < 1 || limit > MAX_LIMIT) {
+            respond(exchange, 400, Json.error(0, "offset must be at least 0 and limit between 1 and " + MAX_LIMIT));
+            return;
+        }
+        RukigaDictionary loaded = readyOrRefuse(exchange);
+        if (loaded != null) {
+            respond(exchange, 200, Json.englishToRukiga(query, loaded.searchEnglish(query, offset, limit)));
+        }
+    }
+
+    /**
+     * Answers each line of the request body as soon as it is read, one JSON object per line;
+     * a malformed line is answered with an error object and the batch goes on.
+     */
+    private void batch(HttpExchange exchange) throws IOException {
+        if (!allow(exchange, "POST")) {
+            return;
+        }
+        RukigaDictionary loaded = readyOrRefuse(exchange);
+        if (loaded == null) {
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", JSON_LINES);
+        // A length of 0 sends the response in chunks, as it is written.
+        exchange.sendResponseHeaders(200, 0);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            int number = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                String direction = tab < 0 ? "" : line.substring(0, tab);
+                String query = tab < 0 ? "" : line.substring(tab + 1);
+                String answer;
+                if (query.trim().isEmpty()) {
+                    answer = Json.error(number, "Expected direction<TAB>query");
+                } else if (direction.equals("rukiga")) {
+                    answer = Json.rukigaToEnglish(query, loaded.translateRukigaToEnglish(query));
+                } else if (direction.equals("english")) {
+                    answer = Json.englishToRukiga(query,
+                            loaded.searchEnglish(query, 0, RukigaDictionary.REVERSE_RESULT_LIMIT));
+                } else {
+                    answer = Json.error(number, "Unknown direction \"" + direction + "\", expected rukiga or english");
+                }
+                writer.write(answer);
+                writer.write('\n');
+                if (number % BATCH_FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
+    }
+
+    private void ready(HttpExchange exchange) throws IOException {
+        if (dictionary.isDone() && !dictionary.isCompletedExceptionally()) {
+            respond(exchange, 200, Json.status("ready"));
+        } else if (dictionary.isCompletedExceptionally()) {
+            respond(exchange, 503, Json.status("failed"));
+        } else {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, Json.status("loading"));
+        }
+    }
+
+    /**
+     * Returns the loaded dictionary, or answers 503 and returns {@code null} while it is loading
+     * or if it failed to load.
+     */
+    private RukigaDictionary readyOrRefuse(HttpExchange exchange) throws IOException {
+        if (dictionary.isDone() && !dictionary.isCompletedExceptionally()) {
+            return dictionary.join();
+        }
+        if (!dictionary.isCompletedExceptionally()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        respond(exchange, 503, Json.error(0, dictionary.isCompletedExceptionally()
+                ? "Dictionary failed to load" : "Dictionary is loading"));
+        return null;
+    }
+
+    /**
+     * Returns the decoded query parameters, or answers 400 and returns {@code null} when one is
+     * not validly percent-encoded.
+     */
+    private static Map<String, String> parametersOrRefuse(HttpExchange exchange) throws IOException {
+        try {
+            return queryParameters(exchange.getRequestURI());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, Json.error(0, "Malformed query string"));
+            return null;
+        }
+    }
+
+    private static boolean allow(HttpExchange exchange, String method) throws IOException {
+        if (exchange.getRequestMethod().equals(method)) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", method);
+        respond(exchange, 405, Json.error(0, "Use " + method));
+        return false;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> queryParameters(URI uri) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+}
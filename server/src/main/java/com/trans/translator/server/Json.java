@@ -0,0 +1,109 @@
+package com.trans.translator.server;
+
+import com.trans.translator.dictionary.DictionaryMatch;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes the JSON bodies of the service responses.
+ */
+final class Json {
+
+    private Json() {
+        // Utility class.
+    }
+
+    /**
+     * {@code {"direction":"rukiga","query":...,"translation":...}}
+     */
+    static String rukigaToEnglish(String query, String translation) {
+        StringBuilder json = new StringBuilder("{\"direction\":\"rukiga\",\"query\":");
+        appendString(json, query);
+        json.append(",\"translation\":");
+        appendString(json, translation);
+        return json.append('}').toString();
+    }
+
+    /**
+     * {@code {"direction":"english","query":...,"results":[{"headword","definition","highlights"}]}},
+     * the highlights being the {@code [start, end)} offsets of the query words in the definition.
+     */
+    static String englishToRukiga(String query, List<DictionaryMatch> matches) {
+        StringBuilder json = new StringBuilder("{\"direction\":\"english\",\"query\":");
+        appendString(json, query);
+        json.append(",\"results\":[");
+        for (int i = 0; i < matches.size(); i++) {
+            DictionaryMatch match = matches.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"headword\":");
+            appendString(json, match.displayHeadword);
+            json.append(",\"definition\":");
+            appendString(json, match.definition);
+            json.append(",\"highlights\":[");
+            for (int h = 0; h < match.highlightCount(); h++) {
+                if (h > 0) {
+                    json.append(',');
+                }
+                json.append('[').append(match.highlightStart(h)).append(',').append(match.highlightEnd(h)).append(']');
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * {@code {"error":...}}, with the line of a batch it refers to when positive.
+     */
+    static String error(int line, String message) {
+        StringBuilder json = new StringBuilder("{");
+        if (line > 0) {
+            json.append("\"line\":").append(line).append(',');
+        }
+        json.append("\"error\":");
+        appendString(json, message);
+        return json.append('}').toString();
+    }
+
+    /**
+     * {@code {"status":...}}
+     */
+    static String status(String status) {
+        StringBuilder json = new StringBuilder("{\"status\":");
+        appendString(json, status);
+        return json.append('}').toString();
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,161 @@
+package com.trans.translator.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.trans.translator.dictionary.RukigaDictionary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Starts the server on an ephemeral loopback port over a small text dictionary and calls it the
+ * way a client would.
+ */
+public class DictionaryServerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private RukigaDictionary dictionary;
+    private DictionaryServer server;
+
+    @Before
+    public void start() throws IOException {
+        Path text = folder.newFile("dictionary.txt").toPath();
+        Files.write(text, ("omwana n. child: a young person\n"
+                + "omuntu n. person: a human being\n"
+                + "okubyama v. to sleep\n").getBytes(StandardCharsets.UTF_8));
+        CompletableFuture<RukigaDictionary> loading = DictionaryServer.load(text);
+        dictionary = loading.join();
+        server = new DictionaryServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), loading);
+    }
+
+    @After
+    public void stop() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void singleLookupsAnswerAsTheEngine() throws IOException {
+        assertTrue(server.address().getPort() > 0);
+        assertEquals(Json.rukigaToEnglish("omwana", dictionary.translateRukigaToEnglish("omwana")),
+                get("/rukiga-to-english?q=omwana", 200));
+        assertEquals(Json.englishToRukiga("young person", dictionary.searchEnglish("young person", 0, 1)),
+                get("/english-to-rukiga?q=" + URLEncoder.encode("young person", StandardCharsets.UTF_8)
+                        + "&limit=1", 200));
+        assertTrue(get("/english-to-rukiga?q=sleep", 200).contains("\"headword\":\"okubyama\""));
+    }
+
+    @Test
+    public void badLookupsAreRefused() throws IOException {
+        assertEquals(Json.error(0, "Missing q"), get("/rukiga-to-english?q=", 400));
+        get("/english-to-rukiga?q=child&limit=" + (DictionaryServer.MAX_LIMIT + 1), 400);
+        post("/rukiga-to-english", "omwana", 405);
+    }
+
+    @Test
+    public void onlyTheEndpointsThemselvesAreFound() throws IOException {
+        String notFound = Json.error(0, "Not found");
+        assertEquals(notFound, get("/", 404));
+        assertEquals(notFound, get("/translate?q=omwana", 404));
+        assertEquals(notFound, get("/metricsx", 404));
+        assertEquals(notFound, get("/rukiga-to-english/more?q=omwana", 404));
+        assertEquals(notFound, post("/batch/", "rukiga\tomwana\n", 404));
+    }
+
+    @Test
+    public void malformedEscapesAreRefused() throws IOException {
+        // The JDK server refuses most of them itself, before the query string is decoded.
+        get("/rukiga-to-english?q=%zz", 400);
+        get("/english-to-rukiga?q=child%", 400);
+        get("/english-to-rukiga?q=child&limit=%2", 400);
+    }
+
+    @Test
+    public void batchAnswersEachLineInOrder() throws IOException {
+        String answers = post("/batch", "rukiga\tomwana\n\nenglish\tsleep\nfrench\tenfant\nomuntu\n", 200);
+        assertEquals(List.of(
+                Json.rukigaToEnglish("omwana", dictionary.translateRukigaToEnglish("omwana")),
+                Json.englishToRukiga("sleep",
+                        dictionary.searchEnglish("sleep", 0, RukigaDictionary.REVERSE_RESULT_LIMIT)),
+                Json.error(4, "Unknown direction \"french\", expected rukiga or english"),
+                Json.error(5, "Expected direction<TAB>query")), List.of(answers.split("\n")));
+    }
+
+    @Test
+    public void lookupsWaitForTheDictionary() throws IOException {
+        CompletableFuture<RukigaDictionary> loading = new CompletableFuture<>();
+        DictionaryServer loadingServer = new DictionaryServer(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), loading);
+        try {
+            assertEquals(Json.status("live"), get(loadingServer, "/health/live", 200));
+            assertEquals(Json.status("loading"), get(loadingServer, "/health/ready", 503));
+            assertEquals(Json.error(0, "Dictionary is loading"), get(loadingServer, "/rukiga-to-english?q=omwana", 503));
+
+            loading.complete(dictionary);
+            assertEquals(Json.status("ready"), get(loadingServer, "/health/ready", 200));
+            get(loadingServer, "/rukiga-to-english?q=omwana", 200);
+        } finally {
+            loadingServer.stop();
+        }
+    }
+
+    private String get(String path, int expectedStatus) throws IOException {
+        return get(server, path, expectedStatus);
+    }
+
+    private static String get(DictionaryServer server, String path, int expectedStatus) throws IOException {
+        HttpURLConnection connection = open(server, path);
+        return read(connection, expectedStatus);
+    }
+
+    private String post(String path, String body, int expectedStatus) throws IOException {
+        HttpURLConnection connection = open(server, path);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return read(connection, expectedStatus);
+    }
+
+    private static HttpURLConnection open(DictionaryServer server, String path) throws IOException {
+        InetSocketAddress address = server.address();
+        URL url = new URL("http", address.getHostString(), address.getPort(), path);
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    private static String read(HttpURLConnection connection, int expectedStatus) throws IOException {
+        try {
+            assertEquals(connection.getURL().toString(), expectedStatus, connection.getResponseCode());
+            try (InputStream in = expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                in.transferTo(body);
+                return body.toString(StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
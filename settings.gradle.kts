@@ -21,3 +21,7 @@ dependencyResolutionManagement {
 
 rootProject.name = "Translator"
 include(":app")
+include(":dictionary")
+include(":dictionary-compiler")
+include(":benchmark")
+include(":server")